@@ -0,0 +1,73 @@
+package com.arthroverse.vf17.benchmark;
+
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+import com.arthroverse.vf17.source.SyntheticFrameSource;
+import org.opencv.core.Mat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Fixed inputs shared by the JMH benchmarks, so runs on different releases see the
+// same frames, tensors and candidate sets
+final class BenchmarkInputs {
+    static final int FRAME_WIDTH = 860;
+    static final int FRAME_HEIGHT = 574;
+    static final long SEED = 17;
+
+    private BenchmarkInputs() {
+    }
+
+    static void loadOpenCV() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    // A belt frame with a few objects on it, always the same for a given seed
+    static Mat syntheticFrame() {
+        SyntheticFrameSource source = new SyntheticFrameSource(FRAME_WIDTH, FRAME_HEIGHT, 30, 4, SEED, 0, false);
+        source.open();
+        Mat frame = new Mat();
+        // Let the objects move onto the belt
+        for (int i = 0; i < 30; i++) {
+            source.read(frame);
+        }
+        source.close();
+        return frame;
+    }
+
+    // Clusters of overlapping boxes around a few objects, like a low threshold produces
+    static List<YOLOv8Detector.Detection> syntheticCandidates(Random random, int count) {
+        List<YOLOv8Detector.Detection> candidates = new ArrayList<>(count);
+        int objects = Math.max(1, count / 50);
+        for (int i = 0; i < count; i++) {
+            int object = i % objects;
+            float cx = 40 + (object * 97) % 780 + random.nextFloat() * 20;
+            float cy = 40 + (object * 61) % 500 + random.nextFloat() * 20;
+            float w = 60 + random.nextFloat() * 30;
+            float h = 60 + random.nextFloat() * 30;
+            candidates.add(new YOLOv8Detector.Detection(cx - w / 2, cy - h / 2, cx + w / 2, cy + h / 2,
+                    0.25f + random.nextFloat() * 0.75f, (object + random.nextInt(2)) % 17));
+        }
+        return candidates;
+    }
+
+    // A raw float32 output dump written by RecordOutputTensor, or a synthetic
+    // [21][8400] tensor with the given number of confident anchors when path is empty
+    static FloatBuffer outputTensor(String path, int objects) throws IOException {
+        if (path == null || path.isEmpty()) {
+            return DecodeBenchmark.syntheticOutput(new Random(SEED), objects);
+        }
+        byte[] bytes = Files.readAllBytes(Paths.get(path));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(bytes).flip();
+        FloatBuffer floats = ByteBuffer.allocateDirect(bytes.length).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        floats.put(buffer.asFloatBuffer()).flip();
+        return floats;
+    }
+}
@@ -0,0 +1,270 @@
+package com.arthroverse.vf17.benchmark;
+
+import com.arthroverse.vf17.detection.ExecutionProfile;
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Runs the FP32 model and its reduced-precision variants (FP16, INT8, ...) over a fixed
+// image set and reports per-model latency plus agreement with the FP32 detections,
+// which serve as ground truth: precision/recall of the matched boxes, mAP at the IoU
+// threshold and the mean confidence drift of matched boxes. Run with:
+//   java -cp target/benchmarks.jar com.arthroverse.vf17.benchmark.CompareModels images/ best.onnx best-fp16.onnx best-int8.onnx
+public class CompareModels {
+    private static final String[] IMAGE_EXTENSIONS = {".jpg", ".jpeg", ".png", ".bmp"};
+    private static final int WARMUP_RUNS = 10;
+
+    public static void main(String[] args) throws Exception {
+        int runs = 5;
+        float iouThreshold = 0.5f;
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--runs") && i + 1 < args.length) {
+                runs = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--iou") && i + 1 < args.length) {
+                iouThreshold = Float.parseFloat(args[++i]);
+            } else {
+                positional.add(args[i]);
+            }
+        }
+        if (positional.size() < 2) {
+            System.err.println("Usage: CompareModels [--runs N] [--iou T] IMAGE_DIR REFERENCE_MODEL [VARIANT_MODEL...]");
+            System.exit(1);
+        }
+        nu.pattern.OpenCV.loadLocally();
+
+        List<Mat> images = loadImages(Paths.get(positional.get(0)));
+        if (images.isEmpty()) {
+            System.err.println("No images in " + positional.get(0));
+            System.exit(1);
+        }
+        System.out.printf("%d images, %d timed runs each, IoU %.2f%n", images.size(), runs, iouThreshold);
+
+        List<List<YOLOv8Detector.Detection>> reference = null;
+        System.out.printf("%-32s %-16s %9s %9s %9s %8s %7s %7s %7s %8s%n", "model", "tensors",
+                "mean ms", "p50 ms", "p99 ms", "det/img", "prec", "recall", "mAP", "conf |d|");
+        try {
+            for (int m = 1; m < positional.size(); m++) {
+                String modelPath = positional.get(m);
+                YOLOv8Detector detector = new YOLOv8Detector(modelPath, ExecutionProfile.load());
+                try {
+                    List<List<YOLOv8Detector.Detection>> detections = new ArrayList<>();
+                    long[] latencies = run(detector, images, runs, detections);
+                    if (reference == null) {
+                        reference = detections;
+                    }
+                    report(modelPath, detector, latencies, detections, reference, iouThreshold);
+                } finally {
+                    detector.close();
+                }
+            }
+        } finally {
+            for (Mat image : images) {
+                image.release();
+            }
+        }
+    }
+
+    private static List<Mat> loadImages(Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(CompareModels::isImage).sorted().collect(Collectors.toList());
+        }
+        List<Mat> images = new ArrayList<>();
+        for (Path file : files) {
+            Mat image = Imgcodecs.imread(file.toString());
+            if (image.empty()) {
+                System.err.println("Can't read " + file);
+                continue;
+            }
+            images.add(image);
+        }
+        return images;
+    }
+
+    private static boolean isImage(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        for (String extension : IMAGE_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Detections come from the first timed run; later runs only add latency samples
+    private static long[] run(YOLOv8Detector detector, List<Mat> images, int runs,
+                              List<List<YOLOv8Detector.Detection>> detections) throws Exception {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            detector.detect(images.get(0));
+        }
+        long[] latencies = new long[runs * images.size()];
+        int n = 0;
+        for (int r = 0; r < runs; r++) {
+            for (Mat image : images) {
+                long start = System.nanoTime();
+                List<YOLOv8Detector.Detection> result = detector.detect(image);
+                latencies[n++] = System.nanoTime() - start;
+                if (r == 0) {
+                    detections.add(result);
+                }
+            }
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static void report(String modelPath, YOLOv8Detector detector, long[] latencies,
+                               List<List<YOLOv8Detector.Detection>> detections,
+                               List<List<YOLOv8Detector.Detection>> reference, float iouThreshold) {
+        double mean = Arrays.stream(latencies).average().orElse(0) / 1e6;
+        double p50 = latencies[(int) (0.50 * (latencies.length - 1))] / 1e6;
+        double p99 = latencies[(int) Math.ceil(0.99 * (latencies.length - 1))] / 1e6;
+
+        int total = 0;
+        int referenceTotal = 0;
+        int matched = 0;
+        double confidenceDrift = 0;
+        TreeSet<Integer> classes = new TreeSet<>();
+        for (int i = 0; i < detections.size(); i++) {
+            total += detections.get(i).size();
+            referenceTotal += reference.get(i).size();
+            for (YOLOv8Detector.Detection d : reference.get(i)) {
+                classes.add(d.classId);
+            }
+            for (Match match : match(detections.get(i), reference.get(i), iouThreshold, -1)) {
+                if (match.reference != null) {
+                    matched++;
+                    confidenceDrift += Math.abs(match.detection.confidence - match.reference.confidence);
+                }
+            }
+        }
+
+        double map = 0;
+        for (int classId : classes) {
+            map += averagePrecision(detections, reference, iouThreshold, classId);
+        }
+        map = classes.isEmpty() ? 0 : map / classes.size();
+
+        String name = Paths.get(modelPath).getFileName().toString();
+        System.out.printf(Locale.ROOT, "%-32s %-16s %9.2f %9.2f %9.2f %8.2f %7.3f %7.3f %7.3f %8.4f%n",
+                name, detector.getInputType() + "->" + detector.getOutputType(), mean, p50, p99,
+                (double) total / detections.size(),
+                total == 0 ? 0 : (double) matched / total,
+                referenceTotal == 0 ? 0 : (double) matched / referenceTotal,
+                map, matched == 0 ? 0 : confidenceDrift / matched);
+    }
+
+    private static class Match {
+        final YOLOv8Detector.Detection detection;
+        final YOLOv8Detector.Detection reference;
+
+        Match(YOLOv8Detector.Detection detection, YOLOv8Detector.Detection reference) {
+            this.detection = detection;
+            this.reference = reference;
+        }
+    }
+
+    // Greedy matching in descending confidence, each reference box used once and only
+    // by a detection of the same class; classId -1 matches all classes
+    private static List<Match> match(List<YOLOv8Detector.Detection> detections,
+                                     List<YOLOv8Detector.Detection> reference, float iouThreshold,
+                                     int classId) {
+        List<YOLOv8Detector.Detection> sorted = new ArrayList<>();
+        for (YOLOv8Detector.Detection d : detections) {
+            if (classId < 0 || d.classId == classId) {
+                sorted.add(d);
+            }
+        }
+        sorted.sort(Comparator.comparingDouble((YOLOv8Detector.Detection d) -> d.confidence).reversed());
+
+        boolean[] used = new boolean[reference.size()];
+        List<Match> matches = new ArrayList<>(sorted.size());
+        for (YOLOv8Detector.Detection d : sorted) {
+            int best = -1;
+            float bestIou = iouThreshold;
+            for (int r = 0; r < reference.size(); r++) {
+                YOLOv8Detector.Detection ref = reference.get(r);
+                if (used[r] || ref.classId != d.classId) {
+                    continue;
+                }
+                float iou = iou(d, ref);
+                if (iou >= bestIou) {
+                    bestIou = iou;
+                    best = r;
+                }
+            }
+            if (best >= 0) {
+                used[best] = true;
+            }
+            matches.add(new Match(d, best >= 0 ? reference.get(best) : null));
+        }
+        return matches;
+    }
+
+    // All-point interpolated AP for one class over the whole image set
+    private static double averagePrecision(List<List<YOLOv8Detector.Detection>> detections,
+                                           List<List<YOLOv8Detector.Detection>> reference,
+                                           float iouThreshold, int classId) {
+        List<Match> matches = new ArrayList<>();
+        int positives = 0;
+        for (int i = 0; i < detections.size(); i++) {
+            for (YOLOv8Detector.Detection d : reference.get(i)) {
+                if (d.classId == classId) {
+                    positives++;
+                }
+            }
+            matches.addAll(match(detections.get(i), reference.get(i), iouThreshold, classId));
+        }
+        if (positives == 0) {
+            return 0;
+        }
+        matches.sort(Comparator.comparingDouble((Match m) -> m.detection.confidence).reversed());
+
+        int n = matches.size();
+        double[] precision = new double[n];
+        double[] recall = new double[n];
+        int truePositives = 0;
+        for (int i = 0; i < n; i++) {
+            if (matches.get(i).reference != null) {
+                truePositives++;
+            }
+            precision[i] = (double) truePositives / (i + 1);
+            recall[i] = (double) truePositives / positives;
+        }
+        for (int i = n - 2; i >= 0; i--) {
+            precision[i] = Math.max(precision[i], precision[i + 1]);
+        }
+        double ap = 0;
+        double previousRecall = 0;
+        for (int i = 0; i < n; i++) {
+            ap += (recall[i] - previousRecall) * precision[i];
+            previousRecall = recall[i];
+        }
+        return ap;
+    }
+
+    private static float iou(YOLOv8Detector.Detection a, YOLOv8Detector.Detection b) {
+        float w = Math.min(a.x2, b.x2) - Math.max(a.x1, b.x1);
+        float h = Math.min(a.y2, b.y2) - Math.max(a.y1, b.y1);
+        if (w <= 0 || h <= 0) {
+            return 0;
+        }
+        float intersection = w * h;
+        float union = (a.x2 - a.x1) * (a.y2 - a.y1) + (b.x2 - b.x1) * (b.y2 - b.y1) - intersection;
+        return union <= 0 ? 0 : intersection / union;
+    }
+}
@@ -0,0 +1,112 @@
+package com.arthroverse.vf17.benchmark;
+
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+import com.arthroverse.vf17.detection.YoloOutputDecoder;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Compares the old getValue() + transpose decode against YoloOutputDecoder on a
+// synthetic [21][8400] output tensor. Run with:
+//   java -cp target/benchmarks.jar com.arthroverse.vf17.benchmark.DecodeBenchmark
+public class DecodeBenchmark {
+    private static final int NUM_FEATURES = 4 + 17;
+    private static final int NUM_ANCHORS = 8400;
+    private static final int INPUT_SIZE = 640;
+    private static final float CONF_THRESHOLD = 0.25f;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+
+        FloatBuffer output = syntheticOutput(new Random(17), 12);
+        YoloOutputDecoder decoder = new YoloOutputDecoder(NUM_FEATURES, NUM_ANCHORS, CONF_THRESHOLD);
+
+        // Warm up both paths before timing
+        for (int i = 0; i < iterations; i++) {
+            legacyDecode(output);
+            decoder.decode(output, 860, 574, INPUT_SIZE, INPUT_SIZE, new ArrayList<>());
+        }
+
+        long start = System.nanoTime();
+        int legacyCount = 0;
+        for (int i = 0; i < iterations; i++) {
+            legacyCount = legacyDecode(output).size();
+        }
+        double legacyUs = (System.nanoTime() - start) / 1000.0 / iterations;
+
+        start = System.nanoTime();
+        int bufferCount = 0;
+        for (int i = 0; i < iterations; i++) {
+            List<YOLOv8Detector.Detection> out = new ArrayList<>();
+            decoder.decode(output, 860, 574, INPUT_SIZE, INPUT_SIZE, out);
+            bufferCount = out.size();
+        }
+        double bufferUs = (System.nanoTime() - start) / 1000.0 / iterations;
+
+        System.out.printf("legacy array decode : %8.1f us/frame (%d candidates)%n", legacyUs, legacyCount);
+        System.out.printf("buffer decode       : %8.1f us/frame (%d candidates)%n", bufferUs, bufferCount);
+        System.out.printf("speedup             : %8.2fx%n", legacyUs / bufferUs);
+    }
+
+    static FloatBuffer syntheticOutput(Random random, int objects) {
+        FloatBuffer buffer = ByteBuffer.allocateDirect(NUM_FEATURES * NUM_ANCHORS * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+        for (int a = 0; a < NUM_ANCHORS; a++) {
+            buffer.put(a, random.nextFloat() * INPUT_SIZE);
+            buffer.put(NUM_ANCHORS + a, random.nextFloat() * INPUT_SIZE);
+            buffer.put(2 * NUM_ANCHORS + a, 20 + random.nextFloat() * 100);
+            buffer.put(3 * NUM_ANCHORS + a, 20 + random.nextFloat() * 100);
+            for (int f = 4; f < NUM_FEATURES; f++) {
+                buffer.put(f * NUM_ANCHORS + a, random.nextFloat() * 0.05f);
+            }
+        }
+        // A handful of confident anchors, roughly what a busy belt produces
+        for (int i = 0; i < objects; i++) {
+            int anchor = random.nextInt(NUM_ANCHORS);
+            int classId = random.nextInt(NUM_FEATURES - 4);
+            buffer.put((4 + classId) * NUM_ANCHORS + anchor, 0.5f + random.nextFloat() * 0.5f);
+        }
+        return buffer;
+    }
+
+    // Mirrors what processOutput/postProcess used to do: build the boxed
+    // float[1][features][anchors] value, transpose it, then scan every row.
+    private static List<YOLOv8Detector.Detection> legacyDecode(FloatBuffer buffer) {
+        float[][][] rawOutput = new float[1][NUM_FEATURES][NUM_ANCHORS];
+        for (int f = 0; f < NUM_FEATURES; f++) {
+            buffer.get(f * NUM_ANCHORS, rawOutput[0][f]);
+        }
+
+        float[][] transposed = new float[NUM_ANCHORS][NUM_FEATURES];
+        for (int i = 0; i < NUM_ANCHORS; i++) {
+            for (int j = 0; j < NUM_FEATURES; j++) {
+                transposed[i][j] = rawOutput[0][j][i];
+            }
+        }
+
+        List<YOLOv8Detector.Detection> detections = new ArrayList<>();
+        for (float[] detection : transposed) {
+            float maxConf = 0;
+            int classId = 0;
+            for (int i = 4; i < detection.length; i++) {
+                if (detection[i] > maxConf) {
+                    maxConf = detection[i];
+                    classId = i - 4;
+                }
+            }
+            if (maxConf > CONF_THRESHOLD) {
+                float x1 = (detection[0] - detection[2] / 2) * 860 / INPUT_SIZE;
+                float y1 = (detection[1] - detection[3] / 2) * 574 / INPUT_SIZE;
+                float x2 = (detection[0] + detection[2] / 2) * 860 / INPUT_SIZE;
+                float y2 = (detection[1] + detection[3] / 2) * 574 / INPUT_SIZE;
+                detections.add(new YOLOv8Detector.Detection(x1, y1, x2, y2, maxConf, classId));
+            }
+        }
+        return detections;
+    }
+}
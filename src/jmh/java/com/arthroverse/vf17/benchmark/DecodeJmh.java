@@ -0,0 +1,56 @@
+package com.arthroverse.vf17.benchmark;
+
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+import com.arthroverse.vf17.detection.YoloOutputDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Output tensor decoding (what processOutput/postProcess do before NMS) on a
+// synthetic tensor with a varying number of confident anchors, or on a recorded
+// tensor via -p tensorFile=...
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeJmh {
+    private static final float CONF_THRESHOLD = 0.25f;
+
+    @Param({"0", "12", "200"})
+    public int objects;
+
+    @Param({""})
+    public String tensorFile;
+
+    private FloatBuffer output;
+    private YoloOutputDecoder decoder;
+
+    @Setup
+    public void setup() throws IOException {
+        output = BenchmarkInputs.outputTensor(tensorFile, objects);
+        decoder = new YoloOutputDecoder(21, output.capacity() / 21, CONF_THRESHOLD);
+    }
+
+    @Benchmark
+    public List<YOLOv8Detector.Detection> decode() {
+        List<YOLOv8Detector.Detection> out = new ArrayList<>();
+        decoder.decode(output, BenchmarkInputs.FRAME_WIDTH, BenchmarkInputs.FRAME_HEIGHT, 640, 640, out);
+        return out;
+    }
+}
@@ -0,0 +1,78 @@
+package com.arthroverse.vf17.benchmark;
+
+import ai.onnxruntime.OrtException;
+import com.arthroverse.vf17.detection.ExecutionProfile;
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The detector's per-frame stages on a fixed synthetic frame: preprocessing into the
+// input tensor, the ORT run, decode + NMS, and the whole detect(). Needs the model,
+// -p modelPath=... when not run from the project root.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DetectorJmh {
+
+    @Param({"src/main/resources/model/best.onnx"})
+    public String modelPath;
+
+    private YOLOv8Detector detector;
+    private YOLOv8Detector.Slot slot;
+    private Mat frame;
+
+    @Setup
+    public void setup() throws OrtException {
+        BenchmarkInputs.loadOpenCV();
+        detector = new YOLOv8Detector(modelPath, ExecutionProfile.load());
+        slot = detector.createSlot();
+        frame = BenchmarkInputs.syntheticFrame();
+        // infer/postprocess need a filled slot
+        detector.preprocess(frame, slot);
+        detector.infer(slot);
+    }
+
+    @Benchmark
+    public void preprocess() {
+        detector.preprocess(frame, slot);
+    }
+
+    @Benchmark
+    public void infer() throws OrtException {
+        detector.infer(slot);
+    }
+
+    @Benchmark
+    public List<YOLOv8Detector.Detection> postprocess() {
+        return detector.postprocess(slot);
+    }
+
+    @Benchmark
+    public List<YOLOv8Detector.Detection> detect() throws OrtException {
+        return detector.detect(frame);
+    }
+
+    @TearDown
+    public void tearDown() throws OrtException {
+        slot.close();
+        detector.close();
+        frame.release();
+    }
+}
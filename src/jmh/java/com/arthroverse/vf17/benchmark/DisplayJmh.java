@@ -0,0 +1,58 @@
+package com.arthroverse.vf17.benchmark;
+
+import com.arthroverse.vf17.detection.MotionGate;
+import com.arthroverse.vf17.display.FrameDisplayBuffer;
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Per-frame work left on the capture thread: the display hand-off that replaced
+// matToBufferedImage, and the motion gate in front of inference
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisplayJmh {
+    private Mat frame;
+    private FrameDisplayBuffer displayBuffer;
+    private MotionGate gate;
+
+    @Setup
+    public void setup() {
+        BenchmarkInputs.loadOpenCV();
+        frame = BenchmarkInputs.syntheticFrame();
+        displayBuffer = new FrameDisplayBuffer(frame.cols(), frame.rows());
+        gate = new MotionGate(null, 25, 0.002, 2000);
+    }
+
+    @Benchmark
+    public int publishAndAcquire() {
+        displayBuffer.publish(frame, 0);
+        return displayBuffer.acquireLatest();
+    }
+
+    @Benchmark
+    public boolean detectMotion() {
+        return gate.detectMotion(frame);
+    }
+
+    @TearDown
+    public void tearDown() {
+        displayBuffer.release();
+        gate.release();
+        frame.release();
+    }
+}
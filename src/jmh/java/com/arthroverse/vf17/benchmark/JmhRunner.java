@@ -0,0 +1,29 @@
+package com.arthroverse.vf17.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs the benchmarks matching the optional regex with the GC profiler on, so
+// allocation rate (gc.alloc.rate.norm, bytes per op) is reported next to the time
+// per op, and writes JSON results for comparing releases. Forks get the Vector API
+// module so preprocessing runs the same kernel as the app, e.g.
+//   java -cp target/benchmarks.jar com.arthroverse.vf17.benchmark.JmhRunner Nms jmh-1.2.json
+public class JmhRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : ".*Jmh.*";
+        String resultFile = args.length > 1 ? args[1] : "target/jmh-result.json";
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .jvmArgsAppend("--add-modules=jdk.incubator.vector")
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .build();
+        new Runner(options).run();
+    }
+}
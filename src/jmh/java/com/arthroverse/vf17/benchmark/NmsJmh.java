@@ -0,0 +1,50 @@
+package com.arthroverse.vf17.benchmark;
+
+import com.arthroverse.vf17.detection.NmsEngine;
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// NMS (including its IoU tests) over clustered candidate sets of growing size
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NmsJmh {
+
+    @Param({"10", "100", "1000", "4000", "8400"})
+    public int candidates;
+
+    @Param({"false", "true"})
+    public boolean classAgnostic;
+
+    private List<YOLOv8Detector.Detection> input;
+    private NmsEngine engine;
+
+    @Setup
+    public void setup() {
+        input = BenchmarkInputs.syntheticCandidates(new Random(BenchmarkInputs.SEED), candidates);
+        engine = new NmsEngine(0.45f);
+        engine.setClassAgnostic(classAgnostic);
+    }
+
+    @Benchmark
+    public List<YOLOv8Detector.Detection> apply() {
+        return engine.apply(input);
+    }
+}
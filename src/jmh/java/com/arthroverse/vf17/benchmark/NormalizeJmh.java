@@ -0,0 +1,98 @@
+package com.arthroverse.vf17.benchmark;
+
+import com.arthroverse.vf17.detection.PixelNormalizer;
+import com.arthroverse.vf17.detection.ScalarPixelNormalizer;
+import com.arthroverse.vf17.detection.VectorPixelNormalizer;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// HWC uint8 -> CHW float conversion of a resized frame: the old cvtColor + strided
+// per-channel loop against the scalar and Vector API kernels. Doesn't need the model.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class NormalizeJmh {
+
+    @Param({"320", "640"})
+    public int size;
+
+    private Mat bgr;
+    private Mat rgb;
+    private byte[] pixels;
+    private ByteBuffer output;
+    private FloatBuffer outputFloats;
+    private PixelNormalizer scalar;
+    private PixelNormalizer vector;
+
+    @Setup
+    public void setup() {
+        BenchmarkInputs.loadOpenCV();
+        pixels = new byte[3 * size * size];
+        new Random(BenchmarkInputs.SEED).nextBytes(pixels);
+        bgr = new Mat(size, size, CvType.CV_8UC3);
+        bgr.put(0, 0, pixels);
+        rgb = new Mat(size, size, CvType.CV_8UC3);
+        output = ByteBuffer.allocateDirect(pixels.length * Float.BYTES).order(ByteOrder.nativeOrder());
+        outputFloats = output.asFloatBuffer();
+        scalar = new ScalarPixelNormalizer();
+        vector = new VectorPixelNormalizer();
+    }
+
+    @Benchmark
+    public ByteBuffer cvtColorStrided() {
+        Imgproc.cvtColor(bgr, rgb, Imgproc.COLOR_BGR2RGB);
+        rgb.get(0, 0, pixels);
+        int idx = 0;
+        for (int c = 0; c < 3; c++) {
+            for (int h = 0; h < size; h++) {
+                for (int w = 0; w < size; w++) {
+                    int pixelIndex = (h * size + w) * 3 + c;
+                    outputFloats.put(idx++, (pixels[pixelIndex] & 0xFF) / 255.0f);
+                }
+            }
+        }
+        return output;
+    }
+
+    @Benchmark
+    public ByteBuffer scalar() {
+        bgr.get(0, 0, pixels);
+        scalar.normalize(pixels, output, size * size);
+        return output;
+    }
+
+    @Benchmark
+    public ByteBuffer vector() {
+        bgr.get(0, 0, pixels);
+        vector.normalize(pixels, output, size * size);
+        return output;
+    }
+
+    @TearDown
+    public void tearDown() {
+        bgr.release();
+        rgb.release();
+    }
+}
@@ -0,0 +1,54 @@
+package com.arthroverse.vf17.benchmark;
+
+import com.arthroverse.vf17.detection.ExecutionProfile;
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Runs the model once on an image and dumps the raw output tensor as little-endian
+// float32, for the JMH decode benchmark's tensorFile parameter. Run with:
+//   java -cp target/benchmarks.jar com.arthroverse.vf17.benchmark.RecordOutputTensor belt.jpg output.bin
+public class RecordOutputTensor {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: RecordOutputTensor IMAGE OUTPUT [MODEL]");
+            System.exit(1);
+        }
+        String modelPath = args.length > 2 ? args[2] : "src/main/resources/model/best.onnx";
+        nu.pattern.OpenCV.loadLocally();
+
+        Mat image = Imgcodecs.imread(args[0]);
+        if (image.empty()) {
+            System.err.println("Can't read " + args[0]);
+            System.exit(1);
+        }
+        YOLOv8Detector detector = new YOLOv8Detector(modelPath, ExecutionProfile.load());
+        try (YOLOv8Detector.Slot slot = detector.createSlot()) {
+            detector.preprocess(image, slot);
+            detector.infer(slot);
+            write(slot.getOutput(), args[1]);
+        } finally {
+            detector.close();
+            image.release();
+        }
+    }
+
+    private static void write(FloatBuffer output, String path) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(output.remaining() * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.asFloatBuffer().put(output.duplicate());
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(bytes);
+        }
+        System.out.printf("Wrote %d floats to %s%n", output.remaining(), path);
+    }
+}
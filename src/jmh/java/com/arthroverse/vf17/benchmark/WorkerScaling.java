@@ -0,0 +1,69 @@
+package com.arthroverse.vf17.benchmark;
+
+import com.arthroverse.vf17.pipeline.DetectionPipeline;
+import com.arthroverse.vf17.pipeline.QueuePolicy;
+import com.arthroverse.vf17.worker.WorkerPool;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Frames per second through the worker-process pipeline for 1..MAX_WORKERS workers,
+// with the submitting thread held back by BACKPRESSURE so every frame is inferred.
+// Each worker gets cores / workers ORT threads unless -Dvf17.ort.intraOpThreads is
+// set, so the cores in use stay the same and the gain comes from running frames side
+// by side instead of splitting one frame's operators. Run with:
+//   java -cp target/benchmarks.jar com.arthroverse.vf17.benchmark.WorkerScaling 4 15 src/main/resources/model/best.onnx
+public class WorkerScaling {
+    private static final int WARMUP_SECONDS = 2;
+
+    public static void main(String[] args) throws Exception {
+        int maxWorkers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        String model = args.length > 2 ? args[2] : "src/main/resources/model/best.onnx";
+        nu.pattern.OpenCV.loadLocally();
+
+        Mat frame = new Mat(574, 860, CvType.CV_8UC3);
+        Core.randu(frame, 0, 255);
+
+        double baseline = 0;
+        System.out.printf("%-8s %10s %9s %11s%n", "workers", "frames/s", "speedup", "efficiency");
+        for (int workers = 1; workers <= maxWorkers; workers++) {
+            double fps = run(model, workers, seconds, frame);
+            if (workers == 1) {
+                baseline = fps;
+            }
+            double speedup = baseline == 0 ? 0 : fps / baseline;
+            System.out.printf("%-8d %10.1f %8.2fx %10.0f%%%n", workers, fps, speedup, 100 * speedup / workers);
+        }
+        frame.release();
+    }
+
+    private static double run(String model, int workers, int seconds, Mat frame) throws Exception {
+        try (WorkerPool pool = new WorkerPool(model, workers)) {
+            AtomicLong completed = new AtomicLong();
+            DetectionPipeline pipeline = new DetectionPipeline(pool, 1, 1, workers, QueuePolicy.BACKPRESSURE,
+                    job -> completed.incrementAndGet());
+            pipeline.start();
+            try {
+                submitFor(pipeline, frame, TimeUnit.SECONDS.toNanos(WARMUP_SECONDS));
+                long before = completed.get();
+                long start = System.nanoTime();
+                submitFor(pipeline, frame, TimeUnit.SECONDS.toNanos(seconds));
+                return (completed.get() - before) * 1e9 / (System.nanoTime() - start);
+            } finally {
+                pipeline.stop();
+            }
+        }
+    }
+
+    private static void submitFor(DetectionPipeline pipeline, Mat frame, long nanos) {
+        long end = System.nanoTime() + nanos;
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            pipeline.submit(frame, now);
+        }
+    }
+}
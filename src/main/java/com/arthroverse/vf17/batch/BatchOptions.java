@@ -0,0 +1,99 @@
+package com.arthroverse.vf17.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Command line of the headless batch mode:
+//   VF17Batch [--workers N] [--format csv|jsonl] [--output FILE] [--model PATH]
+//             [--crossings-only] INPUT...
+// Each INPUT is a video file, an image file, a directory of images or a
+// video:/synthetic:/replay: source spec.
+public class BatchOptions {
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+    public enum Format {
+        CSV, JSONL
+    }
+
+    int workers = Math.max(1, CORES / 2);
+    Format format = Format.CSV;
+    String output;
+    String modelPath = "src/main/resources/model/best.onnx";
+    boolean crossingsOnly = false;
+    final List<String> inputs = new ArrayList<>();
+
+    public static BatchOptions parse(String[] args) {
+        BatchOptions options = new BatchOptions();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--workers":
+                    options.workers = Integer.parseInt(value(args, ++i, arg));
+                    if (options.workers < 1) {
+                        throw new IllegalArgumentException("--workers must be at least 1");
+                    }
+                    break;
+                case "--format":
+                    options.format = Format.valueOf(value(args, ++i, arg).toUpperCase());
+                    break;
+                case "--output":
+                    options.output = value(args, ++i, arg);
+                    break;
+                case "--model":
+                    options.modelPath = value(args, ++i, arg);
+                    break;
+                case "--crossings-only":
+                    options.crossingsOnly = true;
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                    }
+                    options.inputs.add(arg);
+            }
+        }
+        if (options.inputs.isEmpty()) {
+            throw new IllegalArgumentException("No input video, image or directory given");
+        }
+        return options;
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(option + " needs a value");
+        }
+        return args[index];
+    }
+
+    public static String usage() {
+        return "Usage: VF17Batch [--workers N] [--format csv|jsonl] [--output FILE] [--model PATH]"
+                + " [--crossings-only] INPUT...\n"
+                + "  INPUT is a video file, an image file, a directory of images or a\n"
+                + "  video:/synthetic:/replay: source spec.\n"
+                + "  Crossing lines and zones come from -Dvf17.crossing.*, ORT settings from -Dvf17.ort.*";
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public String getModelPath() {
+        return modelPath;
+    }
+
+    public boolean isCrossingsOnly() {
+        return crossingsOnly;
+    }
+
+    public List<String> getInputs() {
+        return inputs;
+    }
+}
@@ -0,0 +1,228 @@
+package com.arthroverse.vf17.batch;
+
+import ai.onnxruntime.OrtException;
+import com.arthroverse.vf17.crossing.CrossingEngine;
+import com.arthroverse.vf17.crossing.CrossingEvent;
+import com.arthroverse.vf17.detection.ExecutionProfile;
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+import com.arthroverse.vf17.source.FrameSource;
+import com.arthroverse.vf17.tracking.ObjectTracker;
+import com.arthroverse.vf17.tracking.Track;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+// Runs the detector over recorded footage and image sets without the UI. Frames are
+// read in order by the calling thread and inferred on a fork-join pool with one
+// detector session per worker; results are put back in frame order before tracking
+// and crossing checks, so video output is the same whatever the worker count.
+public class BatchProcessor implements AutoCloseable {
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+    private final int workers;
+    private final ForkJoinPool pool;
+    private final BlockingQueue<YOLOv8Detector> detectors;
+    private final List<YOLOv8Detector> allDetectors = new ArrayList<>();
+    private final CrossingEngine crossingEngine = CrossingEngine.load();
+    private final ResultWriter writer;
+    private final boolean crossingsOnly;
+    // Frames in flight before the reader waits for the oldest one
+    private final int window;
+
+    private long frames = 0;
+    private long detections = 0;
+    private long crossings = 0;
+    private int sources = 0;
+
+    public BatchProcessor(String modelPath, int workers, ResultWriter writer, boolean crossingsOnly)
+            throws OrtException {
+        this.workers = workers;
+        this.writer = writer;
+        this.crossingsOnly = crossingsOnly;
+        this.window = workers * 2;
+
+        // Split the cores between the sessions unless ORT threads are set explicitly
+        Properties defaults = new Properties();
+        defaults.setProperty("intraOpThreads", Integer.toString(Math.max(1, CORES / workers)));
+        defaults.setProperty("interOpThreads", "1");
+        ExecutionProfile profile = ExecutionProfile.load(defaults);
+        System.err.printf("[batch] %d detector sessions, %s%n", workers, profile);
+
+        detectors = new ArrayBlockingQueue<>(workers);
+        for (int i = 0; i < workers; i++) {
+            YOLOv8Detector detector = new YOLOv8Detector(modelPath, profile, true);
+            allDetectors.add(detector);
+            detectors.add(detector);
+        }
+        pool = new ForkJoinPool(workers);
+    }
+
+    // Video files, synthetic belts and replays: frames keep their order for tracking
+    public void processSource(FrameSource source) {
+        String name = source.getName();
+        if (!source.open()) {
+            System.err.printf("[batch] can't open %s%n", name);
+            return;
+        }
+        int streamId = sources++;
+        ObjectTracker tracker = new ObjectTracker();
+        // Each source's timestamps start at 0, so cooldowns from the previous one would
+        // never expire on the wheel's clock
+        crossingEngine.reset();
+        ArrayDeque<Pending> inFlight = new ArrayDeque<>(window);
+        long firstNanos = 0;
+        try {
+            for (long index = 0; ; index++) {
+                Mat frame = new Mat();
+                if (!source.read(frame) || frame.empty()) {
+                    frame.release();
+                    break;
+                }
+                if (index == 0) {
+                    firstNanos = source.getTimestampNanos();
+                }
+                double timeMs = (source.getTimestampNanos() - firstNanos) / 1e6;
+                inFlight.add(submit(index, timeMs, () -> frame));
+                if (inFlight.size() >= window) {
+                    complete(name, streamId, inFlight.poll(), tracker);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                complete(name, streamId, inFlight.poll(), tracker);
+            }
+        } finally {
+            source.close();
+        }
+    }
+
+    // Images are decoded on the workers too; they aren't tracked, so no crossings
+    public void processImages(String source, List<Path> files) {
+        sources++;
+        ArrayDeque<Pending> inFlight = new ArrayDeque<>(window);
+        long index = 0;
+        for (Path file : files) {
+            String path = file.toString();
+            Pending pending = submit(index++, 0, () -> Imgcodecs.imread(path));
+            pending.source = path;
+            inFlight.add(pending);
+            if (inFlight.size() >= window) {
+                complete(source, -1, inFlight.poll(), null);
+            }
+        }
+        while (!inFlight.isEmpty()) {
+            complete(source, -1, inFlight.poll(), null);
+        }
+    }
+
+    private Pending submit(long index, double timeMs, Supplier<Mat> loader) {
+        Pending pending = new Pending(index, timeMs);
+        pending.result = CompletableFuture.supplyAsync(() -> detect(loader), pool);
+        return pending;
+    }
+
+    private List<YOLOv8Detector.Detection> detect(Supplier<Mat> loader) {
+        Mat frame = loader.get();
+        YOLOv8Detector detector = null;
+        try {
+            if (frame.empty()) {
+                return List.of();
+            }
+            detector = detectors.take();
+            return detector.detect(frame);
+        } catch (OrtException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            if (detector != null) {
+                detectors.add(detector);
+            }
+            frame.release();
+        }
+    }
+
+    private void complete(String source, int streamId, Pending pending, ObjectTracker tracker) {
+        List<YOLOv8Detector.Detection> frameDetections;
+        try {
+            frameDetections = pending.result.join();
+        } catch (RuntimeException e) {
+            System.err.printf("[batch] frame %d of %s failed%n", pending.index, source);
+            e.printStackTrace();
+            return;
+        }
+        frames++;
+        detections += frameDetections.size();
+        String name = pending.source != null ? pending.source : source;
+
+        if (tracker != null) {
+            long nanos = (long) (pending.timeMs * 1_000_000);
+            List<Track> tracks = tracker.update(frameDetections, nanos);
+            List<CrossingEvent> events = new ArrayList<>();
+            crossingEngine.evaluate(streamId, tracks, nanos, events);
+            for (CrossingEvent event : events) {
+                writer.crossing(name, pending.index, pending.timeMs, event);
+            }
+            crossings += events.size();
+        }
+        if (!crossingsOnly) {
+            for (YOLOv8Detector.Detection det : frameDetections) {
+                writer.detection(name, pending.index, pending.timeMs, det);
+            }
+        }
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getDetections() {
+        return detections;
+    }
+
+    public long getCrossings() {
+        return crossings;
+    }
+
+    public int getSources() {
+        return sources;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+        for (YOLOv8Detector detector : allDetectors) {
+            try {
+                detector.close();
+            } catch (OrtException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static class Pending {
+        final long index;
+        final double timeMs;
+        String source;
+        CompletableFuture<List<YOLOv8Detector.Detection>> result;
+
+        Pending(long index, double timeMs) {
+            this.index = index;
+            this.timeMs = timeMs;
+        }
+    }
+}
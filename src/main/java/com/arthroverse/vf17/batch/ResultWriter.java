@@ -0,0 +1,107 @@
+package com.arthroverse.vf17.batch;
+
+import com.arthroverse.vf17.crossing.CrossingEvent;
+import com.arthroverse.vf17.detection.DetectionHandler;
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+import com.arthroverse.vf17.tracking.Track;
+
+import java.io.Closeable;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+// Writes detections and crossings as CSV rows or JSON lines, one record per line.
+// Only called from the batch thread that reassembles frames in order.
+public class ResultWriter implements Closeable {
+    private static final String CSV_HEADER =
+            "kind,source,frame,time_ms,track_id,class,confidence,x1,y1,x2,y2,geometry";
+
+    private final PrintWriter out;
+    private final BatchOptions.Format format;
+
+    public ResultWriter(PrintWriter out, BatchOptions.Format format) {
+        this.out = out;
+        this.format = format;
+        if (format == BatchOptions.Format.CSV) {
+            out.println(CSV_HEADER);
+        }
+    }
+
+    public void detection(String source, long frame, double timeMs, YOLOv8Detector.Detection det) {
+        String className = DetectionHandler.getClassName(det.classId);
+        if (format == BatchOptions.Format.CSV) {
+            out.println(String.format(Locale.ROOT, "detection,%s,%d,%.1f,%d,%s,%.4f,%.1f,%.1f,%.1f,%.1f,",
+                    csv(source), frame, timeMs, det.trackId, csv(className), det.confidence,
+                    det.x1, det.y1, det.x2, det.y2));
+        } else {
+            out.println(String.format(Locale.ROOT,
+                    "{\"kind\":\"detection\",\"source\":%s,\"frame\":%d,\"timeMs\":%.1f,\"trackId\":%d,"
+                            + "\"class\":%s,\"confidence\":%.4f,\"box\":[%.1f,%.1f,%.1f,%.1f]}",
+                    json(source), frame, timeMs, det.trackId, json(className), det.confidence,
+                    det.x1, det.y1, det.x2, det.y2));
+        }
+    }
+
+    public void crossing(String source, long frame, double timeMs, CrossingEvent event) {
+        Track track = event.getTrack();
+        String className = DetectionHandler.getClassName(track.getClassId());
+        String geometry = event.getGeometry().getName();
+        float x = track.getCenterX();
+        float y = track.getCenterY();
+        if (format == BatchOptions.Format.CSV) {
+            out.println(String.format(Locale.ROOT, "crossing,%s,%d,%.1f,%d,%s,%.4f,%.1f,%.1f,%.1f,%.1f,%s",
+                    csv(source), frame, timeMs, track.getId(), csv(className), track.getConfidence(),
+                    x - track.getWidth() / 2, y - track.getHeight() / 2,
+                    x + track.getWidth() / 2, y + track.getHeight() / 2, csv(geometry)));
+        } else {
+            out.println(String.format(Locale.ROOT,
+                    "{\"kind\":\"crossing\",\"source\":%s,\"frame\":%d,\"timeMs\":%.1f,\"trackId\":%d,"
+                            + "\"class\":%s,\"confidence\":%.4f,\"geometry\":%s}",
+                    json(source), frame, timeMs, track.getId(), json(className), track.getConfidence(),
+                    json(geometry)));
+        }
+    }
+
+    @Override
+    public void close() {
+        out.flush();
+        out.close();
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
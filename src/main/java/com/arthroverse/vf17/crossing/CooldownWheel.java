@@ -0,0 +1,88 @@
+package com.arthroverse.vf17.crossing;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Hashed timer wheel holding keys that recently fired. Every key lives for the same
+// cooldown, so the wheel spans one cooldown and each slot only holds keys expiring
+// on that tick. The wheel is advanced by the callers themselves: no timer thread,
+// no thread per entry, and expiring a tick is one pass over its slot.
+public class CooldownWheel {
+    private final long tickNanos;
+    private final long cooldownTicks;
+    private final int mask;
+    private final long[][] slots;
+    private final int[] slotSizes;
+    private final Set<Long> active = new HashSet<>();
+    private long currentTick = Long.MIN_VALUE;
+
+    public CooldownWheel(long cooldownNanos, long tickNanos) {
+        this.tickNanos = Math.max(1, tickNanos);
+        this.cooldownTicks = Math.max(1, (cooldownNanos + this.tickNanos - 1) / this.tickNanos);
+        int size = Integer.highestOneBit((int) Math.min(1 << 20, cooldownTicks + 1) * 2 - 1);
+        mask = size - 1;
+        slots = new long[size][4];
+        slotSizes = new int[size];
+    }
+
+    public CooldownWheel(long cooldownMillis) {
+        this(TimeUnit.MILLISECONDS.toNanos(cooldownMillis), TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    // Starts the cooldown for the key and returns true, or returns false if it is
+    // still cooling down
+    public synchronized boolean tryAcquire(long key, long nanos) {
+        advance(nanos);
+        if (!active.add(key)) {
+            return false;
+        }
+        int slot = (int) ((currentTick + cooldownTicks) & mask);
+        if (slotSizes[slot] == slots[slot].length) {
+            slots[slot] = Arrays.copyOf(slots[slot], slotSizes[slot] * 2);
+        }
+        slots[slot][slotSizes[slot]++] = key;
+        return true;
+    }
+
+    public synchronized boolean isCoolingDown(long key, long nanos) {
+        advance(nanos);
+        return active.contains(key);
+    }
+
+    public synchronized int size() {
+        return active.size();
+    }
+
+    // Also forgets the current time, so the next call may start a new clock (e.g. the
+    // next file of a batch run, whose timestamps begin at 0 again)
+    public synchronized void clear() {
+        active.clear();
+        Arrays.fill(slotSizes, 0);
+        currentTick = Long.MIN_VALUE;
+    }
+
+    private void advance(long nanos) {
+        long tick = Math.floorDiv(nanos, tickNanos);
+        if (currentTick == Long.MIN_VALUE) {
+            currentTick = tick;
+            return;
+        }
+        if (tick - currentTick > mask) {
+            // Slept through a whole revolution, everything has expired
+            clear();
+            currentTick = tick;
+            return;
+        }
+        while (currentTick < tick) {
+            currentTick++;
+            int slot = (int) (currentTick & mask);
+            long[] keys = slots[slot];
+            for (int i = 0; i < slotSizes[slot]; i++) {
+                active.remove(keys[i]);
+            }
+            slotSizes[slot] = 0;
+        }
+    }
+}
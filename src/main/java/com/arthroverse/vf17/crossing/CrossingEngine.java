@@ -0,0 +1,256 @@
+package com.arthroverse.vf17.crossing;
+
+import com.arthroverse.vf17.tracking.Track;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+// Counts tracks crossing any number of lines and polygonal zones. Each track's move
+// since its previous measurement is checked in one pass per detection batch against
+// only the geometries whose cells of a uniform grid it touches, so the cost per
+// track stays flat as zones are added. A counted (stream, geometry, track) goes on a
+// shared CooldownWheel so jitter across an edge doesn't count it twice.
+//
+// Geometries come from a properties file (-Dvf17.crossing.config) or
+// vf17.crossing.* system properties, e.g.
+//   line.exit=430,0,430,574
+//   line.exit.direction=POSITIVE
+//   zone.reject=100,100;300,100;300,300;100,300
+//   zone.reject.direction=ENTER
+// Without any, a single line from -Dvf17.line.* is used.
+public class CrossingEngine {
+    private static final String PREFIX = "vf17.crossing.";
+    private static final int MIN_CELL_SIZE = 64;
+    private static final int MAX_CELLS_PER_AXIS = 256;
+    // Default lines run far past any camera frame, like the old infinite line
+    private static final float DEFAULT_EXTENT = 4096;
+
+    private final List<CrossingGeometry> geometries;
+    private final CooldownWheel cooldowns;
+
+    // Uniform grid over the geometries' bounding boxes; each cell lists the
+    // geometries overlapping it
+    private final float gridX, gridY;
+    private final float cellSize;
+    private final int cols, rows;
+    private final int[][] cells;
+    private final float[] bounds;
+
+    // Per-evaluation de-duplication of candidates found in several cells
+    private final int[] seenStamp;
+    private int stamp = 0;
+
+    public CrossingEngine(List<CrossingGeometry> geometries, long cooldownMillis) {
+        if (geometries.isEmpty()) {
+            throw new IllegalArgumentException("At least one crossing line or zone is needed");
+        }
+        this.geometries = new ArrayList<>(geometries);
+        for (int i = 0; i < this.geometries.size(); i++) {
+            this.geometries.get(i).index = i;
+        }
+        this.cooldowns = new CooldownWheel(cooldownMillis);
+        this.seenStamp = new int[this.geometries.size()];
+
+        float x0 = Float.MAX_VALUE, y0 = Float.MAX_VALUE;
+        float x1 = -Float.MAX_VALUE, y1 = -Float.MAX_VALUE;
+        for (CrossingGeometry g : this.geometries) {
+            x0 = Math.min(x0, g.minX);
+            y0 = Math.min(y0, g.minY);
+            x1 = Math.max(x1, g.maxX);
+            y1 = Math.max(y1, g.maxY);
+        }
+        bounds = new float[]{x0, y0, x1, y1};
+        float extent = Math.max(x1 - x0, y1 - y0);
+        cellSize = Math.max(MIN_CELL_SIZE, extent / MAX_CELLS_PER_AXIS);
+        gridX = x0;
+        gridY = y0;
+        cols = (int) ((x1 - x0) / cellSize) + 1;
+        rows = (int) ((y1 - y0) / cellSize) + 1;
+
+        List<List<Integer>> buckets = new ArrayList<>(cols * rows);
+        for (int i = 0; i < cols * rows; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (CrossingGeometry g : this.geometries) {
+            for (int r = row(g.minY); r <= row(g.maxY); r++) {
+                for (int c = col(g.minX); c <= col(g.maxX); c++) {
+                    buckets.get(r * cols + c).add(g.index);
+                }
+            }
+        }
+        cells = new int[cols * rows][];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = buckets.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    public static CrossingEngine load() {
+        Properties properties = new Properties();
+        String configPath = System.getProperty(PREFIX + "config");
+        if (configPath != null) {
+            try (InputStream in = new FileInputStream(configPath)) {
+                properties.load(in);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        // System properties win over the file
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith(PREFIX)) {
+                properties.setProperty(key.substring(PREFIX.length()), System.getProperty(key));
+            }
+        }
+        return fromProperties(properties);
+    }
+
+    public static CrossingEngine fromProperties(Properties properties) {
+        long cooldownMillis = Long.parseLong(properties.getProperty("cooldownMs", "3000").trim());
+
+        // Sorted by key so the first geometry (the one the overlay colours by) is stable
+        List<CrossingGeometry> geometries = new ArrayList<>();
+        for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+            String[] parts = key.split("\\.");
+            if (parts.length != 2 || !parts[0].equals("line") && !parts[0].equals("zone")) {
+                continue;
+            }
+            String name = parts[1];
+            float[] points = parsePoints(properties.getProperty(key));
+            String direction = properties.getProperty(key + ".direction");
+            if (parts[0].equals("line")) {
+                if (points.length != 4) {
+                    throw new IllegalArgumentException("Line " + name + " needs x0,y0,x1,y1");
+                }
+                geometries.add(new CrossingLine(name,
+                        CrossingGeometry.Direction.valueOf(direction == null ? "POSITIVE" : direction.trim()),
+                        points[0], points[1], points[2], points[3]));
+            } else {
+                geometries.add(new CrossingZone(name,
+                        CrossingGeometry.Direction.valueOf(direction == null ? "ENTER" : direction.trim()),
+                        points));
+            }
+        }
+        if (geometries.isEmpty()) {
+            geometries.add(defaultLine());
+        }
+        return new CrossingEngine(geometries, cooldownMillis);
+    }
+
+    // The original single line: objects count when they move left over a vertical
+    // line or up over a horizontal one. x defaults to the middle of the 860px frame
+    // the camera is asked for.
+    private static CrossingGeometry defaultLine() {
+        boolean vertical = !"horizontal".equals(System.getProperty("vf17.line.orientation", "vertical"));
+        if (vertical) {
+            float x = Integer.getInteger("vf17.line.x", 430);
+            return new CrossingLine("line", CrossingGeometry.Direction.POSITIVE, x, 0, x, DEFAULT_EXTENT);
+        }
+        float y = Integer.getInteger("vf17.line.y", 287);
+        return new CrossingLine("line", CrossingGeometry.Direction.POSITIVE, DEFAULT_EXTENT, y, 0, y);
+    }
+
+    // "x0,y0,x1,y1" or "x0,y0;x1,y1;..."
+    private static float[] parsePoints(String value) {
+        String[] tokens = value.split("[,;]");
+        float[] points = new float[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            points[i] = Float.parseFloat(tokens[i].trim());
+        }
+        return points;
+    }
+
+    // Checks every track that has a previous measurement for crossings since then and
+    // adds the ones that aren't cooling down to out. Also refreshes each track's
+    // passed flag against the first geometry.
+    public synchronized void evaluate(int streamId, List<Track> tracks, long nanos, List<CrossingEvent> out) {
+        for (Track track : tracks) {
+            float cx = track.getCenterX();
+            float cy = track.getCenterY();
+            track.setPassed(hasPassed(cx, cy));
+            if (!track.hasPreviousCenter()) {
+                continue;
+            }
+            float px = track.getPreviousCenterX();
+            float py = track.getPreviousCenterY();
+
+            float minX = Math.min(px, cx), maxX = Math.max(px, cx);
+            float minY = Math.min(py, cy), maxY = Math.max(py, cy);
+            if (maxX < bounds[0] || maxY < bounds[1] || minX > bounds[2] || minY > bounds[3]) {
+                continue;
+            }
+            if (++stamp == 0) {
+                Arrays.fill(seenStamp, 0);
+                stamp = 1;
+            }
+            for (int r = row(minY); r <= row(maxY); r++) {
+                for (int c = col(minX); c <= col(maxX); c++) {
+                    for (int index : cells[r * cols + c]) {
+                        if (seenStamp[index] == stamp) {
+                            continue;
+                        }
+                        seenStamp[index] = stamp;
+                        CrossingGeometry geometry = geometries.get(index);
+                        if (geometry.crossed(px, py, cx, cy)
+                                && cooldowns.tryAcquire(cooldownKey(streamId, index, track.getId()), nanos)) {
+                            out.add(new CrossingEvent(track, geometry, nanos));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Drops every cooldown, for when the caller's clock starts over
+    public synchronized void reset() {
+        cooldowns.clear();
+    }
+
+    // Whether a point is past the first geometry, used for colouring and scheduling
+    public boolean hasPassed(float x, float y) {
+        return geometries.get(0).isOnTargetSide(x, y);
+    }
+
+    // Seconds until the track reaches the nearest geometry it isn't already past
+    public double timeToNextCrossing(Track track) {
+        double best = Double.POSITIVE_INFINITY;
+        float x = track.getCenterX();
+        float y = track.getCenterY();
+        for (CrossingGeometry geometry : geometries) {
+            if (!geometry.isOnTargetSide(x, y)) {
+                best = Math.min(best, geometry.timeToReach(x, y, track.getVelocityX(), track.getVelocityY()));
+            }
+        }
+        return best;
+    }
+
+    public List<CrossingGeometry> getGeometries() {
+        return Collections.unmodifiableList(geometries);
+    }
+
+    public CooldownWheel getCooldowns() {
+        return cooldowns;
+    }
+
+    // Bounding box of all geometries as {minX, minY, maxX, maxY}
+    public float[] getBounds() {
+        return bounds.clone();
+    }
+
+    private static long cooldownKey(int streamId, int geometryIndex, int trackId) {
+        return ((long) streamId << 48) | ((long) geometryIndex << 32) | (trackId & 0xFFFFFFFFL);
+    }
+
+    private int col(float x) {
+        return Math.max(0, Math.min(cols - 1, (int) ((x - gridX) / cellSize)));
+    }
+
+    private int row(float y) {
+        return Math.max(0, Math.min(rows - 1, (int) ((y - gridY) / cellSize)));
+    }
+}
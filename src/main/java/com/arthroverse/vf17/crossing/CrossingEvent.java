@@ -0,0 +1,28 @@
+package com.arthroverse.vf17.crossing;
+
+import com.arthroverse.vf17.tracking.Track;
+
+// One counted crossing of a track over a line or zone
+public class CrossingEvent {
+    private final Track track;
+    private final CrossingGeometry geometry;
+    private final long nanos;
+
+    CrossingEvent(Track track, CrossingGeometry geometry, long nanos) {
+        this.track = track;
+        this.geometry = geometry;
+        this.nanos = nanos;
+    }
+
+    public Track getTrack() {
+        return track;
+    }
+
+    public CrossingGeometry getGeometry() {
+        return geometry;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+}
@@ -0,0 +1,97 @@
+package com.arthroverse.vf17.crossing;
+
+// A named line or zone objects are counted against. Points are frame pixel
+// coordinates (x0, y0, x1, y1, ...). The bounding box is what CrossingEngine uses to
+// find the candidates for a movement without testing every geometry.
+public abstract class CrossingGeometry {
+
+    // Lines use ANY/POSITIVE/NEGATIVE, zones ANY/ENTER/EXIT. POSITIVE is crossing onto
+    // the right-hand side of the line when walking from its first point to its
+    // second on screen, NEGATIVE the opposite.
+    public enum Direction {
+        ANY, POSITIVE, NEGATIVE, ENTER, EXIT
+    }
+
+    final String name;
+    final Direction direction;
+    final float[] points;
+    final float minX, minY, maxX, maxY;
+    int index;
+
+    CrossingGeometry(String name, Direction direction, float[] points) {
+        this.name = name;
+        this.direction = direction;
+        this.points = points;
+        float x0 = Float.MAX_VALUE, y0 = Float.MAX_VALUE;
+        float x1 = -Float.MAX_VALUE, y1 = -Float.MAX_VALUE;
+        for (int i = 0; i < points.length; i += 2) {
+            x0 = Math.min(x0, points[i]);
+            x1 = Math.max(x1, points[i]);
+            y0 = Math.min(y0, points[i + 1]);
+            y1 = Math.max(y1, points[i + 1]);
+        }
+        minX = x0;
+        minY = y0;
+        maxX = x1;
+        maxY = y1;
+    }
+
+    // Whether moving from (px, py) to (cx, cy) counts as a crossing in this geometry's direction
+    abstract boolean crossed(float px, float py, float cx, float cy);
+
+    // Whether a point is on the side objects end up on after a counted crossing
+    public abstract boolean isOnTargetSide(float x, float y);
+
+    // Zones are closed polygons, lines are open
+    public abstract boolean isClosed();
+
+    // Seconds until a point moving at (vx, vy) px/s first touches one of the edges,
+    // infinity if it never does
+    public double timeToReach(float x, float y, float vx, float vy) {
+        double best = Double.POSITIVE_INFINITY;
+        int n = points.length / 2;
+        int edges = isClosed() ? n : n - 1;
+        for (int e = 0; e < edges; e++) {
+            int a = e * 2;
+            int b = ((e + 1) % n) * 2;
+            float ex = points[b] - points[a];
+            float ey = points[b + 1] - points[a + 1];
+            float denom = vx * ey - vy * ex;
+            if (denom == 0) {
+                continue;
+            }
+            float wx = points[a] - x;
+            float wy = points[a + 1] - y;
+            double t = (wx * ey - wy * ex) / denom;
+            double u = (wx * vy - wy * vx) / denom;
+            if (t > 0 && u >= 0 && u <= 1) {
+                best = Math.min(best, t);
+            }
+        }
+        return best;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public int getPointCount() {
+        return points.length / 2;
+    }
+
+    public float getX(int point) {
+        return points[point * 2];
+    }
+
+    public float getY(int point) {
+        return points[point * 2 + 1];
+    }
+
+    public int getIndex() {
+        return index;
+    }
+}
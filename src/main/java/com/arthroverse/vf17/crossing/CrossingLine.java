@@ -0,0 +1,58 @@
+package com.arthroverse.vf17.crossing;
+
+// Line segment from (x0, y0) to (x1, y1). A move counts when it changes side and
+// the point where it meets the line lies within the segment.
+public class CrossingLine extends CrossingGeometry {
+    private final float ax, ay, dx, dy;
+    private final float lengthSquared;
+
+    public CrossingLine(String name, Direction direction, float x0, float y0, float x1, float y1) {
+        super(name, direction, new float[]{x0, y0, x1, y1});
+        if (direction == Direction.ENTER || direction == Direction.EXIT) {
+            throw new IllegalArgumentException("Line " + name + " can't use zone direction " + direction);
+        }
+        ax = x0;
+        ay = y0;
+        dx = x1 - x0;
+        dy = y1 - y0;
+        lengthSquared = dx * dx + dy * dy;
+        if (lengthSquared == 0) {
+            throw new IllegalArgumentException("Line " + name + " has zero length");
+        }
+    }
+
+    // > 0 on the right-hand side as seen on screen (image y grows downwards)
+    private float side(float x, float y) {
+        return dx * (y - ay) - dy * (x - ax);
+    }
+
+    @Override
+    boolean crossed(float px, float py, float cx, float cy) {
+        float before = side(px, py);
+        float after = side(cx, cy);
+        boolean wasPositive = before > 0;
+        boolean isPositive = after > 0;
+        if (wasPositive == isPositive) {
+            return false;
+        }
+        if (direction == Direction.POSITIVE && !isPositive || direction == Direction.NEGATIVE && isPositive) {
+            return false;
+        }
+        float t = before / (before - after);
+        float ix = px + t * (cx - px);
+        float iy = py + t * (cy - py);
+        float u = ((ix - ax) * dx + (iy - ay) * dy) / lengthSquared;
+        return u >= 0 && u <= 1;
+    }
+
+    @Override
+    public boolean isOnTargetSide(float x, float y) {
+        boolean positive = side(x, y) > 0;
+        return direction == Direction.NEGATIVE ? !positive : positive;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return false;
+    }
+}
@@ -0,0 +1,55 @@
+package com.arthroverse.vf17.crossing;
+
+// Polygonal zone. A move counts when it enters and/or leaves the polygon depending
+// on the direction.
+public class CrossingZone extends CrossingGeometry {
+
+    public CrossingZone(String name, Direction direction, float[] points) {
+        super(name, direction, points);
+        if (direction == Direction.POSITIVE || direction == Direction.NEGATIVE) {
+            throw new IllegalArgumentException("Zone " + name + " can't use line direction " + direction);
+        }
+        if (points.length < 6 || points.length % 2 != 0) {
+            throw new IllegalArgumentException("Zone " + name + " needs at least three points");
+        }
+    }
+
+    // Even-odd ray casting, bounding box first
+    public boolean contains(float x, float y) {
+        if (x < minX || x > maxX || y < minY || y > maxY) {
+            return false;
+        }
+        boolean inside = false;
+        int n = points.length / 2;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            float xi = points[i * 2], yi = points[i * 2 + 1];
+            float xj = points[j * 2], yj = points[j * 2 + 1];
+            if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    @Override
+    boolean crossed(float px, float py, float cx, float cy) {
+        boolean wasInside = contains(px, py);
+        boolean isInside = contains(cx, cy);
+        if (wasInside == isInside) {
+            return false;
+        }
+        return direction == Direction.ANY
+                || direction == Direction.ENTER && isInside
+                || direction == Direction.EXIT && !isInside;
+    }
+
+    @Override
+    public boolean isOnTargetSide(float x, float y) {
+        return direction == Direction.EXIT ? !contains(x, y) : contains(x, y);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return true;
+    }
+}
@@ -0,0 +1,107 @@
+package com.arthroverse.vf17.detection;
+
+import com.arthroverse.vf17.display.FrameDisplayBuffer;
+import com.arthroverse.vf17.source.FrameSource;
+import com.arthroverse.vf17.source.SessionRecorder;
+import com.arthroverse.vf17.tracking.ObjectTracker;
+import org.opencv.core.Rect;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Per-lane state for DetectionHandler: the frame source, the latest frame and
+// detections, and the object tracks used for line crossing on this lane.
+public class CameraStream {
+    final int id;
+    final String sourceSpec;
+    final FrameSource source;
+    // Null unless -Dvf17.record.dir is set
+    SessionRecorder recorder;
+    // Replaced only when the camera's frame size changes
+    volatile FrameDisplayBuffer displayBuffer;
+    final AtomicReference<List<YOLOv8Detector.Detection>> latestDetections = new AtomicReference<>();
+
+    // Per-object tracks carry where each object was last measured, for crossing checks
+    final ObjectTracker tracker = new ObjectTracker();
+
+    // Null when motion gating is disabled
+    MotionGate motionGate;
+
+    // Picks the model input size per inference from the tracked object sizes
+    InputSizePolicy inputSizePolicy;
+
+    // Crop grades of this lane's tracks, null unless the detection cascade is enabled
+    TrackGradeCache gradeCache;
+
+    // Regions fed to the detector, worked out from the first frame; null means the whole frame
+    List<Rect> inferenceRegions;
+    boolean inferenceRegionsResolved = false;
+
+    // Only written by the capture thread
+    volatile boolean capturing = false;
+    volatile long frameCount = 0;
+    int framesSinceInference = 0;
+    volatile double currentFps = 0;
+
+    // Scheduler inputs refreshed after each inference
+    volatile int trackCount = 0;
+    volatile double timeToLineSeconds = Double.POSITIVE_INFINITY;
+    volatile long timeToLineMeasuredNanos = 0;
+    // Shorter side of the smallest live track in frame pixels, +inf with no tracks
+    volatile float smallestTrackSide = Float.POSITIVE_INFINITY;
+
+    CameraStream(int id, String sourceSpec, FrameSource source) {
+        this.id = id;
+        this.sourceSpec = sourceSpec;
+        this.source = source;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getSourceSpec() {
+        return sourceSpec;
+    }
+
+    public FrameSource getSource() {
+        return source;
+    }
+
+    public FrameDisplayBuffer getDisplayBuffer() {
+        return displayBuffer;
+    }
+
+    public List<YOLOv8Detector.Detection> getLatestDetections() {
+        return latestDetections.get();
+    }
+
+    public ObjectTracker getTracker() {
+        return tracker;
+    }
+
+    public InputSizePolicy getInputSizePolicy() {
+        return inputSizePolicy;
+    }
+
+    public TrackGradeCache getGradeCache() {
+        return gradeCache;
+    }
+
+    public MotionGate getMotionGate() {
+        return motionGate;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public double getCurrentFps() {
+        return currentFps;
+    }
+
+    // False once the capture loop has ended, e.g. a video file ran out or the camera was stopped
+    public boolean isCapturing() {
+        return capturing;
+    }
+}
@@ -0,0 +1,229 @@
+package com.arthroverse.vf17.detection;
+
+import ai.onnxruntime.*;
+import com.arthroverse.vf17.metrics.LatencyHistogram;
+import com.arthroverse.vf17.metrics.Metrics;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.opencv.core.*;
+import org.opencv.imgproc.Imgproc;
+
+// Second stage of the detection cascade: grades one object crop, cut from the
+// full-resolution frame, into one of the detector's classes (e.g. a YOLOv8-cls
+// export with input [1, 3, S, S] and output [1, classes]). The classifier's own
+// classes are matched to ours by the "names" metadata the exporter writes; without
+// it the output must be in our class order.
+public class CropClassifier {
+    private static final LatencyHistogram CLASSIFY_LATENCY = Metrics.stage("classify");
+    private static final int DEFAULT_INPUT_SIZE = 224;
+    private static final Pattern NAME_ENTRY = Pattern.compile("(\\d+)\\s*:\\s*['\"]([^'\"]*)['\"]");
+    // Context around the box, as a fraction of its size per side
+    private static final float CROP_MARGIN =
+            Float.parseFloat(System.getProperty("vf17.cascade.cropMargin", "0.1"));
+
+    private final OrtSession session;
+    private final int inputSize;
+    private final OnnxJavaType inputType;
+    private final OnnxJavaType outputType;
+    // Classifier output index -> our class id, -1 for classes we don't have
+    private final int[] classMap;
+    private final PixelNormalizer normalizer = PixelNormalizer.create();
+
+    // Reused for every crop, so classify must only be called from one thread at a time
+    private final Mat resized;
+    private final byte[] pixels;
+    private final ByteBuffer inputBytes;
+    private final ByteBuffer floatInput;
+    private final OnnxTensor inputTensor;
+    private final Map<String, OnnxTensor> inputs;
+    private final Rect crop = new Rect();
+    private float[] scores;
+
+    private int lastClassId;
+    private float lastConfidence;
+
+    public CropClassifier(String modelPath, ExecutionProfile profile, String[] classNames) throws OrtException {
+        OrtEnvironment env = profile.createEnvironment();
+        try (OrtSession.SessionOptions opts = profile.createSessionOptions()) {
+            session = env.createSession(modelPath, opts);
+        }
+        String inputName = session.getInputNames().iterator().next();
+        String outputName = session.getOutputNames().iterator().next();
+        TensorInfo inputInfo = (TensorInfo) session.getInputInfo().get(inputName).getInfo();
+        TensorInfo outputInfo = (TensorInfo) session.getOutputInfo().get(outputName).getInfo();
+        inputType = inputInfo.type;
+        outputType = outputInfo.type;
+        if (!TensorPrecision.isSupported(inputType)
+                || (outputType != OnnxJavaType.FLOAT && outputType != OnnxJavaType.FLOAT16)) {
+            session.close();
+            throw new IllegalArgumentException(modelPath + ": unsupported tensor types "
+                    + inputType + " -> " + outputType);
+        }
+        long[] inputShape = inputInfo.getShape();
+        inputSize = inputShape[3] > 0 ? (int) inputShape[3]
+                : Integer.getInteger("vf17.cascade.classifierSize", DEFAULT_INPUT_SIZE);
+        long[] outputShape = outputInfo.getShape();
+        classMap = mapClasses(modelPath, session.getMetadata().getCustomMetadata().get("names"),
+                outputShape[outputShape.length - 1], classNames);
+
+        resized = new Mat(inputSize, inputSize, CvType.CV_8UC3);
+        int planeSize = inputSize * inputSize;
+        pixels = new byte[3 * planeSize];
+        inputBytes = ByteBuffer.allocateDirect(3 * planeSize * inputType.size).order(ByteOrder.nativeOrder());
+        if (inputType == OnnxJavaType.FLOAT) {
+            floatInput = inputBytes;
+        } else if (inputType == OnnxJavaType.FLOAT16) {
+            floatInput = ByteBuffer.allocateDirect(3 * planeSize * Float.BYTES).order(ByteOrder.nativeOrder());
+        } else {
+            floatInput = null;
+        }
+        inputTensor = OnnxTensor.createTensor(env, inputBytes, new long[]{1, 3, inputSize, inputSize}, inputType);
+        inputs = Collections.singletonMap(inputName, inputTensor);
+
+        System.out.println("[ort] " + modelPath + ": classifier " + inputSize + "x" + inputSize
+                + ", tensors=" + inputType + "->" + outputType + ", classes=" + classMap.length);
+    }
+
+    private static int[] mapClasses(String modelPath, String names, long outputClasses, String[] classNames) {
+        if (names == null) {
+            if (outputClasses != classNames.length) {
+                throw new IllegalArgumentException(modelPath + ": " + outputClasses + " classes without "
+                        + "names metadata, expected " + classNames.length);
+            }
+            int[] identity = new int[classNames.length];
+            Arrays.setAll(identity, i -> i);
+            return identity;
+        }
+        int[] map = new int[(int) outputClasses];
+        Arrays.fill(map, -1);
+        Matcher matcher = NAME_ENTRY.matcher(names);
+        while (matcher.find()) {
+            int index = Integer.parseInt(matcher.group(1));
+            String name = matcher.group(2);
+            for (int c = 0; c < classNames.length; c++) {
+                if (classNames[c].equalsIgnoreCase(name)) {
+                    if (index < map.length) {
+                        map[index] = c;
+                    }
+                    break;
+                }
+            }
+            if (index < map.length && map[index] < 0) {
+                System.out.println("[ort] " + modelPath + ": classifier class '" + name + "' is never reported");
+            }
+        }
+        return map;
+    }
+
+    // Grades the box (frame coordinates) of frame. Returns false if the box is
+    // outside the frame or the best class is one we don't have; otherwise the result
+    // is available from getLastClassId/getLastConfidence.
+    public boolean classify(Mat frame, float x1, float y1, float x2, float y2) throws OrtException {
+        float marginX = (x2 - x1) * CROP_MARGIN;
+        float marginY = (y2 - y1) * CROP_MARGIN;
+        int left = Math.max(0, (int) (x1 - marginX));
+        int top = Math.max(0, (int) (y1 - marginY));
+        int right = Math.min(frame.cols(), (int) Math.ceil(x2 + marginX));
+        int bottom = Math.min(frame.rows(), (int) Math.ceil(y2 + marginY));
+        if (right - left < 2 || bottom - top < 2) {
+            return false;
+        }
+
+        long start = System.nanoTime();
+        crop.x = left;
+        crop.y = top;
+        crop.width = right - left;
+        crop.height = bottom - top;
+        Mat region = frame.submat(crop);
+        try {
+            Imgproc.resize(region, resized, resized.size(), 0, 0, Imgproc.INTER_AREA);
+        } finally {
+            region.release();
+        }
+        resized.get(0, 0, pixels);
+        int planeSize = inputSize * inputSize;
+        if (floatInput == null) {
+            TensorPrecision.toQuantizedPlanes(pixels, inputBytes, planeSize, inputType == OnnxJavaType.INT8);
+        } else {
+            normalizer.normalize(pixels, floatInput, planeSize);
+            if (inputType == OnnxJavaType.FLOAT16) {
+                TensorPrecision.toFloat16(floatInput, inputBytes, 3 * planeSize);
+            }
+        }
+
+        try (OrtSession.Result results = session.run(inputs)) {
+            // Also upcasts FLOAT16
+            FloatBuffer output = ((OnnxTensor) results.get(0)).getFloatBuffer();
+            if (scores == null || scores.length != output.remaining()) {
+                scores = new float[output.remaining()];
+            }
+            output.get(scores);
+        }
+        softmaxIfLogits(scores);
+        CLASSIFY_LATENCY.recordSince(start);
+
+        int best = 0;
+        for (int i = 1; i < scores.length; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (best >= classMap.length || classMap[best] < 0) {
+            return false;
+        }
+        lastClassId = classMap[best];
+        lastConfidence = scores[best];
+        return true;
+    }
+
+    // YOLOv8-cls exports end in a softmax; other classifiers may hand out raw logits
+    private static void softmaxIfLogits(float[] values) {
+        float sum = 0;
+        float max = Float.NEGATIVE_INFINITY;
+        boolean probabilities = true;
+        for (float v : values) {
+            probabilities &= v >= 0 && v <= 1;
+            sum += v;
+            max = Math.max(max, v);
+        }
+        if (probabilities && Math.abs(sum - 1) < 0.01f) {
+            return;
+        }
+        sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) Math.exp(values[i] - max);
+            sum += values[i];
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i] /= sum;
+        }
+    }
+
+    public int getLastClassId() {
+        return lastClassId;
+    }
+
+    public float getLastConfidence() {
+        return lastConfidence;
+    }
+
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    public long getMatBytes() {
+        return Metrics.matBytes(resized);
+    }
+
+    public void close() throws OrtException {
+        inputTensor.close();
+        resized.release();
+        session.close();
+    }
+}
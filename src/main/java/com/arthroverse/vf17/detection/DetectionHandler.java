@@ -1,19 +1,37 @@
 package com.arthroverse.vf17.detection;
 
+import ai.onnxruntime.OrtException;
 import org.opencv.core.*;
-import org.opencv.imgproc.Imgproc;
-import org.opencv.videoio.VideoCapture;
-import org.opencv.videoio.Videoio;
 
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
-
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import com.arthroverse.vf17.crossing.CrossingEngine;
+import com.arthroverse.vf17.crossing.CrossingEvent;
+import com.arthroverse.vf17.display.FrameDisplayBuffer;
+import com.arthroverse.vf17.metrics.LatencyHistogram;
+import com.arthroverse.vf17.metrics.Metrics;
+import com.arthroverse.vf17.metrics.MetricsServer;
+import com.arthroverse.vf17.pipeline.DetectionPipeline;
+import com.arthroverse.vf17.pipeline.FrameJob;
+import com.arthroverse.vf17.pipeline.InferenceScheduler;
+import com.arthroverse.vf17.pipeline.PipelineStage;
+import com.arthroverse.vf17.pipeline.QueuePolicy;
+import com.arthroverse.vf17.source.FrameSource;
+import com.arthroverse.vf17.source.FrameSources;
+import com.arthroverse.vf17.source.SessionRecorder;
+import com.arthroverse.vf17.tracking.Track;
+import com.arthroverse.vf17.trigger.TriggerChannel;
 import com.arthroverse.vf17.uicontrollers.HomepageUIController;
+import com.arthroverse.vf17.worker.WorkerPool;
 
 public class DetectionHandler {
 
@@ -37,52 +55,259 @@ public class DetectionHandler {
             "rottenbellpepper"
     };
 
-    // Virtual line configuration
-    private static final int VIRTUAL_LINE_X = 1200; // Vertical line at center (860/2)
-    private static final boolean USE_VERTICAL_LINE = true; // true for vertical, false for horizontal
-    private static final int VIRTUAL_LINE_Y = 287; // Horizontal line at center (574/2)
-
-    // Tracking which objects have passed the line
-    private final Map<String, Boolean> hasPassed = new HashMap<>();
-    private final Set<String> alreadyTriggered = new HashSet<>();
-    private static final long COOLDOWN_MS = 3000; // 3 second cooldown before same class can trigger again
-
+    // Pipeline configuration, e.g. -Dvf17.pipeline.policy=BACKPRESSURE
+    private static final QueuePolicy PIPELINE_POLICY = QueuePolicy.valueOf(
+            System.getProperty("vf17.pipeline.policy", QueuePolicy.DROP_OLDEST.name()));
+    private static final int PIPELINE_QUEUE_CAPACITY = Integer.getInteger("vf17.pipeline.queueCapacity", 2);
+
+    // Frame sources to open, one conveyor lane each, e.g. -Dvf17.cameras=0,1,2,3 or
+    // -Dvf17.sources=0,video:/data/shift.mp4?paced,synthetic (see FrameSources).
+    // Frames from different lanes that reach inference within the batch window
+    // share one batched session.run.
+    private static final String SOURCES = System.getProperty("vf17.sources",
+            System.getProperty("vf17.cameras", "0"));
+    // Records every lane's frames for later replay, one sub-directory per lane
+    private static final String RECORD_DIR = System.getProperty("vf17.record.dir");
+    private static final long RECORD_MAX_FRAMES = Long.getLong("vf17.record.maxFrames", 0);
+    private static final int MAX_BATCH = Integer.getInteger("vf17.batch.max", 4);
+    private static final long BATCH_WINDOW_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Integer.getInteger("vf17.batch.windowMs", 5));
+
+    // Inference scheduling. vf17.frameSkip > 0 pins a fixed skip, otherwise the
+    // skip adapts between minSkip and maxSkip within the CPU budget (fraction of one core).
+    private static final int FIXED_FRAME_SKIP = Integer.getInteger("vf17.frameSkip", 0);
+    private static final double CPU_BUDGET =
+            Double.parseDouble(System.getProperty("vf17.scheduler.cpuBudget", "0.6"));
+    private static final int MIN_FRAME_SKIP = Integer.getInteger("vf17.scheduler.minSkip", 1);
+    private static final int MAX_FRAME_SKIP = Integer.getInteger("vf17.scheduler.maxSkip", 8);
+
+    // Motion gating in front of inference, e.g. -Dvf17.gate.roi=200,0,460,574 (x,y,w,h)
+    private static final boolean GATE_ENABLED =
+            Boolean.parseBoolean(System.getProperty("vf17.gate.enabled", "true"));
+    private static final String GATE_ROI = System.getProperty("vf17.gate.roi", "");
+    private static final double GATE_PIXEL_THRESHOLD =
+            Double.parseDouble(System.getProperty("vf17.gate.pixelThreshold", "25"));
+    private static final double GATE_MIN_CHANGED =
+            Double.parseDouble(System.getProperty("vf17.gate.minChanged", "0.002"));
+    private static final long GATE_REFRESH_MS = Long.getLong("vf17.gate.refreshMs", 2000);
+
+    // Region-of-interest inference: only a band of +/- ROI_BAND px around the virtual
+    // line is fed to the model, optionally split into ROI_TILES overlapping tiles along
+    // the band. 0 disables it and the whole frame is used.
+    private static final int ROI_BAND = Integer.getInteger("vf17.roi.band", 0);
+    private static final int ROI_TILES = Math.max(1, Integer.getInteger("vf17.roi.tiles", 1));
+    private static final double ROI_TILE_OVERLAP = 0.1;
+
+    // Per-frame input size: the smallest of the detector's sizes (vf17.input.sizes) at
+    // which every tracked object still spans MIN_OBJECT_PIXELS, with the full size run
+    // every INPUT_PROBE_INTERVAL inferences to pick up new small objects
+    private static final float INPUT_MIN_OBJECT_PIXELS =
+            Float.parseFloat(System.getProperty("vf17.input.minObjectPixels", "32"));
+    private static final int INPUT_PROBE_INTERVAL = Integer.getInteger("vf17.input.probeInterval", 15);
+
+    // Inference service mode: -Dvf17.workers=N runs the detector in N child processes
+    // (see WorkerPool) instead of in this one; 0 keeps it in-process
+    private static final int WORKERS = Integer.getInteger("vf17.workers", 0);
+
+    // Prometheus text endpoint on 127.0.0.1, e.g. -Dvf17.metrics.port=9417; 0 keeps it off.
+    // Stage latencies and frame counters are also on JMX (-Dvf17.metrics.jmx=false to skip).
+    private static final int METRICS_PORT = Integer.getInteger("vf17.metrics.port", 0);
+    private static final LatencyHistogram CAPTURE_LATENCY = Metrics.stage("capture");
+    private static final LatencyHistogram CROSSING_LATENCY = Metrics.stage("crossing");
+    private static final LatencyHistogram DISPLAY_LATENCY = Metrics.stage("display");
+    private static final LongAdder CAPTURED_FRAMES = Metrics.frames("captured");
+    private static final LongAdder SKIPPED_FRAMES = Metrics.frames("skipped");
+    private static final LongAdder GATED_FRAMES = Metrics.frames("gated");
+    private static final LongAdder INFERRED_FRAMES = Metrics.frames("inferred");
+
+    private static final String MODEL_PATH = "src/main/resources/model/best.onnx";
+
+    // Two-stage cascade, on when a classifier is given, e.g.
+    //   -Dvf17.cascade.classifier=model/grade-cls.onnx -Dvf17.cascade.detector=model/produce-320.onnx
+    // The detector (the main model unless vf17.cascade.detector is set) only has to
+    // localise; each tracked item's crop is graded by the classifier at most
+    // vf17.cascade.maxGrades times (see TrackGradeCache).
+    private static final String CASCADE_CLASSIFIER = System.getProperty("vf17.cascade.classifier");
+    private static final String CASCADE_DETECTOR = System.getProperty("vf17.cascade.detector", MODEL_PATH);
+    private static final int CASCADE_MAX_GRADES = Integer.getInteger("vf17.cascade.maxGrades", 2);
+    private static final float CASCADE_REGRADE_AREA_CHANGE =
+            Float.parseFloat(System.getProperty("vf17.cascade.regradeAreaChange", "0.5"));
+    private static final float CASCADE_REGRADE_BELOW =
+            Float.parseFloat(System.getProperty("vf17.cascade.regradeBelowConfidence", "0.6"));
+    // Entries of tracks the tracker dropped without them passing a line
+    private static final long CASCADE_STALE_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final boolean MODEL_CACHE_ENABLED =
+            Boolean.parseBoolean(System.getProperty("vf17.model.cache", "true"));
+    // Inferences run on a blank frame before going live, so the first real crossing
+    // doesn't pay ORT's lazy initialisation
+    private static final int WARMUP_RUNS = Integer.getInteger("vf17.warmupRuns", 3);
+
+    // Exactly one of detector and workerPool is set
     private YOLOv8Detector detector;
-    private VideoCapture camera;
-    private AtomicReference<BufferedImage> latestFrame = new AtomicReference<>();
-    private AtomicReference<List<YOLOv8Detector.Detection>> latestDetections = new AtomicReference<>();
-    private ExecutorService inferenceExecutor = Executors.newSingleThreadExecutor();
-    private ExecutorService cameraExecutor = Executors.newSingleThreadExecutor();
+    private WorkerPool workerPool;
+    // Null unless the cascade is enabled
+    private CropClassifier classifier;
+    // Reject triggers for the sorting arm, null unless vf17.trigger.sinks is set
+    private TriggerChannel triggers;
+    // Lines and zones objects are counted against, see CrossingEngine for the config
+    private final CrossingEngine crossingEngine = CrossingEngine.load();
+    private long modelLoadMillis;
+    private long warmUpMillis;
+    private volatile long timeToFirstDetectionMillis = -1;
+    private volatile long lastInferenceNanos = 0;
+    private MetricsServer metricsServer;
+    private final List<CameraStream> streams = new ArrayList<>();
+    private DetectionPipeline pipeline;
+    private InferenceScheduler scheduler;
+    private ExecutorService cameraExecutor;
     private volatile boolean isRunning = false;
-    private volatile boolean isInferenceRunning = false;
-    private int frameSkip = 2;
-    private int frameCount = 0;
-    private double currentFps = 0;
+    private int activeStreams = 0;
 
     public DetectionHandler() throws Exception {
+        this(message -> { });
+    }
+
+    // Heavy start-up work (OpenCV natives, ORT session, warm-up) happens here, so
+    // callers run it off the UI thread and show the progress messages
+    public DetectionHandler(Consumer<String> progress) throws Exception {
+        progress.accept("Loading OpenCV...");
         nu.pattern.OpenCV.loadLocally();
-        detector = new YOLOv8Detector("src/main/resources/model/best.onnx");
+
+        progress.accept("Loading detection model...");
+        long start = System.nanoTime();
+        ExecutionProfile profile = ExecutionProfile.load();
+        String detectorPath = CASCADE_CLASSIFIER != null ? CASCADE_DETECTOR : MODEL_PATH;
+        if (WORKERS > 0) {
+            // Workers load and warm up the model themselves
+            progress.accept("Starting " + WORKERS + " inference workers...");
+            workerPool = new WorkerPool(detectorPath, WORKERS);
+        } else {
+            detector = new YOLOv8Detector(detectorPath, profile, MODEL_CACHE_ENABLED);
+        }
+        if (CASCADE_CLASSIFIER != null) {
+            classifier = new CropClassifier(CASCADE_CLASSIFIER, profile, ALL_CLASSES);
+        }
+        triggers = TriggerChannel.load(ALL_CLASSES);
+        int[] inputSizes = workerPool != null ? workerPool.getInputSizes() : detector.getInputSizes();
+        modelLoadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        progress.accept("Warming up...");
+        start = System.nanoTime();
+        warmUp();
+        warmUpMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.printf("[startup] model load %d ms, warm-up %d ms (%d runs)%n",
+                modelLoadMillis, warmUpMillis, WARMUP_RUNS);
+
+        for (String spec : SOURCES.split(",")) {
+            CameraStream stream = new CameraStream(streams.size(), spec.trim(), FrameSources.fromSpec(spec));
+            if (GATE_ENABLED) {
+                stream.motionGate = new MotionGate(parseRect(GATE_ROI), GATE_PIXEL_THRESHOLD,
+                        GATE_MIN_CHANGED, GATE_REFRESH_MS);
+            }
+            stream.inputSizePolicy = new InputSizePolicy(inputSizes,
+                    INPUT_MIN_OBJECT_PIXELS, INPUT_PROBE_INTERVAL);
+            if (classifier != null) {
+                stream.gradeCache = new TrackGradeCache(classifier, stream.tracker, CASCADE_MAX_GRADES,
+                        CASCADE_REGRADE_AREA_CHANGE, CASCADE_REGRADE_BELOW, CASCADE_STALE_NANOS);
+            }
+            streams.add(stream);
+        }
+    }
+
+    private void warmUp() throws Exception {
+        Mat blank = new Mat(574, 860, CvType.CV_8UC3, new Scalar(114, 114, 114));
+        try {
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                if (detector != null) {
+                    detector.detect(blank);
+                }
+                if (classifier != null) {
+                    classifier.classify(blank, 0, 0, blank.cols(), blank.rows());
+                }
+            }
+        } finally {
+            blank.release();
+        }
+    }
+
+    public long getModelLoadMillis() {
+        return modelLoadMillis;
+    }
+
+    public long getWarmUpMillis() {
+        return warmUpMillis;
+    }
+
+    // JVM start to the first inference on a live frame, -1 until it happened
+    public long getTimeToFirstDetectionMillis() {
+        return timeToFirstDetectionMillis;
+    }
+
+    private static Rect parseRect(String value) {
+        if (value.isBlank()) {
+            return null;
+        }
+        String[] parts = value.split(",");
+        return new Rect(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+                Integer.parseInt(parts[2].trim()), Integer.parseInt(parts[3].trim()));
     }
 
     public void startCamera() {
         if (isRunning) {
             return;
         }
-        camera = new VideoCapture(0);
 
-        if (!camera.isOpened()) {
+        List<CameraStream> opened = new ArrayList<>();
+        for (CameraStream stream : streams) {
+            if (!stream.source.open()) {
+                System.out.printf("Can't open frame source %s%n", stream.sourceSpec);
+                continue;
+            }
+            if (RECORD_DIR != null) {
+                try {
+                    stream.recorder = new SessionRecorder(
+                            Paths.get(RECORD_DIR, "stream-" + stream.id), RECORD_MAX_FRAMES);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            opened.add(stream);
+        }
+
+        if (opened.isEmpty()) {
             return;
         }
 
-        camera.set(Videoio.CAP_PROP_FRAME_WIDTH, 860);
-        camera.set(Videoio.CAP_PROP_FRAME_HEIGHT, 574);
+        try {
+            pipeline = workerPool != null
+                    ? new DetectionPipeline(workerPool, opened.size(), ROI_TILES, PIPELINE_QUEUE_CAPACITY,
+                            PIPELINE_POLICY, this::handleInferenceResult)
+                    : new DetectionPipeline(detector, opened.size(), ROI_TILES, PIPELINE_QUEUE_CAPACITY,
+                            PIPELINE_POLICY, MAX_BATCH, BATCH_WINDOW_NANOS, this::handleInferenceResult);
+        } catch (Exception e) {
+            e.printStackTrace();
+            releaseCameras();
+            return;
+        }
+        pipeline.start();
+        registerGauges(opened);
+        scheduler = new InferenceScheduler(streams.size(), CPU_BUDGET,
+                MIN_FRAME_SKIP, MAX_FRAME_SKIP, FIXED_FRAME_SKIP);
+        activeStreams = opened.size();
 
         isRunning = true;
-        cameraExecutor.submit(this::runDetectionLoop);
+        cameraExecutor = Executors.newFixedThreadPool(opened.size());
+        for (CameraStream stream : opened) {
+            cameraExecutor.submit(() -> runDetectionLoop(stream));
+        }
     }
 
     public void stopCamera() {
         isRunning = false;
+        if (cameraExecutor == null) {
+            cleanup();
+            return;
+        }
         try {
             cameraExecutor.shutdown();
             if (!cameraExecutor.awaitTermination(2, TimeUnit.SECONDS)) {
@@ -95,162 +320,198 @@ public class DetectionHandler {
         cleanup();
     }
 
-    public BufferedImage getLatestFrame() {
-        return latestFrame.get();
+    public FrameDisplayBuffer getDisplayBuffer() {
+        return streams.get(0).getDisplayBuffer();
     }
 
     public List<YOLOv8Detector.Detection> getLatestDetections() {
-        return latestDetections.get();
+        return streams.get(0).getLatestDetections();
     }
 
     public double getCurrentFps() {
-        return currentFps;
+        return streams.get(0).getCurrentFps();
     }
 
-    public boolean isRunning() {
-        return isRunning;
+    public boolean isCapturing() {
+        return streams.get(0).isCapturing();
     }
 
-    public static String getClassName(int classId) {
-        if (classId >= 0 && classId < ALL_CLASSES.length) {
-            return ALL_CLASSES[classId];
-        }
-        return "Unknown";
+    // Track boxes extrapolated to a displayed frame's capture time, for the overlay
+    // layer. Tracks are updated on the source's clock (virtual for playback and replay),
+    // so predicting against wall-clock time would push the boxes off the frame.
+    public List<YOLOv8Detector.Detection> getOverlayDetections(long captureNanos) {
+        return streams.get(0).tracker.predict(captureNanos);
     }
 
-    private boolean hasPassed(YOLOv8Detector.Detection det) {
-        if (USE_VERTICAL_LINE) {
-            // Object has passed if its center is to the left of the line
-            float centerX = (det.x1 + det.x2) / 2;
-            return centerX < VIRTUAL_LINE_X;
-        } else {
-            // Object has passed if its center is above the line
-            float centerY = (det.y1 + det.y2) / 2;
-            return centerY < VIRTUAL_LINE_Y;
-        }
+    public CrossingEngine getCrossingEngine() {
+        return crossingEngine;
     }
 
-    private boolean shouldTriggerOutput(String className, boolean currentlyPassed) {
-        String triggerId = className;
+    public static int getClassCount() {
+        return ALL_CLASSES.length;
+    }
 
-        if (alreadyTriggered.contains(triggerId)) {
-            return false;
-        }
+    public List<CameraStream> getStreams() {
+        return Collections.unmodifiableList(streams);
+    }
 
-        Boolean previouslyPassed = hasPassed.get(className);
+    public boolean isRunning() {
+        return isRunning;
+    }
 
-        hasPassed.put(className, currentlyPassed);
+    public DetectionPipeline getPipeline() {
+        return pipeline;
+    }
 
-        if (previouslyPassed != null && !previouslyPassed && currentlyPassed) {
-            alreadyTriggered.add(triggerId);
+    // Buffers and tensors the detector has created; flat in steady state, so a soak run
+    // that sees it climb has found a per-frame allocation
+    public long getDetectorAllocations() {
+        YOLOv8Detector current = detector;
+        return current == null ? 0 : current.getAllocationCount();
+    }
 
-            new Thread(() -> {
-                try {
-                    Thread.sleep(COOLDOWN_MS);
-                    alreadyTriggered.remove(triggerId);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }).start();
+    public InferenceScheduler getScheduler() {
+        return scheduler;
+    }
 
-            return true;
+    public static String getClassName(int classId) {
+        if (classId >= 0 && classId < ALL_CLASSES.length) {
+            return ALL_CLASSES[classId];
         }
+        return "Unknown";
+    }
 
-        return false;
+    public boolean hasPassed(YOLOv8Detector.Detection det) {
+        return crossingEngine.hasPassed((det.x1 + det.x2) / 2, (det.y1 + det.y2) / 2);
     }
 
-    private void drawVirtualLine(Mat frame) {
-        Scalar lineColor = new Scalar(255, 0, 0); // Red line
-        int thickness = 3;
+    private List<Rect> computeInferenceRegions(int frameWidth, int frameHeight) {
+        if (ROI_BAND <= 0) {
+            return null;
+        }
+        // Band around every configured line and zone
+        float[] bounds = crossingEngine.getBounds();
+        int x1 = Math.max(0, (int) bounds[0] - ROI_BAND);
+        int y1 = Math.max(0, (int) bounds[1] - ROI_BAND);
+        int x2 = Math.min(frameWidth, (int) Math.ceil(bounds[2]) + ROI_BAND);
+        int y2 = Math.min(frameHeight, (int) Math.ceil(bounds[3]) + ROI_BAND);
+        if (x2 - x1 < 2 || y2 - y1 < 2) {
+            System.out.printf("ROI band around the crossing lines is outside the %dx%d frame, using the whole frame%n",
+                    frameWidth, frameHeight);
+            return null;
+        }
 
-        if (USE_VERTICAL_LINE) {
-            // Draw vertical line
-            Point start = new Point(VIRTUAL_LINE_X, 0);
-            Point end = new Point(VIRTUAL_LINE_X, frame.rows());
-            Imgproc.line(frame, start, end, lineColor, thickness);
-        } else {
-            Point start = new Point(0, VIRTUAL_LINE_Y);
-            Point end = new Point(frame.cols(), VIRTUAL_LINE_Y);
-            Imgproc.line(frame, start, end, lineColor, thickness);
+        // Tiles run along the band's long side and overlap a little so objects on a
+        // seam are still seen whole by one tile; NMS merges the duplicates
+        List<Rect> regions = new ArrayList<>(ROI_TILES);
+        boolean horizontal = (x2 - x1) >= (y2 - y1);
+        int length = horizontal ? x2 - x1 : y2 - y1;
+        int step = length / ROI_TILES;
+        int overlap = (int) (step * ROI_TILE_OVERLAP);
+        for (int i = 0; i < ROI_TILES; i++) {
+            int start = Math.max(0, i * step - overlap);
+            int end = i == ROI_TILES - 1 ? length : Math.min(length, (i + 1) * step + overlap);
+            regions.add(horizontal
+                    ? new Rect(x1 + start, y1, end - start, y2 - y1)
+                    : new Rect(x1, y1 + start, x2 - x1, end - start));
         }
+        return regions;
     }
 
-    private void runDetectionLoop() {
+    private void runDetectionLoop(CameraStream stream) {
         Mat currentFrame = new Mat();
-        Mat displayFrame = new Mat();
         long lastTime = System.currentTimeMillis();
         int fpsFrameCount = 0;
+        FrameSource source = stream.source;
+        stream.capturing = true;
 
         try {
-            while (isRunning && camera != null && camera.isOpened()) {
+            while (isRunning && source.isOpened()) {
                 if (!isRunning) {
                     break;
                 }
 
-                boolean success = camera.read(currentFrame);
+                long readStart = System.nanoTime();
+                boolean success = source.read(currentFrame);
 
                 if (!success || currentFrame.empty()) {
                     break;
                 }
+                CAPTURE_LATENCY.recordSince(readStart);
 
-                frameCount++;
-                currentFrame.copyTo(displayFrame);
-
-                if (frameCount % frameSkip == 0 && !isInferenceRunning) {
-                    Mat frameForInference = currentFrame.clone();
-                    isInferenceRunning = true;
-                    inferenceExecutor.submit(() -> {
-                        try {
-                            List<YOLOv8Detector.Detection> detections =
-                                    detector.detect(frameForInference);
-                            latestDetections.set(detections);
-
-                            if (!detections.isEmpty()) {
-                                for (YOLOv8Detector.Detection det : detections) {
-                                    String className = ALL_CLASSES[det.classId];
-                                    boolean objectHasPassed = hasPassed(det);
-
-                                    // Check if object is transitioning from right to left (crossing the line)
-                                    if (shouldTriggerOutput(className, objectHasPassed)) {
-                                        String inferOutput = "✓ PASSED: %s, Confidence: %.2f"
-                                                .formatted(className, det.confidence);
-                                        HomepageUIController.frontendUpdateOutput(
-                                                inferOutput,
-                                                className.contains("rotten")
-                                        );
-                                    }
-                                }
-                            }
-                        } catch (Exception e) {
-                            e.printStackTrace();
-                        } finally {
-                            frameForInference.release();
-                            isInferenceRunning = false;
-                        }
-                    });
-                }
+                stream.frameCount++;
+                CAPTURED_FRAMES.increment();
 
-                List<YOLOv8Detector.Detection> detections = latestDetections.get();
-                if (detections != null) {
-                    drawDetections(displayFrame, detections);
+                long captureNanos = source.getTimestampNanos();
+                SessionRecorder recorder = stream.recorder;
+                if (recorder != null && !recorder.write(currentFrame, captureNanos)) {
+                    recorder.close();
+                    stream.recorder = null;
+                }
+                double timeToLine = stream.timeToLineSeconds
+                        - (captureNanos - stream.timeToLineMeasuredNanos) / 1e9;
+                int skip = scheduler.decideSkip(stream.id, stream.currentFps, activeStreams,
+                        stream.trackCount, timeToLine);
+                boolean due = ++stream.framesSinceInference >= skip;
+                boolean gated = false;
+                MotionGate gate = stream.motionGate;
+                if (gate != null) {
+                    boolean motion = gate.detectMotion(currentFrame);
+                    // Something just moved onto an empty belt: don't wait out the long skip
+                    if (motion && stream.trackCount == 0) {
+                        due = true;
+                    }
+                    if (due && !gate.allowInference(motion, captureNanos)) {
+                        stream.framesSinceInference = 0;
+                        due = false;
+                        gated = true;
+                    }
+                }
+                if (due) {
+                    stream.framesSinceInference = 0;
+                    if (!stream.inferenceRegionsResolved) {
+                        stream.inferenceRegions = computeInferenceRegions(currentFrame.cols(), currentFrame.rows());
+                        stream.inferenceRegionsResolved = true;
+                    }
+                    int inputSize = 0;
+                    if (stream.inputSizePolicy.isAdaptive()) {
+                        Rect region = stream.inferenceRegions == null ? null : stream.inferenceRegions.get(0);
+                        inputSize = stream.inputSizePolicy.choose(stream.smallestTrackSide,
+                                region == null ? currentFrame.cols() : region.width,
+                                region == null ? currentFrame.rows() : region.height);
+                    }
+                    pipeline.submit(stream.id, currentFrame, captureNanos, source.getRealCaptureNanos(),
+                            stream.inferenceRegions, inputSize);
+                } else if (gated) {
+                    GATED_FRAMES.increment();
+                } else {
+                    SKIPPED_FRAMES.increment();
                 }
-
-                drawVirtualLine(displayFrame);
 
                 fpsFrameCount++;
                 long currentTime = System.currentTimeMillis();
                 if (currentTime - lastTime >= 1000) {
-                    currentFps = fpsFrameCount * 1000.0 / (currentTime - lastTime);
+                    stream.currentFps = fpsFrameCount * 1000.0 / (currentTime - lastTime);
                     fpsFrameCount = 0;
                     lastTime = currentTime;
                 }
 
-                String fpsText = String.format("FPS: %.1f", currentFps);
-                Imgproc.putText(displayFrame, fpsText, new Point(10, 30),
-                        Imgproc.FONT_HERSHEY_SIMPLEX, 0.7, new Scalar(0, 255, 0), 2);
-
-                BufferedImage bufferedImage = matToBufferedImage(displayFrame);
-                latestFrame.set(bufferedImage);
+                // The raw frame goes to the display untouched; boxes, the line and
+                // FPS are drawn by the UI's overlay layer
+                FrameDisplayBuffer displayBuffer = stream.displayBuffer;
+                if (displayBuffer == null || !displayBuffer.matches(currentFrame)) {
+                    FrameDisplayBuffer previous = displayBuffer;
+                    displayBuffer = new FrameDisplayBuffer(currentFrame.cols(), currentFrame.rows());
+                    stream.displayBuffer = displayBuffer;
+                    // The UI releases a buffer once it has switched away from it; one it
+                    // never took a frame from (resized again within a pulse) is released here
+                    if (previous != null && !previous.wasTaken()) {
+                        previous.release();
+                    }
+                }
+                long publishStart = System.nanoTime();
+                displayBuffer.publish(currentFrame, captureNanos);
+                DISPLAY_LATENCY.recordSince(publishStart);
 
                 try {
                     Thread.sleep(1);
@@ -261,83 +522,219 @@ public class DetectionHandler {
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
+            stream.capturing = false;
             currentFrame.release();
-            displayFrame.release();
         }
     }
 
-    private void drawDetections(Mat frame, List<YOLOv8Detector.Detection> detections) {
-        for (YOLOv8Detector.Detection det : detections) {
-            Point topLeft = new Point(det.x1, det.y1);
-            Point bottomRight = new Point(det.x2, det.y2);
-
-            Scalar color;
-            String status;
-            if (hasPassed(det)) {
-                color = new Scalar(0, 0, 255);
-                status = "PASSED";
-            } else {
-                color = new Scalar(0, 255, 0);
-                status = "NOT PASSED";
+    // Runs on the pipeline's result thread: the postprocess stage, or the results
+    // stage that puts worker results back in order
+    private void handleInferenceResult(FrameJob job) {
+        if (timeToFirstDetectionMillis < 0) {
+            timeToFirstDetectionMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+            System.out.printf("[startup] time to first detection: %d ms since JVM start%n",
+                    timeToFirstDetectionMillis);
+        }
+        lastInferenceNanos = System.nanoTime();
+        INFERRED_FRAMES.increment();
+        CameraStream stream = streams.get(job.getStreamId());
+        List<YOLOv8Detector.Detection> detections = job.getDetections();
+        List<Track> tracks = stream.tracker.update(detections, job.getCaptureNanos());
+        if (stream.gradeCache != null) {
+            try {
+                stream.gradeCache.apply(job.getFrame(), detections, tracks, job.getCaptureNanos());
+            } catch (OrtException e) {
+                e.printStackTrace();
             }
+        }
+        stream.latestDetections.set(detections);
+        scheduler.recordInference(job.getProcessingNanos());
+        updateSchedulerInputs(stream, job.getCaptureNanos());
+
+        // Tracks born past a line have no previous centre and never count
+        List<CrossingEvent> crossingEvents = new ArrayList<>();
+        long crossingStart = System.nanoTime();
+        crossingEngine.evaluate(stream.id, tracks, job.getCaptureNanos(), crossingEvents);
+        CROSSING_LATENCY.recordSince(crossingStart);
+        boolean named = crossingEngine.getGeometries().size() > 1;
+        for (CrossingEvent event : crossingEvents) {
+            Track track = event.getTrack();
+            // First, so the UI work below doesn't count against the arm's deadline.
+            // Real capture time: with unpaced playback job.getCaptureNanos() runs ahead.
+            if (triggers != null) {
+                triggers.publish(stream.id, track.getId(), track.getClassId(), track.getConfidence(),
+                        event.getGeometry().getName(), job.getRealCaptureNanos());
+            }
+            String className = ALL_CLASSES[track.getClassId()];
+            String inferOutput = "✓ PASSED: %s #%d, Confidence: %.2f"
+                    .formatted(className, track.getId(), track.getConfidence());
+            if (named) {
+                inferOutput = "%s [%s]".formatted(inferOutput, event.getGeometry().getName());
+            }
+            if (streams.size() > 1) {
+                inferOutput = "[%s] %s".formatted(stream.source.getName(), inferOutput);
+            }
+            HomepageUIController.frontendUpdateOutput(
+                    inferOutput,
+                    className.contains("rotten")
+            );
+            if (stream.gradeCache != null) {
+                stream.gradeCache.evict(track.getId());
+            }
+        }
+    }
 
-            Imgproc.rectangle(frame, topLeft, bottomRight, color, 2);
-
-            String label = String.format("%s: %.2f [%s]",
-                    ALL_CLASSES[det.classId], det.confidence, status);
-            int[] baseline = {0};
-            Size labelSize = Imgproc.getTextSize(label, Imgproc.FONT_HERSHEY_SIMPLEX,
-                    0.5, 1, baseline);
-
-            Point labelOrigin = new Point(det.x1, det.y1 - 10);
-            Imgproc.rectangle(frame,
-                    new Point(det.x1, det.y1 - labelSize.height - 10),
-                    new Point(det.x1 + labelSize.width, det.y1),
-                    color, -1);
-
-            Imgproc.putText(frame, label, labelOrigin,
-                    Imgproc.FONT_HERSHEY_SIMPLEX, 0.5, new Scalar(0, 0, 0), 1);
+    // Time until the nearest track reaches a line or zone it hasn't passed yet,
+    // assuming it keeps its current velocity
+    private void updateSchedulerInputs(CameraStream stream, long nanos) {
+        List<Track> live = stream.tracker.getTracks();
+        double nearest = Double.POSITIVE_INFINITY;
+        float smallest = Float.POSITIVE_INFINITY;
+        for (Track track : live) {
+            nearest = Math.min(nearest, crossingEngine.timeToNextCrossing(track));
+            smallest = Math.min(smallest, Math.min(track.getWidth(), track.getHeight()));
         }
+        stream.trackCount = live.size();
+        stream.smallestTrackSide = smallest;
+        stream.timeToLineSeconds = nearest;
+        stream.timeToLineMeasuredNanos = nanos;
     }
 
-    private BufferedImage matToBufferedImage(Mat mat) {
-        int type = BufferedImage.TYPE_BYTE_GRAY;
-        if (mat.channels() > 1) {
-            type = BufferedImage.TYPE_3BYTE_BGR;
+    private void releaseCameras() {
+        for (CameraStream stream : streams) {
+            stream.source.close();
+            if (stream.recorder != null) {
+                stream.recorder.close();
+                stream.recorder = null;
+            }
         }
-        BufferedImage image = new BufferedImage(mat.cols(), mat.rows(), type);
-        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
-        mat.get(0, 0, data);
-        return image;
     }
 
-    private void cleanup() {
-        if (camera != null && camera.isOpened()) {
-            camera.release();
-            camera = null;
+    // Gauges are read when scraped, so they cost nothing per frame
+    private void registerGauges(List<CameraStream> opened) {
+        Metrics.removeGauges("vf17_");
+        DetectionPipeline current = pipeline;
+        for (PipelineStage stage : current.getStages()) {
+            Metrics.gauge("vf17_queue_depth{stage=\"" + stage.getName() + "\"}", stage::getQueueDepth);
+            Metrics.gauge("vf17_stage_throughput{stage=\"" + stage.getName() + "\"}", stage::getThroughput);
         }
-        if (inferenceExecutor != null && !inferenceExecutor.isShutdown()) {
-            inferenceExecutor.shutdown();
-            try {
-                if (!inferenceExecutor.awaitTermination(1, TimeUnit.SECONDS)) {
-                    inferenceExecutor.shutdownNow();
+        for (CameraStream stream : opened) {
+            String source = "source=\"" + stream.source.getName().replace("\"", "'") + "\"";
+            Metrics.gauge("vf17_capture_fps{" + source + "}", () -> stream.currentFps);
+            Metrics.gauge("vf17_input_size{" + source + "}", () -> stream.inputSizePolicy.getLastSize());
+            MotionGate gate = stream.motionGate;
+            if (gate != null) {
+                Metrics.gauge("vf17_motion_gate{" + source + ",result=\"passed\"}", () -> gate.getPassedCount());
+                Metrics.gauge("vf17_motion_gate{" + source + ",result=\"gated\"}", () -> gate.getGatedCount());
+                Metrics.gauge("vf17_motion_gated_ratio{" + source + "}", gate::getGatedRatio);
+            }
+            TrackGradeCache grades = stream.gradeCache;
+            if (grades != null) {
+                Metrics.gauge("vf17_cascade_crops{" + source + ",result=\"graded\"}", () -> grades.getGradedCount());
+                Metrics.gauge("vf17_cascade_crops{" + source + ",result=\"cached\"}", () -> grades.getCachedCount());
+                Metrics.gauge("vf17_cascade_cache_size{" + source + "}", () -> grades.size());
+            }
+        }
+        Metrics.gauge("vf17_mat_bytes{owner=\"pipeline\"}", () -> (double) current.getMatBytes());
+        Metrics.gauge("vf17_mat_bytes{owner=\"detector\"}", () -> detector == null ? 0 : detector.getMatBytes());
+        Metrics.gauge("vf17_detector_allocations", () -> getDetectorAllocations());
+        WorkerPool workers = workerPool;
+        if (workers != null) {
+            for (int w = 0; w < workers.size(); w++) {
+                int index = w;
+                String worker = "worker=\"" + w + "\"";
+                Metrics.gauge("vf17_worker_up{" + worker + "}", () -> workers.isUp(index) ? 1 : 0);
+                Metrics.gauge("vf17_worker_restarts{" + worker + "}", () -> workers.getRestarts(index));
+            }
+        }
+        TriggerChannel channel = triggers;
+        if (channel != null) {
+            for (int s = 0; s < channel.getSinkCount(); s++) {
+                int index = s;
+                String sink = "sink=\"" + channel.getSinkName(s) + "\"";
+                Metrics.gauge("vf17_triggers{" + sink + ",result=\"on_time\"}", () -> channel.getOnTime(index));
+                Metrics.gauge("vf17_triggers{" + sink + ",result=\"late\"}", () -> channel.getLate(index));
+                Metrics.gauge("vf17_triggers{" + sink + ",result=\"failed\"}", () -> channel.getFailed(index));
+            }
+            Metrics.gauge("vf17_trigger_dropped", channel::getDropped);
+            Metrics.gauge("vf17_trigger_queue_depth", channel::getQueueDepth);
+        }
+        if (classifier != null) {
+            Metrics.gauge("vf17_mat_bytes{owner=\"classifier\"}", () -> (double) classifier.getMatBytes());
+        }
+        Metrics.gauge("vf17_mat_bytes{owner=\"gate\"}", () -> {
+            long bytes = 0;
+            for (CameraStream stream : opened) {
+                if (stream.motionGate != null) {
+                    bytes += stream.motionGate.getMatBytes();
                 }
-            } catch (InterruptedException e) {
-                inferenceExecutor.shutdownNow();
-                Thread.currentThread().interrupt();
+            }
+            return bytes;
+        });
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                Metrics.gauge("vf17_direct_buffer_bytes", pool::getMemoryUsed);
             }
         }
+        // Alert on this one: it keeps growing when inference stalls
+        Metrics.gauge("vf17_last_inference_age_seconds", () -> lastInferenceNanos == 0
+                ? 0 : (System.nanoTime() - lastInferenceNanos) / 1e9);
+
+        if (METRICS_PORT > 0 && metricsServer == null) {
+            try {
+                metricsServer = new MetricsServer(METRICS_PORT);
+                metricsServer.start();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void cleanup() {
+        releaseCameras();
+        for (CameraStream stream : streams) {
+            if (stream.motionGate != null) {
+                stream.motionGate.release();
+            }
+            // The capture threads have stopped, so nothing publishes into it any more
+            FrameDisplayBuffer displayBuffer = stream.displayBuffer;
+            if (displayBuffer != null) {
+                stream.displayBuffer = null;
+                displayBuffer.release();
+            }
+        }
+        Metrics.removeGauges("vf17_");
+        if (pipeline != null) {
+            pipeline.stop();
+            pipeline = null;
+        }
     }
 
     public void shutdown() {
         if (isRunning) {
             stopCamera();
         }
+        if (metricsServer != null) {
+            metricsServer.stop();
+            metricsServer = null;
+        }
         try {
             if (detector != null) {
                 detector.close();
                 detector = null;
             }
+            if (classifier != null) {
+                classifier.close();
+                classifier = null;
+            }
+            if (workerPool != null) {
+                workerPool.close();
+                workerPool = null;
+            }
+            if (triggers != null) {
+                triggers.close();
+                triggers = null;
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -0,0 +1,188 @@
+package com.arthroverse.vf17.detection;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtLoggingLevel;
+import ai.onnxruntime.OrtSession;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+// ONNX Runtime settings applied when a detector builds its session: thread pools,
+// execution mode, graph optimization, memory pattern/arena and spinning. Start from
+// a preset and override single values from a properties file (-Dvf17.ort.config)
+// or system properties, e.g.
+//   -Dvf17.ort.profile=throughput -Dvf17.ort.intraOpThreads=3
+public class ExecutionProfile {
+    private static final String PREFIX = "vf17.ort.";
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+    private String name;
+    // 0 leaves the thread count to ORT
+    private int intraOpThreads;
+    private int interOpThreads;
+    private OrtSession.SessionOptions.ExecutionMode executionMode;
+    private OrtSession.SessionOptions.OptLevel optLevel;
+    private boolean memoryPattern;
+    private boolean cpuArena;
+    private boolean allowSpinning;
+    // Sessions use one process-wide ORT thread pool instead of their own
+    private boolean globalThreadPool;
+
+    private ExecutionProfile() {
+    }
+
+    // "default" keeps ORT's own defaults. "low-latency" gives one session half the
+    // cores with spinning, "throughput" leaves two cores for capture and UI and
+    // doesn't spin, "shared-box" runs every detector in the process on one global pool.
+    public static ExecutionProfile preset(String name) {
+        ExecutionProfile profile = new ExecutionProfile();
+        profile.name = name;
+        profile.executionMode = OrtSession.SessionOptions.ExecutionMode.SEQUENTIAL;
+        profile.optLevel = OrtSession.SessionOptions.OptLevel.ALL_OPT;
+        profile.memoryPattern = true;
+        profile.cpuArena = true;
+        profile.allowSpinning = true;
+
+        switch (name) {
+            case "default":
+                break;
+            case "low-latency":
+                profile.intraOpThreads = Math.max(1, CORES / 2);
+                profile.interOpThreads = 1;
+                break;
+            case "throughput":
+                profile.intraOpThreads = Math.max(1, CORES - 2);
+                profile.interOpThreads = 1;
+                profile.allowSpinning = false;
+                break;
+            case "shared-box":
+                profile.intraOpThreads = Math.max(1, CORES / 2);
+                profile.interOpThreads = 1;
+                profile.allowSpinning = false;
+                profile.cpuArena = false;
+                profile.globalThreadPool = true;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown ORT execution profile: " + name);
+        }
+        return profile;
+    }
+
+    public static ExecutionProfile load() {
+        return load(new Properties());
+    }
+
+    // Caller defaults sit under the file and the system properties
+    public static ExecutionProfile load(Properties defaults) {
+        Properties properties = new Properties();
+        properties.putAll(defaults);
+        String configPath = System.getProperty(PREFIX + "config");
+        if (configPath != null) {
+            try (InputStream in = new FileInputStream(configPath)) {
+                properties.load(in);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        // System properties win over the file
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith(PREFIX)) {
+                properties.setProperty(key.substring(PREFIX.length()), System.getProperty(key));
+            }
+        }
+        return fromProperties(properties);
+    }
+
+    public static ExecutionProfile fromProperties(Properties properties) {
+        ExecutionProfile profile = preset(properties.getProperty("profile", "default"));
+        String value;
+        if ((value = properties.getProperty("intraOpThreads")) != null) {
+            profile.intraOpThreads = Integer.parseInt(value.trim());
+        }
+        if ((value = properties.getProperty("interOpThreads")) != null) {
+            profile.interOpThreads = Integer.parseInt(value.trim());
+        }
+        if ((value = properties.getProperty("executionMode")) != null) {
+            profile.executionMode = OrtSession.SessionOptions.ExecutionMode.valueOf(value.trim());
+        }
+        if ((value = properties.getProperty("optLevel")) != null) {
+            profile.optLevel = OrtSession.SessionOptions.OptLevel.valueOf(value.trim());
+        }
+        if ((value = properties.getProperty("memoryPattern")) != null) {
+            profile.memoryPattern = Boolean.parseBoolean(value.trim());
+        }
+        if ((value = properties.getProperty("cpuArena")) != null) {
+            profile.cpuArena = Boolean.parseBoolean(value.trim());
+        }
+        if ((value = properties.getProperty("allowSpinning")) != null) {
+            profile.allowSpinning = Boolean.parseBoolean(value.trim());
+        }
+        if ((value = properties.getProperty("globalThreadPool")) != null) {
+            profile.globalThreadPool = Boolean.parseBoolean(value.trim());
+        }
+        return profile;
+    }
+
+    // The global thread pool only takes effect if this is the first ORT environment
+    // created in the process, so every detector should go through here
+    public OrtEnvironment createEnvironment() throws OrtException {
+        if (!globalThreadPool) {
+            return OrtEnvironment.getEnvironment();
+        }
+        try (OrtEnvironment.ThreadingOptions threading = new OrtEnvironment.ThreadingOptions()) {
+            if (intraOpThreads > 0) {
+                threading.setGlobalIntraOpNumThreads(intraOpThreads);
+            }
+            if (interOpThreads > 0) {
+                threading.setGlobalInterOpNumThreads(interOpThreads);
+            }
+            threading.setGlobalSpinControl(allowSpinning);
+            return OrtEnvironment.getEnvironment(OrtLoggingLevel.ORT_LOGGING_LEVEL_WARNING,
+                    OrtEnvironment.DEFAULT_NAME, threading);
+        }
+    }
+
+    public OrtSession.SessionOptions createSessionOptions() throws OrtException {
+        OrtSession.SessionOptions opts = new OrtSession.SessionOptions();
+        opts.setExecutionMode(executionMode);
+        opts.setOptimizationLevel(optLevel);
+        opts.setMemoryPatternOptimization(memoryPattern);
+        opts.setCPUArenaAllocator(cpuArena);
+        if (globalThreadPool) {
+            opts.disablePerSessionThreads();
+        } else {
+            if (intraOpThreads > 0) {
+                opts.setIntraOpNumThreads(intraOpThreads);
+            }
+            if (interOpThreads > 0) {
+                opts.setInterOpNumThreads(interOpThreads);
+            }
+            opts.addConfigEntry("session.intra_op.allow_spinning", allowSpinning ? "1" : "0");
+        }
+        return opts;
+    }
+
+    public OrtSession.SessionOptions.OptLevel getOptLevel() {
+        return optLevel;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isGlobalThreadPool() {
+        return globalThreadPool;
+    }
+
+    @Override
+    public String toString() {
+        return "profile=%s intraOpThreads=%s interOpThreads=%s executionMode=%s optLevel=%s memoryPattern=%b cpuArena=%b allowSpinning=%b globalThreadPool=%b"
+                .formatted(name,
+                        intraOpThreads > 0 ? intraOpThreads : "ort-default",
+                        interOpThreads > 0 ? interOpThreads : "ort-default",
+                        executionMode, optLevel, memoryPattern, cpuArena, allowSpinning, globalThreadPool);
+    }
+}
@@ -0,0 +1,53 @@
+package com.arthroverse.vf17.detection;
+
+// Picks the model input size per frame from how large the tracked objects are. The
+// cost of a run grows with the input's pixel count, so a belt of large fruit is
+// inferred at 320 and the full size is only used when something small is in view.
+// With nothing tracked, and every probeInterval frames regardless, the largest size
+// runs so new or small objects are still found.
+public class InputSizePolicy {
+    private final int[] sizes;
+    private final float minObjectPixels;
+    private final int probeInterval;
+
+    // Owned by the capture thread
+    private int framesSinceProbe = 0;
+    private int lastSize;
+
+    // sizes smallest first, as returned by YOLOv8Detector.getInputSizes()
+    public InputSizePolicy(int[] sizes, float minObjectPixels, int probeInterval) {
+        this.sizes = sizes.clone();
+        this.minObjectPixels = minObjectPixels;
+        this.probeInterval = probeInterval;
+        this.lastSize = this.sizes[this.sizes.length - 1];
+    }
+
+    // smallestSide: shorter side of the smallest tracked box in frame pixels,
+    // +inf with no tracks. regionWidth/Height is what is scaled into the input.
+    public int choose(float smallestSide, int regionWidth, int regionHeight) {
+        int largest = sizes[sizes.length - 1];
+        if (Float.isInfinite(smallestSide) || ++framesSinceProbe >= probeInterval) {
+            framesSinceProbe = 0;
+            lastSize = largest;
+            return largest;
+        }
+        // Letterboxing scales the longer side of the region to the input size
+        int longest = Math.max(regionWidth, regionHeight);
+        for (int size : sizes) {
+            if (smallestSide * size / longest >= minObjectPixels) {
+                lastSize = size;
+                return size;
+            }
+        }
+        lastSize = largest;
+        return largest;
+    }
+
+    public int getLastSize() {
+        return lastSize;
+    }
+
+    public boolean isAdaptive() {
+        return sizes.length > 1;
+    }
+}
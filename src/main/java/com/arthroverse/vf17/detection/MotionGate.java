@@ -0,0 +1,116 @@
+package com.arthroverse.vf17.detection;
+
+import com.arthroverse.vf17.metrics.Metrics;
+import org.opencv.core.*;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.concurrent.TimeUnit;
+
+// Cheap check run on every captured frame before inference is scheduled. The region
+// of interest is downscaled to a small grayscale image and compared with the
+// previous one; inference is only worth running when enough pixels changed, or
+// when the periodic refresh is due so a stationary item is still picked up.
+public class MotionGate {
+    private static final int GATE_WIDTH = 80;
+
+    private final Rect roi;
+    private final double pixelThreshold;
+    private final double minChangedFraction;
+    private final long refreshNanos;
+
+    // Reused between frames, all owned by the capture thread
+    private final Mat small = new Mat();
+    private final Mat gray = new Mat();
+    private final Mat previous = new Mat();
+    private final Mat diff = new Mat();
+    private Size gateSize;
+    private Rect clippedRoi;
+
+    private long lastInferenceNanos = 0;
+    private volatile long passedCount = 0;
+    private volatile long gatedCount = 0;
+
+    // roi == null gates on the whole frame
+    public MotionGate(Rect roi, double pixelThreshold, double minChangedFraction, long refreshMs) {
+        this.roi = roi;
+        this.pixelThreshold = pixelThreshold;
+        this.minChangedFraction = minChangedFraction;
+        this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMs);
+    }
+
+    // Compares the frame's region of interest with the previous frame's
+    public boolean detectMotion(Mat frame) {
+        if (clippedRoi == null) {
+            clippedRoi = clip(roi, frame);
+            int height = Math.max(1, clippedRoi.height * GATE_WIDTH / Math.max(1, clippedRoi.width));
+            gateSize = new Size(GATE_WIDTH, height);
+        }
+
+        Mat region = frame.submat(clippedRoi);
+        Imgproc.resize(region, small, gateSize, 0, 0, Imgproc.INTER_AREA);
+        region.release();
+        Imgproc.cvtColor(small, gray, Imgproc.COLOR_BGR2GRAY);
+
+        if (previous.empty()) {
+            gray.copyTo(previous);
+            return true;
+        }
+
+        Core.absdiff(gray, previous, diff);
+        Imgproc.threshold(diff, diff, pixelThreshold, 255, Imgproc.THRESH_BINARY);
+        int changed = Core.countNonZero(diff);
+        gray.copyTo(previous);
+
+        return changed >= minChangedFraction * gray.total();
+    }
+
+    // Final say once the scheduler wants an inference: run it on motion or when the
+    // periodic refresh is due, otherwise count the frame as gated off
+    public boolean allowInference(boolean motion, long nanos) {
+        if (motion || nanos - lastInferenceNanos >= refreshNanos) {
+            lastInferenceNanos = nanos;
+            passedCount++;
+            return true;
+        }
+        gatedCount++;
+        return false;
+    }
+
+    public long getPassedCount() {
+        return passedCount;
+    }
+
+    public long getGatedCount() {
+        return gatedCount;
+    }
+
+    // Share of scheduled inferences that were skipped because nothing moved
+    public double getGatedRatio() {
+        long gated = gatedCount;
+        long total = gated + passedCount;
+        return total == 0 ? 0 : (double) gated / total;
+    }
+
+    public long getMatBytes() {
+        return Metrics.matBytes(small) + Metrics.matBytes(gray)
+                + Metrics.matBytes(previous) + Metrics.matBytes(diff);
+    }
+
+    public void release() {
+        small.release();
+        gray.release();
+        previous.release();
+        diff.release();
+    }
+
+    private static Rect clip(Rect roi, Mat frame) {
+        if (roi == null) {
+            return new Rect(0, 0, frame.cols(), frame.rows());
+        }
+        int x = Math.max(0, Math.min(roi.x, frame.cols() - 1));
+        int y = Math.max(0, Math.min(roi.y, frame.rows() - 1));
+        int width = Math.max(1, Math.min(roi.width, frame.cols() - x));
+        int height = Math.max(1, Math.min(roi.height, frame.rows() - y));
+        return new Rect(x, y, width, height);
+    }
+}
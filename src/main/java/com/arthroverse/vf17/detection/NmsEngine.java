@@ -0,0 +1,176 @@
+package com.arthroverse.vf17.detection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Greedy non-maximum suppression over struct-of-arrays buffers. Candidates are
+// sorted once, split into per-class runs and suppressed with a flag array, which
+// gives the same result as the old list-based applyNMS without the quadratic
+// list shifting. Buffers grow to the largest candidate count seen and are reused.
+public class NmsEngine {
+    // Sort keys pack the descending score in the high bits and the candidate index
+    // in the low bits, so equal scores keep their original (stable) order.
+    private static final int INDEX_BITS = 20;
+    private static final int MAX_CANDIDATES = 1 << INDEX_BITS;
+
+    private final float iouThreshold;
+    private int topK = 0;
+    private boolean classAgnostic = false;
+
+    private int capacity = 0;
+    private float[] x1, y1, x2, y2, areas, scores;
+    private int[] classIds;
+    private long[] sortKeys;
+    private int[] order;
+    private int[] classOrder;
+    private int[] classStart;
+    private boolean[] suppressed;
+
+    public NmsEngine(float iouThreshold) {
+        this.iouThreshold = iouThreshold;
+        this.classStart = new int[2];
+        ensureCapacity(256);
+    }
+
+    // Maximum number of boxes returned, 0 for no cap
+    public void setTopK(int topK) {
+        this.topK = Math.max(0, topK);
+    }
+
+    // Suppress overlapping boxes regardless of their class
+    public void setClassAgnostic(boolean classAgnostic) {
+        this.classAgnostic = classAgnostic;
+    }
+
+    public List<YOLOv8Detector.Detection> apply(List<YOLOv8Detector.Detection> candidates) {
+        int n = Math.min(candidates.size(), MAX_CANDIDATES);
+        ensureCapacity(n);
+
+        int maxClass = 0;
+        for (int i = 0; i < n; i++) {
+            YOLOv8Detector.Detection det = candidates.get(i);
+            x1[i] = det.x1;
+            y1[i] = det.y1;
+            x2[i] = det.x2;
+            y2[i] = det.y2;
+            areas[i] = (det.x2 - det.x1) * (det.y2 - det.y1);
+            scores[i] = det.confidence;
+            classIds[i] = classAgnostic ? 0 : det.classId;
+            maxClass = Math.max(maxClass, classIds[i]);
+        }
+
+        int kept = run(n, maxClass + 1);
+
+        List<YOLOv8Detector.Detection> result = new ArrayList<>(kept);
+        for (int k = 0; k < n && result.size() < kept; k++) {
+            int idx = order[k];
+            if (!suppressed[idx]) {
+                result.add(candidates.get(idx));
+            }
+        }
+        return result;
+    }
+
+    private int run(int n, int numClasses) {
+        // Sort once by descending score
+        for (int i = 0; i < n; i++) {
+            long descending = (long) Integer.MAX_VALUE - sortableBits(scores[i]);
+            sortKeys[i] = (descending << INDEX_BITS) | i;
+        }
+        Arrays.sort(sortKeys, 0, n);
+        for (int k = 0; k < n; k++) {
+            order[k] = (int) (sortKeys[k] & (MAX_CANDIDATES - 1));
+        }
+
+        // Stable counting sort into per-class runs that stay in score order
+        if (classStart.length < numClasses + 1) {
+            classStart = new int[numClasses + 1];
+        }
+        Arrays.fill(classStart, 0, numClasses + 1, 0);
+        for (int k = 0; k < n; k++) {
+            classStart[classIds[order[k]] + 1]++;
+        }
+        for (int c = 0; c < numClasses; c++) {
+            classStart[c + 1] += classStart[c];
+        }
+        for (int k = 0; k < n; k++) {
+            int idx = order[k];
+            classOrder[classStart[classIds[idx]]++] = idx;
+        }
+        // classStart now holds run ends; shift back to starts
+        for (int c = numClasses; c > 0; c--) {
+            classStart[c] = classStart[c - 1];
+        }
+        classStart[0] = 0;
+
+        Arrays.fill(suppressed, 0, n, false);
+        int kept = 0;
+        for (int c = 0; c < numClasses; c++) {
+            int end = classStart[c + 1];
+            for (int a = classStart[c]; a < end; a++) {
+                int best = classOrder[a];
+                if (suppressed[best]) {
+                    continue;
+                }
+                kept++;
+                // With a single run the output order is the run order, so nothing after
+                // the top-K box can change the result.
+                if (numClasses == 1 && topK > 0 && kept == topK) {
+                    for (int rest = a + 1; rest < end; rest++) {
+                        suppressed[classOrder[rest]] = true;
+                    }
+                    return kept;
+                }
+                for (int b = a + 1; b < end; b++) {
+                    int other = classOrder[b];
+                    if (!suppressed[other] && iou(best, other) > iouThreshold) {
+                        suppressed[other] = true;
+                    }
+                }
+            }
+        }
+
+        if (topK > 0 && kept > topK) {
+            return topK;
+        }
+        return kept;
+    }
+
+    private float iou(int a, int b) {
+        float ix1 = Math.max(x1[a], x1[b]);
+        float iy1 = Math.max(y1[a], y1[b]);
+        float ix2 = Math.min(x2[a], x2[b]);
+        float iy2 = Math.min(y2[a], y2[b]);
+
+        float intersection = Math.max(0, ix2 - ix1) * Math.max(0, iy2 - iy1);
+        float union = areas[a] + areas[b] - intersection;
+
+        return intersection / union;
+    }
+
+    // Maps a float to an int whose signed order matches Float.compare
+    private static int sortableBits(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(n, capacity * 2);
+        x1 = new float[newCapacity];
+        y1 = new float[newCapacity];
+        x2 = new float[newCapacity];
+        y2 = new float[newCapacity];
+        areas = new float[newCapacity];
+        scores = new float[newCapacity];
+        classIds = new int[newCapacity];
+        sortKeys = new long[newCapacity];
+        order = new int[newCapacity];
+        classOrder = new int[newCapacity];
+        suppressed = new boolean[newCapacity];
+        capacity = newCapacity;
+    }
+}
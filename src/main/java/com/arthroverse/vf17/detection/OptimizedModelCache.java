@@ -0,0 +1,46 @@
+package com.arthroverse.vf17.detection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// Location of the ORT-optimized copy of a model. The file name is keyed by the
+// model's SHA-256, the ORT version and the optimization level, so a new model,
+// a runtime upgrade or a different profile never picks up a stale file.
+// Override the directory with -Dvf17.model.cacheDir.
+public class OptimizedModelCache {
+    private static final Path CACHE_DIR = Paths.get(System.getProperty("vf17.model.cacheDir",
+            Paths.get(System.getProperty("user.home"), ".vf17", "model-cache").toString()));
+
+    public static Path resolve(String modelPath, String ortVersion, String optLevel) throws IOException {
+        String key = "%s-ort%s-%s".formatted(sha256(Paths.get(modelPath)), ortVersion, optLevel);
+        return CACHE_DIR.resolve(key + ".onnx");
+    }
+
+    // Optimized models are written here first and moved into place once ORT is done,
+    // so an interrupted start never leaves a truncated cache entry behind. Per process,
+    // as inference workers starting together may all be writing the same entry.
+    public static Path temporaryFor(Path cachePath) throws IOException {
+        Files.createDirectories(cachePath.getParent());
+        return cachePath.resolveSibling(cachePath.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+    }
+
+    private static String sha256(Path file) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.arthroverse.vf17.detection;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Turns a resized BGR frame (interleaved uint8, as OpenCV stores it) into the model
+// input: RGB planes of floats in [0,1]. The BGR->RGB swap is folded into the plane
+// order, so no cvtColor pass is needed before it.
+public abstract class PixelNormalizer {
+    // -Dvf17.preprocess.simd=false forces the scalar kernel
+    private static final boolean SIMD = Boolean.parseBoolean(
+            System.getProperty("vf17.preprocess.simd", "true"));
+    // Pixel blocks converted in parallel. 1 keeps the work on the calling thread, which
+    // is usually right since ORT and the other pipeline stages already use the cores.
+    private static final int PARALLELISM = Integer.getInteger("vf17.preprocess.parallelism", 1);
+    private static final int MIN_BLOCK_PIXELS = 16 * 1024;
+
+    // value / 255f for every byte value, so the scalar path is a table lookup
+    protected static final float[] SCALE = new float[256];
+
+    static {
+        for (int i = 0; i < SCALE.length; i++) {
+            SCALE[i] = i / 255.0f;
+        }
+    }
+
+    private static ForkJoinPool pool;
+
+    // Converts pixels [from, to) of bgr into the three planes of out (native order,
+    // planeSize floats each)
+    protected abstract void convert(byte[] bgr, ByteBuffer out, int planeSize, int from, int to);
+
+    public abstract String getName();
+
+    public void normalize(byte[] bgr, ByteBuffer out, int planeSize) {
+        normalize(bgr, out, planeSize, PARALLELISM);
+    }
+
+    // Package-private so the tests can split a frame without the system property
+    void normalize(byte[] bgr, ByteBuffer out, int planeSize, int parallelism) {
+        int blocks = Math.min(parallelism, planeSize / MIN_BLOCK_PIXELS);
+        if (blocks <= 1) {
+            convert(bgr, out, planeSize, 0, planeSize);
+            return;
+        }
+        ForkJoinPool workers = pool(parallelism);
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[blocks - 1];
+        int blockSize = (planeSize + blocks - 1) / blocks;
+        for (int b = 1; b < blocks; b++) {
+            int from = b * blockSize;
+            int to = Math.min(planeSize, from + blockSize);
+            tasks[b - 1] = workers.submit(() -> convert(bgr, out, planeSize, from, to));
+        }
+        // The calling thread takes the first block instead of waiting idle
+        convert(bgr, out, planeSize, 0, blockSize);
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    // Sized by the first caller; blocks just queue up if a later one asks for more
+    private static synchronized ForkJoinPool pool(int parallelism) {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism - 1);
+        }
+        return pool;
+    }
+
+    // The Vector API kernel needs --add-modules jdk.incubator.vector at runtime and at
+    // least 256-bit vectors; otherwise the scalar kernel is used.
+    public static PixelNormalizer create() {
+        if (SIMD && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                if (VectorPixelNormalizer.isSupported()) {
+                    return new VectorPixelNormalizer();
+                }
+            } catch (LinkageError e) {
+                e.printStackTrace();
+            }
+        }
+        return new ScalarPixelNormalizer();
+    }
+}
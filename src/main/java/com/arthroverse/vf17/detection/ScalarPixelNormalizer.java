@@ -0,0 +1,25 @@
+package com.arthroverse.vf17.detection;
+
+import java.nio.ByteBuffer;
+
+// One sequential pass over the interleaved pixels, writing all three planes at once
+public class ScalarPixelNormalizer extends PixelNormalizer {
+
+    @Override
+    protected void convert(byte[] bgr, ByteBuffer out, int planeSize, int from, int to) {
+        float[] scale = SCALE;
+        int gOffset = planeSize * Float.BYTES;
+        int bOffset = 2 * gOffset;
+        for (int i = from, p = from * 3; i < to; i++, p += 3) {
+            int o = i * Float.BYTES;
+            out.putFloat(o, scale[bgr[p + 2] & 0xFF]);
+            out.putFloat(gOffset + o, scale[bgr[p + 1] & 0xFF]);
+            out.putFloat(bOffset + o, scale[bgr[p] & 0xFF]);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,66 @@
+package com.arthroverse.vf17.detection;
+
+import ai.onnxruntime.OnnxJavaType;
+import ai.onnxruntime.platform.Fp16Conversions;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+// Converts between the float32 that preprocessing and the decoder work in and the
+// element types of reduced-precision exports: FLOAT16 (half=True exports) and
+// UINT8/INT8 for models quantized including their inputs and outputs. Models that
+// are only quantized inside (QDQ, dynamic quantization) keep float32 I/O and need none of this.
+final class TensorPrecision {
+
+    private TensorPrecision() {
+    }
+
+    static boolean isSupported(OnnxJavaType type) {
+        return type == OnnxJavaType.FLOAT || type == OnnxJavaType.FLOAT16
+                || type == OnnxJavaType.UINT8 || type == OnnxJavaType.INT8;
+    }
+
+    static void toFloat16(ByteBuffer floats, ByteBuffer halves, int count) {
+        for (int i = 0; i < count; i++) {
+            halves.putShort(i * Short.BYTES, Fp16Conversions.floatToFp16(floats.getFloat(i * Float.BYTES)));
+        }
+    }
+
+    // Quantized inputs take the pixel values with the /255 folded into the input scale:
+    // UINT8 as 0..255, INT8 shifted by the usual zero point of -128. Planes are RGB.
+    static void toQuantizedPlanes(byte[] bgr, ByteBuffer out, int planeSize, boolean signed) {
+        int shift = signed ? -128 : 0;
+        for (int i = 0, p = 0; i < planeSize; i++, p += 3) {
+            out.put(i, (byte) ((bgr[p + 2] & 0xFF) + shift));
+            out.put(planeSize + i, (byte) ((bgr[p + 1] & 0xFF) + shift));
+            out.put(2 * planeSize + i, (byte) ((bgr[p] & 0xFF) + shift));
+        }
+    }
+
+    // Reads count elements of type starting at element index from, writing them as
+    // floats to out[0..count). Quantized values are dequantized as (q - zeroPoint) * scale.
+    static void toFloats(OnnxJavaType type, ByteBuffer raw, int from, FloatBuffer out, int count,
+                         float scale, int zeroPoint) {
+        switch (type) {
+            case FLOAT16:
+                for (int i = 0; i < count; i++) {
+                    out.put(i, Fp16Conversions.fp16ToFloat(raw.getShort((from + i) * Short.BYTES)));
+                }
+                break;
+            case UINT8:
+                for (int i = 0; i < count; i++) {
+                    out.put(i, ((raw.get(from + i) & 0xFF) - zeroPoint) * scale);
+                }
+                break;
+            case INT8:
+                for (int i = 0; i < count; i++) {
+                    out.put(i, (raw.get(from + i) - zeroPoint) * scale);
+                }
+                break;
+            default:
+                for (int i = 0; i < count; i++) {
+                    out.put(i, raw.getFloat((from + i) * Float.BYTES));
+                }
+        }
+    }
+}
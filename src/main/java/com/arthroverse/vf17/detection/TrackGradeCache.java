@@ -0,0 +1,130 @@
+package com.arthroverse.vf17.detection;
+
+import ai.onnxruntime.OrtException;
+import com.arthroverse.vf17.tracking.ObjectTracker;
+import com.arthroverse.vf17.tracking.Track;
+import org.opencv.core.Mat;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Per-lane bookkeeping for the cascade's crop classifier, keyed by track id. A track
+// is graded when it first shows up and regraded only while it has grades left and
+// its box changed size noticeably (the item turned or came fully into view) or the
+// last grade was unsure, so an item is graded once or twice however many frames it
+// is inferred on. The grade itself lives on the Track. Entries are evicted when the
+// track passes a line or the tracker drops it; an evicted track keeps its last grade.
+// Only used from the pipeline's result thread; grades go through the tracker so
+// they are applied under its lock while the FX thread predicts.
+public class TrackGradeCache {
+    private final CropClassifier classifier;
+    private final ObjectTracker tracker;
+    private final int maxGrades;
+    private final float regradeAreaChange;
+    private final float regradeBelowConfidence;
+    private final long staleNanos;
+    private final Map<Integer, Entry> entries = new HashMap<>();
+
+    private volatile long gradedCount = 0;
+    private volatile long cachedCount = 0;
+
+    private static class Entry {
+        int grades;
+        // Box area at the last grade
+        float area;
+        long lastNanos;
+    }
+
+    // regradeAreaChange: relative change of the box area that triggers a regrade,
+    // e.g. 0.5 for 50% larger or 1/1.5 the size
+    public TrackGradeCache(CropClassifier classifier, ObjectTracker tracker, int maxGrades,
+                           float regradeAreaChange, float regradeBelowConfidence, long staleNanos) {
+        this.classifier = classifier;
+        this.tracker = tracker;
+        this.maxGrades = maxGrades;
+        this.regradeAreaChange = regradeAreaChange;
+        this.regradeBelowConfidence = regradeBelowConfidence;
+        this.staleNanos = staleNanos;
+    }
+
+    // Grades the tracks the tracker just updated from frame where needed and copies
+    // every grade onto the matching detections
+    public void apply(Mat frame, List<YOLOv8Detector.Detection> detections, List<Track> updated, long nanos)
+            throws OrtException {
+        for (Track track : updated) {
+            Entry entry = entries.get(track.getId());
+            if (entry == null) {
+                if (track.isGraded()) {
+                    // Evicted after passing a line
+                    continue;
+                }
+                entry = new Entry();
+                entries.put(track.getId(), entry);
+            }
+            entry.lastNanos = nanos;
+
+            float area = track.getWidth() * track.getHeight();
+            if (!needsGrade(track, entry, area)) {
+                cachedCount++;
+                continue;
+            }
+            entry.grades++;
+            entry.area = area;
+            float halfW = track.getWidth() / 2;
+            float halfH = track.getHeight() / 2;
+            if (classifier.classify(frame, track.getCenterX() - halfW, track.getCenterY() - halfH,
+                    track.getCenterX() + halfW, track.getCenterY() + halfH)) {
+                tracker.applyGrade(track, classifier.getLastClassId(), classifier.getLastConfidence());
+                gradedCount++;
+            }
+        }
+
+        for (YOLOv8Detector.Detection det : detections) {
+            for (Track track : updated) {
+                if (track.getId() == det.trackId) {
+                    if (track.isGraded()) {
+                        det.classId = track.getClassId();
+                        det.confidence = track.getConfidence();
+                    }
+                    break;
+                }
+            }
+        }
+
+        entries.values().removeIf(entry -> nanos - entry.lastNanos > staleNanos);
+    }
+
+    private boolean needsGrade(Track track, Entry entry, float area) {
+        if (entry.grades >= maxGrades) {
+            return false;
+        }
+        if (!track.isGraded()) {
+            return true;
+        }
+        float limit = 1 + regradeAreaChange;
+        return track.getConfidence() < regradeBelowConfidence
+                || area > entry.area * limit || area * limit < entry.area;
+    }
+
+    // Called once the track has been counted at a line
+    public void evict(int trackId) {
+        entries.remove(trackId);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getGradedCount() {
+        return gradedCount;
+    }
+
+    public long getCachedCount() {
+        return cachedCount;
+    }
+}
@@ -0,0 +1,73 @@
+package com.arthroverse.vf17.detection;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Converts LANES pixels per step: one byte-vector load covers their 3 * LANES bytes,
+// a permute gathers one channel into the low lanes, and those are widened to ints and
+// then floats. Dividing by 255 (rather than multiplying by 1/255) keeps every value
+// bit-identical to the scalar kernel.
+public class VectorPixelNormalizer extends PixelNormalizer {
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final int LANES = FLOATS.length();
+
+    private static final VectorShuffle<Byte> BLUE = channelShuffle(0);
+    private static final VectorShuffle<Byte> GREEN = channelShuffle(1);
+    private static final VectorShuffle<Byte> RED = channelShuffle(2);
+    private static final FloatVector MAX = FloatVector.broadcast(FLOATS, 255.0f);
+
+    // Narrower vectors don't pay for the permutes
+    public static boolean isSupported() {
+        return LANES >= 8;
+    }
+
+    private static VectorShuffle<Byte> channelShuffle(int channel) {
+        int[] indexes = new int[BYTES.length()];
+        for (int k = 0; k < LANES; k++) {
+            indexes[k] = channel + 3 * k;
+        }
+        return VectorShuffle.fromArray(BYTES, indexes, 0);
+    }
+
+    @Override
+    protected void convert(byte[] bgr, ByteBuffer out, int planeSize, int from, int to) {
+        int gOffset = planeSize * Float.BYTES;
+        int bOffset = 2 * gOffset;
+        int i = from;
+        int p = from * 3;
+        // A load reads BYTES.length() bytes but only uses 3 * LANES of them
+        int lastLoad = bgr.length - BYTES.length();
+        for (; i + LANES <= to && p <= lastLoad; i += LANES, p += 3 * LANES) {
+            ByteVector pixels = ByteVector.fromArray(BYTES, bgr, p);
+            int o = i * Float.BYTES;
+            toFloats(pixels.rearrange(RED)).intoByteBuffer(out, o, ByteOrder.nativeOrder());
+            toFloats(pixels.rearrange(GREEN)).intoByteBuffer(out, gOffset + o, ByteOrder.nativeOrder());
+            toFloats(pixels.rearrange(BLUE)).intoByteBuffer(out, bOffset + o, ByteOrder.nativeOrder());
+        }
+        for (; i < to; i++, p += 3) {
+            int o = i * Float.BYTES;
+            out.putFloat(o, SCALE[bgr[p + 2] & 0xFF]);
+            out.putFloat(gOffset + o, SCALE[bgr[p + 1] & 0xFF]);
+            out.putFloat(bOffset + o, SCALE[bgr[p] & 0xFF]);
+        }
+    }
+
+    private static FloatVector toFloats(ByteVector channel) {
+        IntVector values = ((IntVector) channel.convertShape(VectorOperators.B2I, INTS, 0)).and(0xFF);
+        return ((FloatVector) values.convertShape(VectorOperators.I2F, FLOATS, 0)).div(MAX);
+    }
+
+    @Override
+    public String getName() {
+        return "vector-" + BYTES.vectorBitSize();
+    }
+}
@@ -1,105 +1,355 @@
 package com.arthroverse.vf17.detection;
 
 import ai.onnxruntime.*;
+import com.arthroverse.vf17.metrics.LatencyHistogram;
+import com.arthroverse.vf17.metrics.Metrics;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import org.opencv.core.*;
 import org.opencv.imgproc.Imgproc;
 
 public class YOLOv8Detector {
+    private static final LatencyHistogram PREPROCESS_LATENCY = Metrics.stage("preprocess");
+    private static final LatencyHistogram ORT_RUN_LATENCY = Metrics.stage("ort_run");
+    private static final LatencyHistogram DECODE_LATENCY = Metrics.stage("decode");
+    private static final LatencyHistogram NMS_LATENCY = Metrics.stage("nms");
+    private static final PixelNormalizer NORMALIZER = PixelNormalizer.create();
+
+    // Input sizes to offer for per-frame size selection. Dynamic-shape exports run all
+    // of them on one session; a fixed-size export gets the extra sizes from sibling
+    // exports named like best-320.onnx next to best.onnx, sizes without one are skipped.
+    private static final String INPUT_SIZES = System.getProperty("vf17.input.sizes", "320,480,640");
+    // Letterboxing keeps the frame's aspect ratio and pads the rest with gray, like the
+    // YOLOv8 exporter's own preprocessing; false stretches the frame to the input
+    private static final boolean LETTERBOX = Boolean.parseBoolean(
+            System.getProperty("vf17.input.letterbox", "true"));
+    private static final Scalar LETTERBOX_PAD = Scalar.all(114);
+
     private OrtEnvironment env;
-    private OrtSession session;
-    private final int inputWidth = 640;
-    private final int inputHeight = 640;
+    private static final int DEFAULT_INPUT_SIZE = 640;
     private final float confThreshold = 0.25f;
     private final float iouThreshold = 0.45f;
 
+    // Smallest first; the last one is the model's full size and the default
+    private final List<Scale> scales = new ArrayList<>();
+    private final Scale primary;
+    // Element types of the model's input and output. Reduced-precision exports are
+    // converted from/to the float32 that preprocessing and the decoder work in.
+    private final OnnxJavaType inputType;
+    private final OnnxJavaType outputType;
+    private final float outputScale;
+    private final int outputZeroPoint;
+    private final NmsEngine nms = new NmsEngine(iouThreshold);
+
+    // Slot used by detect(); pipelined callers create their own with createSlot()
+    private final Slot defaultSlot;
+
+    // Batched inference: one direct buffer sized for maxBatch frames of the largest
+    // size, viewed as a tensor per size and batch size so no tensor is created per call.
+    private int maxBatch = 1;
+    private ByteBuffer batchInput;
+    private ByteBuffer batchOutput;
+    private FloatBuffer batchOutputFloats;
+
+    // Number of heap/native buffers allocated by this detector. Stays constant once
+    // the first frame has been processed at each size unless the Mats have to be reallocated.
+    private final AtomicLong allocationCount = new AtomicLong();
+
     public YOLOv8Detector(String modelPath) throws OrtException {
-        env = OrtEnvironment.getEnvironment();
-        OrtSession.SessionOptions opts = new OrtSession.SessionOptions();
-        session = env.createSession(modelPath, opts);
+        this(modelPath, ExecutionProfile.load());
     }
 
-    private float[][] processOutput(OrtSession.Result results) throws OrtException {
-        OnnxValue outputValue = results.get(0);
-        float[][][] rawOutput = (float[][][]) outputValue.getValue();
+    public YOLOv8Detector(String modelPath, ExecutionProfile profile) throws OrtException {
+        this(modelPath, profile, false);
+    }
+
+    // useModelCache reuses the ORT-optimized model saved by an earlier start, or saves
+    // one for the next start, so graph optimization is only paid once per model
+    public YOLOv8Detector(String modelPath, ExecutionProfile profile, boolean useModelCache)
+            throws OrtException {
+        env = profile.createEnvironment();
+        OrtSession session = openSession(modelPath, profile, useModelCache);
+        String inputName = session.getInputNames().iterator().next();
+        String outputName = session.getOutputNames().iterator().next();
+        TensorInfo inputInfo = (TensorInfo) session.getInputInfo().get(inputName).getInfo();
+        TensorInfo outputInfo = (TensorInfo) session.getOutputInfo().get(outputName).getInfo();
+        inputType = inputInfo.type;
+        outputType = outputInfo.type;
+        if (!TensorPrecision.isSupported(inputType) || !TensorPrecision.isSupported(outputType)) {
+            session.close();
+            throw new IllegalArgumentException(modelPath + ": unsupported tensor types "
+                    + inputType + " -> " + outputType);
+        }
+
+        // Fully quantized outputs are dequantized with the model's output_scale and
+        // output_zero_point metadata, or -Dvf17.model.outputScale/outputZeroPoint
+        Map<String, String> metadata = session.getMetadata().getCustomMetadata();
+        String quantScale = System.getProperty("vf17.model.outputScale", metadata.get("output_scale"));
+        String zeroPoint = System.getProperty("vf17.model.outputZeroPoint",
+                metadata.getOrDefault("output_zero_point", "0"));
+        boolean quantizedOutput = outputType == OnnxJavaType.UINT8 || outputType == OnnxJavaType.INT8;
+        if (quantizedOutput && quantScale == null) {
+            session.close();
+            throw new IllegalArgumentException(modelPath + ": " + outputType
+                    + " output needs output_scale metadata or -Dvf17.model.outputScale");
+        }
+        outputScale = quantizedOutput ? Float.parseFloat(quantScale) : 1f;
+        outputZeroPoint = quantizedOutput ? Integer.parseInt(zeroPoint.trim()) : 0;
+
+        // Smaller fixed-size exports (e.g. 320x320 for ROI crops) are picked up from
+        // the model; dynamic spatial dims run at every configured size
+        long[] inputShape = inputInfo.getShape();
+        if (inputShape[2] > 0 && inputShape[3] > 0) {
+            scales.add(new Scale(session, (int) inputShape[3], (int) inputShape[2]));
+            for (int size : parseSizes(INPUT_SIZES)) {
+                if (size != inputShape[3]) {
+                    addSiblingScale(modelPath, size, profile, useModelCache);
+                }
+            }
+        } else {
+            List<Integer> sizes = parseSizes(INPUT_SIZES);
+            if (sizes.isEmpty()) {
+                sizes.add(DEFAULT_INPUT_SIZE);
+            }
+            for (int size : sizes) {
+                scales.add(new Scale(session, size, size));
+            }
+        }
+        scales.sort(Comparator.comparingInt((Scale s) -> s.width * s.height));
+        for (int i = 0; i < scales.size(); i++) {
+            Scale scale = scales.get(i);
+            scale.index = i;
+            if (scales.size() > 1) {
+                scale.ortLatency = Metrics.stage("ort_run_" + scale.width);
+            }
+        }
+        primary = scales.get(scales.size() - 1);
+
+        System.out.println("[ort] " + modelPath + ": " + profile + ", preprocess=" + NORMALIZER.getName()
+                + ", tensors=" + inputType + "->" + outputType + ", sizes=" + Arrays.toString(getInputSizes())
+                + (LETTERBOX ? " letterboxed" : " stretched"));
 
-        int numDetections = rawOutput[0][0].length;
-        int numFeatures = rawOutput[0].length;
+        defaultSlot = createSlot();
+    }
 
-        float[][] transposed = new float[numDetections][numFeatures];
-        for (int i = 0; i < numDetections; i++) {
-            for (int j = 0; j < numFeatures; j++) {
-                transposed[i][j] = rawOutput[0][j][i];
+    private OrtSession openSession(String modelPath, ExecutionProfile profile, boolean useModelCache)
+            throws OrtException {
+        OrtSession session = useModelCache ? createCachedSession(modelPath, profile) : null;
+        if (session == null) {
+            try (OrtSession.SessionOptions opts = profile.createSessionOptions()) {
+                session = env.createSession(modelPath, opts);
             }
         }
-        return transposed;
+        return session;
     }
 
-    private List<Detection> postProcess(float[][] output, int originalWidth,
-                                        int originalHeight) {
-        List<Detection> detections = new ArrayList<>();
+    // model/best.onnx at 320 -> model/best-320.onnx
+    private void addSiblingScale(String modelPath, int size, ExecutionProfile profile,
+                                 boolean useModelCache) throws OrtException {
+        String name = modelPath.endsWith(".onnx") ? modelPath.substring(0, modelPath.length() - 5) : modelPath;
+        String siblingPath = name + "-" + size + ".onnx";
+        if (!Files.exists(Paths.get(siblingPath))) {
+            return;
+        }
+        OrtSession session = openSession(siblingPath, profile, useModelCache);
+        String inputName = session.getInputNames().iterator().next();
+        String outputName = session.getOutputNames().iterator().next();
+        TensorInfo inputInfo = (TensorInfo) session.getInputInfo().get(inputName).getInfo();
+        TensorInfo outputInfo = (TensorInfo) session.getOutputInfo().get(outputName).getInfo();
+        long[] shape = inputInfo.getShape();
+        if (inputInfo.type != inputType || outputInfo.type != outputType || shape[2] <= 0 || shape[3] <= 0) {
+            System.out.println("[ort] ignoring " + siblingPath + ": needs a fixed-size "
+                    + inputType + "->" + outputType + " export");
+            session.close();
+            return;
+        }
+        scales.add(new Scale(session, (int) shape[3], (int) shape[2]));
+    }
 
-        for (float[] detection : output) {
-            float x_center = detection[0];
-            float y_center = detection[1];
-            float width = detection[2];
-            float height = detection[3];
-
-            float maxConf = 0;
-            int classId = 0;
-            for (int i = 4; i < detection.length; i++) {
-                if (detection[i] > maxConf) {
-                    maxConf = detection[i];
-                    classId = i - 4;
+    private static List<Integer> parseSizes(String value) {
+        List<Integer> sizes = new ArrayList<>();
+        for (String part : value.split(",")) {
+            if (!part.isBlank()) {
+                sizes.add(Integer.parseInt(part.trim()));
+            }
+        }
+        return sizes;
+    }
+
+    private OrtSession createCachedSession(String modelPath, ExecutionProfile profile) {
+        try {
+            Path cachePath = OptimizedModelCache.resolve(modelPath, env.getVersion(),
+                    profile.getOptLevel().name());
+            if (Files.exists(cachePath)) {
+                // Already optimized, so skip the optimizer on load
+                try (OrtSession.SessionOptions opts = profile.createSessionOptions()) {
+                    opts.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.NO_OPT);
+                    OrtSession cached = env.createSession(cachePath.toString(), opts);
+                    System.out.println("[ort] using optimized model cache " + cachePath);
+                    return cached;
+                }
+            }
+
+            Path temporary = OptimizedModelCache.temporaryFor(cachePath);
+            try (OrtSession.SessionOptions opts = profile.createSessionOptions()) {
+                opts.setOptimizedModelFilePath(temporary.toString());
+                OrtSession created = env.createSession(modelPath, opts);
+                try {
+                    Files.move(temporary, cachePath, StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                    System.out.println("[ort] saved optimized model cache " + cachePath);
+                } catch (IOException e) {
+                    e.printStackTrace();
                 }
+                return created;
             }
+        } catch (Exception e) {
+            // A broken cache must never stop the station from starting
+            e.printStackTrace();
+            return null;
+        }
+    }
 
-            if (maxConf > confThreshold) {
-                float x1 = (x_center - width / 2) * originalWidth / inputWidth;
-                float y1 = (y_center - height / 2) * originalHeight / inputHeight;
-                float x2 = (x_center + width / 2) * originalWidth / inputWidth;
-                float y2 = (y_center + height / 2) * originalHeight / inputHeight;
+    // Native memory of the detector's own slot; pipeline slots are counted by their jobs
+    public long getMatBytes() {
+        return defaultSlot.getMatBytes();
+    }
 
-                detections.add(new Detection(x1, y1, x2, y2, maxConf, classId));
+    // Buffers, tensors and decoders created so far; stops growing once every input
+    // size in use has run (see YOLOv8DetectorAllocationTest)
+    public long getAllocationCount() {
+        return allocationCount.get();
+    }
+
+    public Slot createSlot() throws OrtException {
+        return new Slot();
+    }
+
+    // Batching needs an export with a dynamic batch dimension and static output dims
+    public boolean supportsBatching() {
+        for (Scale scale : scales) {
+            if (scale.supportsBatching()) {
+                return true;
             }
         }
+        return false;
+    }
 
-        return applyNMS(detections);
+    public OnnxJavaType getInputType() {
+        return inputType;
     }
 
-    private List<Detection> applyNMS(List<Detection> detections) {
-        detections.sort((a, b) -> Float.compare(b.confidence, a.confidence));
-        List<Detection> result = new ArrayList<>();
+    public OnnxJavaType getOutputType() {
+        return outputType;
+    }
 
-        while (!detections.isEmpty()) {
-            Detection best = detections.remove(0);
-            result.add(best);
+    public int getMaxBatch() {
+        return maxBatch;
+    }
 
-            detections.removeIf(det ->
-                    det.classId == best.classId &&
-                            calculateIoU(best, det) > iouThreshold);
+    public void enableBatching(int maxBatch) throws OrtException {
+        if (!supportsBatching() || maxBatch < 2 || batchInput != null) {
+            return;
         }
+        int inputElements = 0;
+        int outputElements = 0;
+        for (Scale scale : scales) {
+            if (scale.supportsBatching()) {
+                inputElements = Math.max(inputElements, scale.inputElements());
+                outputElements = Math.max(outputElements, scale.outputElements());
+            }
+        }
+        batchInput = ByteBuffer.allocateDirect(maxBatch * inputElements * inputType.size)
+                .order(ByteOrder.nativeOrder());
+        batchOutput = ByteBuffer.allocateDirect(maxBatch * outputElements * outputType.size)
+                .order(ByteOrder.nativeOrder());
+        batchOutputFloats = batchOutput.asFloatBuffer();
+        allocationCount.addAndGet(2);
+        for (Scale scale : scales) {
+            if (scale.supportsBatching()) {
+                scale.createBatchTensors(maxBatch);
+            }
+        }
+        this.maxBatch = maxBatch;
+    }
 
-        return result;
+    private FloatBuffer processOutput(Buffers buffers, OrtSession.Result results) throws OrtException {
+        Scale scale = buffers.scale;
+        if (buffers.pinnedOutputs != null) {
+            if (outputType != OnnxJavaType.FLOAT) {
+                TensorPrecision.toFloats(outputType, buffers.outputRaw, 0, buffers.outputBuffer,
+                        buffers.outputBuffer.capacity(), outputScale, outputZeroPoint);
+            }
+            return buffers.outputBuffer;
+        }
+        // Dynamic-shape export: the output shape is only known after the first run at
+        // this size. That result is copied out once, then the output is pinned like a
+        // static one (the shape is fixed for a given input size).
+        OnnxTensor result = (OnnxTensor) results.get(0);
+        long[] shape = result.getInfo().getShape();
+        if (scale.decoder == null || scale.decoder.getNumFeatures() != shape[1]
+                || scale.decoder.getNumAnchors() != shape[2]) {
+            scale.decoder = new YoloOutputDecoder((int) shape[1], (int) shape[2], confThreshold);
+            allocationCount.incrementAndGet();
+        }
+        FloatBuffer values;
+        if (outputType == OnnxJavaType.UINT8 || outputType == OnnxJavaType.INT8) {
+            ByteBuffer raw = result.getByteBuffer();
+            values = FloatBuffer.allocate(raw.capacity());
+            TensorPrecision.toFloats(outputType, raw, 0, values, values.capacity(), outputScale, outputZeroPoint);
+        } else {
+            // Also upcasts FLOAT16
+            values = result.getFloatBuffer();
+        }
+        allocationCount.incrementAndGet();
+        buffers.pinOutput(shape[1], shape[2]);
+        return values;
     }
 
-    private float calculateIoU(Detection a, Detection b) {
-        float x1 = Math.max(a.x1, b.x1);
-        float y1 = Math.max(a.y1, b.y1);
-        float x2 = Math.min(a.x2, b.x2);
-        float y2 = Math.min(a.y2, b.y2);
+    // Decodes every region of one frame back into frame coordinates and runs a single
+    // NMS over the union, so objects straddling overlapping tiles are reported once
+    private List<Detection> postProcess(List<Slot> slots, int count) {
+        long start = System.nanoTime();
+        List<Detection> detections = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            decode(slots.get(i), detections);
+        }
+        DECODE_LATENCY.recordSince(start);
+        return applyNMS(detections);
+    }
 
-        float intersection = Math.max(0, x2 - x1) * Math.max(0, y2 - y1);
-        float areaA = (a.x2 - a.x1) * (a.y2 - a.y1);
-        float areaB = (b.x2 - b.x1) * (b.y2 - b.y1);
-        float union = areaA + areaB - intersection;
+    private void decode(Slot slot, List<Detection> out) {
+        Buffers buffers = slot.current;
+        buffers.scale.decoder.decode(slot.output, slot.regionWidth, slot.regionHeight,
+                buffers.contentWidth, buffers.contentHeight, buffers.padX, buffers.padY,
+                slot.offsetX, slot.offsetY, out);
+    }
 
-        return intersection / union;
+    private List<Detection> applyNMS(List<Detection> detections) {
+        long start = System.nanoTime();
+        List<Detection> kept = nms.apply(detections);
+        NMS_LATENCY.recordSince(start);
+        return kept;
     }
 
     public void close() throws OrtException {
-        session.close();
+        defaultSlot.close();
+        Set<OrtSession> sessions = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Scale scale : scales) {
+            scale.closeBatchTensors();
+            sessions.add(scale.session);
+        }
+        for (OrtSession session : sessions) {
+            session.close();
+        }
         env.close();
     }
 
@@ -107,6 +357,8 @@ public class YOLOv8Detector {
         public float x1, y1, x2, y2;
         public float confidence;
         public int classId;
+        // Assigned by the object tracker, -1 while untracked
+        public int trackId = -1;
 
         public Detection(float x1, float y1, float x2, float y2,
                          float confidence, int classId) {
@@ -119,49 +371,467 @@ public class YOLOv8Detector {
         }
     }
 
+    // One input resolution the detector can run at, with the session that runs it
+    // (shared between sizes for dynamic-shape exports), its decoder and batch tensors
+    private class Scale {
+        private final OrtSession session;
+        private final String inputName;
+        private final String outputName;
+        private final int width;
+        private final int height;
+        private final Size size;
+        // Output is [1, features, anchors]. When the export has static dims ORT writes
+        // straight into a slot's own direct buffer, otherwise the result buffer is read instead.
+        private final long[] outputShape;
+        private final boolean staticOutput;
+        private final boolean dynamicBatch;
+        // Only kept apart when there is more than one size
+        private LatencyHistogram ortLatency;
+        private int index;
+        private YoloOutputDecoder decoder;
+
+        private OnnxTensor[] batchInputTensors;
+        private OnnxTensor[] batchOutputTensors;
+        // Indexed by batch size; 0 and 1 are unused
+        private List<Map<String, OnnxTensor>> batchInputs;
+        private List<Map<String, OnnxTensor>> batchOutputs;
+        // Slots of this size taken out of a mixed batch
+        private final List<Slot> pending = new ArrayList<>();
+
+        private Scale(OrtSession session, int width, int height) throws OrtException {
+            this.session = session;
+            this.width = width;
+            this.height = height;
+            size = new Size(width, height);
+            inputName = session.getInputNames().iterator().next();
+            outputName = session.getOutputNames().iterator().next();
+            TensorInfo inputInfo = (TensorInfo) session.getInputInfo().get(inputName).getInfo();
+            outputShape = ((TensorInfo) session.getOutputInfo().get(outputName).getInfo()).getShape();
+            staticOutput = outputShape[1] > 0 && outputShape[2] > 0;
+            dynamicBatch = inputInfo.getShape()[0] < 0;
+            if (staticOutput) {
+                decoder = new YoloOutputDecoder((int) outputShape[1], (int) outputShape[2], confThreshold);
+                allocationCount.incrementAndGet();
+            }
+        }
+
+        private boolean supportsBatching() {
+            return dynamicBatch && staticOutput;
+        }
+
+        private int inputElements() {
+            return 3 * width * height;
+        }
+
+        private int outputElements() {
+            return (int) (outputShape[1] * outputShape[2]);
+        }
+
+        private void recordRun(long start) {
+            long end = ORT_RUN_LATENCY.recordSince(start);
+            if (ortLatency != null) {
+                ortLatency.record(end - start);
+            }
+        }
+
+        private void createBatchTensors(int maxBatch) throws OrtException {
+            batchInputTensors = new OnnxTensor[maxBatch + 1];
+            batchOutputTensors = new OnnxTensor[maxBatch + 1];
+            batchInputs = new ArrayList<>(Collections.nCopies(maxBatch + 1, null));
+            batchOutputs = new ArrayList<>(Collections.nCopies(maxBatch + 1, null));
+            for (int b = 2; b <= maxBatch; b++) {
+                ByteBuffer inputView = batchInput.slice(0, b * inputElements() * inputType.size)
+                        .order(ByteOrder.nativeOrder());
+                ByteBuffer outputView = batchOutput.slice(0, b * outputElements() * outputType.size)
+                        .order(ByteOrder.nativeOrder());
+                batchInputTensors[b] = OnnxTensor.createTensor(env, inputView,
+                        new long[]{b, 3, height, width}, inputType);
+                batchOutputTensors[b] = OnnxTensor.createTensor(env, outputView,
+                        new long[]{b, outputShape[1], outputShape[2]}, outputType);
+                batchInputs.set(b, Collections.singletonMap(inputName, batchInputTensors[b]));
+                batchOutputs.set(b, Collections.singletonMap(outputName, batchOutputTensors[b]));
+            }
+            allocationCount.addAndGet(2L * (maxBatch - 1));
+        }
+
+        private void closeBatchTensors() {
+            if (batchInputTensors == null) {
+                return;
+            }
+            for (int b = 2; b < batchInputTensors.length; b++) {
+                batchInputTensors[b].close();
+                batchOutputTensors[b].close();
+            }
+        }
+    }
+
+    // A slot's buffers for one input size: the resize target, pixel staging and the
+    // direct input/output tensors
+    private class Buffers {
+        private final Scale scale;
+        private final Mat resized;
+        private long resizedAddr;
+        // The part of resized the frame is scaled into; the rest is letterbox padding
+        private Mat content;
+        private int contentWidth;
+        private int contentHeight;
+        private Size contentSize;
+        private int padX;
+        private int padY;
+        private final byte[] pixels;
+        // Tensor memory in the model's input type, and the float32 planes the
+        // normalizer writes (the same buffer for float32 models, null for quantized ones)
+        private final ByteBuffer inputBytes;
+        private final ByteBuffer floatInput;
+        private final OnnxTensor inputTensor;
+        private final Map<String, OnnxTensor> inputs;
+        private ByteBuffer outputRaw;
+        private FloatBuffer outputBuffer;
+        private OnnxTensor outputTensor;
+        private Map<String, OnnxTensor> pinnedOutputs;
+
+        private Buffers(Scale scale) throws OrtException {
+            this.scale = scale;
+            resized = new Mat(scale.height, scale.width, CvType.CV_8UC3, LETTERBOX_PAD);
+            resizedAddr = resized.dataAddr();
+            content = resized;
+            contentWidth = scale.width;
+            contentHeight = scale.height;
+            contentSize = scale.size;
+            pixels = new byte[scale.inputElements()];
+            allocationCount.addAndGet(2);
+
+            // A direct buffer lets ORT use the memory as-is, so the tensor is created once
+            // and only its contents change between frames.
+            int inputElements = scale.inputElements();
+            inputBytes = ByteBuffer.allocateDirect(inputElements * inputType.size)
+                    .order(ByteOrder.nativeOrder());
+            if (inputType == OnnxJavaType.FLOAT) {
+                floatInput = inputBytes;
+            } else if (inputType == OnnxJavaType.FLOAT16) {
+                floatInput = ByteBuffer.allocateDirect(inputElements * Float.BYTES)
+                        .order(ByteOrder.nativeOrder());
+                allocationCount.incrementAndGet();
+            } else {
+                floatInput = null;
+            }
+            long[] shape = {1, 3, scale.height, scale.width};
+            inputTensor = OnnxTensor.createTensor(env, inputBytes, shape, inputType);
+            inputs = Collections.singletonMap(scale.inputName, inputTensor);
+            allocationCount.addAndGet(2);
+
+            if (scale.staticOutput) {
+                pinOutput(scale.outputShape[1], scale.outputShape[2]);
+            }
+        }
+
+        // Output tensor ORT writes into directly, so a result isn't copied out per frame
+        private void pinOutput(long features, long anchors) throws OrtException {
+            int outputElements = (int) (features * anchors);
+            outputRaw = ByteBuffer.allocateDirect(outputElements * outputType.size)
+                    .order(ByteOrder.nativeOrder());
+            if (outputType == OnnxJavaType.FLOAT) {
+                outputBuffer = outputRaw.asFloatBuffer();
+            } else {
+                outputBuffer = ByteBuffer.allocateDirect(outputElements * Float.BYTES)
+                        .order(ByteOrder.nativeOrder())
+                        .asFloatBuffer();
+                allocationCount.incrementAndGet();
+            }
+            outputTensor = OnnxTensor.createTensor(env, outputRaw, new long[]{1, features, anchors}, outputType);
+            pinnedOutputs = Collections.singletonMap(scale.outputName, outputTensor);
+            allocationCount.addAndGet(2);
+        }
+
+        // Letterbox placement for a frame of the given size. Only changes with the
+        // frame (or tile) size, so the padding is painted once, not per frame.
+        private void fit(int frameWidth, int frameHeight) {
+            int width = scale.width;
+            int height = scale.height;
+            if (LETTERBOX) {
+                double gain = Math.min((double) scale.width / frameWidth, (double) scale.height / frameHeight);
+                width = Math.max(1, (int) Math.round(frameWidth * gain));
+                height = Math.max(1, (int) Math.round(frameHeight * gain));
+            }
+            if (width == contentWidth && height == contentHeight) {
+                return;
+            }
+            if (content != resized) {
+                content.release();
+            }
+            contentWidth = width;
+            contentHeight = height;
+            contentSize = new Size(width, height);
+            padX = (scale.width - width) / 2;
+            padY = (scale.height - height) / 2;
+            resized.setTo(LETTERBOX_PAD);
+            content = width == scale.width && height == scale.height
+                    ? resized
+                    : resized.submat(padY, padY + height, padX, padX + width);
+        }
+
+        private void close() {
+            inputTensor.close();
+            if (outputTensor != null) {
+                outputTensor.close();
+            }
+            if (content != resized) {
+                content.release();
+            }
+            resized.release();
+        }
+    }
+
+    // Buffers for one frame in flight, per input size. A slot is used by one thread at
+    // a time, which lets preprocessing of one frame overlap inference of another.
+    // Buffers for the smaller sizes are only allocated once a frame is run at them.
+    public class Slot implements AutoCloseable {
+        private final Buffers[] buffers = new Buffers[scales.size()];
+        // Buffers the last preprocess filled
+        private Buffers current;
+        private FloatBuffer output;
+        // Part of the frame this slot was filled from
+        private int offsetX;
+        private int offsetY;
+        private int regionWidth;
+        private int regionHeight;
+
+        private Slot() throws OrtException {
+            current = buffersFor(primary);
+        }
+
+        private Buffers buffersFor(Scale scale) throws OrtException {
+            Buffers b = buffers[scale.index];
+            if (b == null) {
+                b = new Buffers(scale);
+                buffers[scale.index] = b;
+            }
+            return b;
+        }
+
+        public long getMatBytes() {
+            long bytes = 0;
+            for (Buffers b : buffers) {
+                if (b != null) {
+                    bytes += Metrics.matBytes(b.resized);
+                }
+            }
+            return bytes;
+        }
+
+        // Raw model output of the last inference on this slot, read-only
+        public FloatBuffer getOutput() {
+            return output == null ? null : output.asReadOnlyBuffer();
+        }
+
+        // Input size (width) of the last preprocess
+        public int getInputSize() {
+            return current.scale.width;
+        }
+
+        @Override
+        public void close() {
+            for (Buffers b : buffers) {
+                if (b != null) {
+                    b.close();
+                }
+            }
+        }
+    }
+
     public List<Detection> detect(Mat frame) throws OrtException {
-        float[] inputData = preprocessMat(frame);
+        preprocess(frame, defaultSlot);
+        infer(defaultSlot);
+        return postprocess(defaultSlot);
+    }
 
-        long[] shape = {1, 3, inputHeight, inputWidth};
-        OnnxTensor inputTensor = OnnxTensor.createTensor(env,
-                FloatBuffer.wrap(inputData), shape);
+    public void preprocess(Mat frame, Slot slot) {
+        preprocess(frame, null, slot);
+    }
 
-        Map<String, OnnxTensor> inputs = new HashMap<>();
-        inputs.put(session.getInputNames().iterator().next(), inputTensor);
+    // Fills the slot from one region of the frame (null for the whole frame) at the
+    // model's full input size. Boxes decoded from the slot are mapped back to
+    // full-frame coordinates.
+    public void preprocess(Mat frame, Rect region, Slot slot) {
+        slot.current = slot.buffers[primary.index];
+        preprocessRegion(frame, region, slot);
+    }
 
-        OrtSession.Result results = session.run(inputs);
+    // As above at the smallest available input size of at least inputSize (the largest
+    // if there is none); 0 means the full size
+    public void preprocess(Mat frame, Rect region, Slot slot, int inputSize) throws OrtException {
+        slot.current = slot.buffersFor(scaleFor(inputSize));
+        preprocessRegion(frame, region, slot);
+    }
 
-        float[][] output = processOutput(results);
-        List<Detection> detections = postProcess(output, frame.width(), frame.height());
+    private Scale scaleFor(int inputSize) {
+        if (inputSize <= 0) {
+            return primary;
+        }
+        for (Scale scale : scales) {
+            if (scale.width >= inputSize) {
+                return scale;
+            }
+        }
+        return primary;
+    }
 
-        inputTensor.close();
-        results.close();
+    // Available input sizes (widths), smallest first
+    public int[] getInputSizes() {
+        int[] sizes = new int[scales.size()];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = scales.get(i).width;
+        }
+        return sizes;
+    }
 
-        return detections;
+    private void preprocessRegion(Mat frame, Rect region, Slot slot) {
+        if (region == null) {
+            slot.offsetX = 0;
+            slot.offsetY = 0;
+            slot.regionWidth = frame.width();
+            slot.regionHeight = frame.height();
+            long start = System.nanoTime();
+            preprocessMat(frame, slot.current);
+            PREPROCESS_LATENCY.recordSince(start);
+            return;
+        }
+        slot.offsetX = region.x;
+        slot.offsetY = region.y;
+        slot.regionWidth = region.width;
+        slot.regionHeight = region.height;
+        long start = System.nanoTime();
+        Mat crop = frame.submat(region);
+        try {
+            preprocessMat(crop, slot.current);
+        } finally {
+            crop.release();
+        }
+        PREPROCESS_LATENCY.recordSince(start);
     }
 
-    private float[] preprocessMat(Mat frame) {
-        Mat resized = new Mat();
-        Imgproc.resize(frame, resized, new Size(inputWidth, inputHeight));
+    public void infer(Slot slot) throws OrtException {
+        Buffers buffers = slot.current;
+        Scale scale = buffers.scale;
+        long start = System.nanoTime();
+        try (OrtSession.Result results = buffers.pinnedOutputs != null
+                ? scale.session.run(buffers.inputs, buffers.pinnedOutputs)
+                : scale.session.run(buffers.inputs)) {
+            scale.recordRun(start);
+            slot.output = processOutput(buffers, results);
+        }
+    }
 
-        Mat rgb = new Mat();
-        Imgproc.cvtColor(resized, rgb, Imgproc.COLOR_BGR2RGB);
+    // Runs already-preprocessed slots as one batch-dimension session.run and copies
+    // each frame's slice back into its slot, so postprocess works per slot as usual.
+    // More slots than maxBatch are run in maxBatch-sized chunks, and slots filled at
+    // different input sizes are batched per size.
+    public void inferBatch(List<Slot> slots) throws OrtException {
+        if (scales.size() == 1) {
+            inferScale(primary, slots);
+            return;
+        }
+        for (Scale scale : scales) {
+            scale.pending.clear();
+            for (Slot slot : slots) {
+                if (slot.current.scale == scale) {
+                    scale.pending.add(slot);
+                }
+            }
+            if (!scale.pending.isEmpty()) {
+                inferScale(scale, scale.pending);
+            }
+        }
+    }
+
+    private void inferScale(Scale scale, List<Slot> slots) throws OrtException {
+        for (int from = 0; from < slots.size(); from += maxBatch) {
+            inferChunk(scale, slots, from, Math.min(slots.size(), from + maxBatch));
+        }
+    }
 
-        float[] data = new float[3 * inputHeight * inputWidth];
-        int idx = 0;
+    private void inferChunk(Scale scale, List<Slot> slots, int from, int to) throws OrtException {
+        int batchSize = to - from;
+        if (batchSize == 1 || scale.batchInputs == null) {
+            for (int i = from; i < to; i++) {
+                infer(slots.get(i));
+            }
+            return;
+        }
 
-        byte[] pixels = new byte[(int) rgb.total() * rgb.channels()];
-        rgb.get(0, 0, pixels);
+        int inputBytes = scale.inputElements() * inputType.size;
+        int outputElements = scale.outputElements();
+        for (int i = 0; i < batchSize; i++) {
+            batchInput.put(i * inputBytes, slots.get(from + i).current.inputBytes, 0, inputBytes);
+        }
 
-        for (int c = 0; c < 3; c++) {
-            for (int h = 0; h < inputHeight; h++) {
-                for (int w = 0; w < inputWidth; w++) {
-                    int pixelIndex = (h * inputWidth + w) * 3 + c;
-                    data[idx++] = (pixels[pixelIndex] & 0xFF) / 255.0f;
+        long start = System.nanoTime();
+        // The outputs are pinned to batchOutput, the result only has to be closed
+        OrtSession.Result results = scale.session.run(scale.batchInputs.get(batchSize),
+                scale.batchOutputs.get(batchSize));
+        try {
+            scale.recordRun(start);
+            for (int i = 0; i < batchSize; i++) {
+                Slot slot = slots.get(from + i);
+                FloatBuffer outputBuffer = slot.current.outputBuffer;
+                if (outputType == OnnxJavaType.FLOAT) {
+                    outputBuffer.put(0, batchOutputFloats, i * outputElements, outputElements);
+                } else {
+                    TensorPrecision.toFloats(outputType, batchOutput, i * outputElements, outputBuffer,
+                            outputElements, outputScale, outputZeroPoint);
                 }
+                slot.output = outputBuffer;
             }
+        } finally {
+            results.close();
         }
+    }
+
+    // Decoding and NMS share per-detector buffers, so postprocess must only be
+    // called from one thread at a time.
+    public List<Detection> postprocess(Slot slot) {
+        long start = System.nanoTime();
+        List<Detection> detections = new ArrayList<>();
+        decode(slot, detections);
+        DECODE_LATENCY.recordSince(start);
+        return applyNMS(detections);
+    }
+
+    // Merges the first count slots, all filled from regions of the same frame
+    public List<Detection> postprocess(List<Slot> slots, int count) {
+        return postProcess(slots, count);
+    }
 
-        return data;
+    public int getInputWidth() {
+        return primary.width;
+    }
+
+    public int getInputHeight() {
+        return primary.height;
+    }
+
+    private void preprocessMat(Mat frame, Buffers buffers) {
+        Scale scale = buffers.scale;
+        buffers.fit(frame.width(), frame.height());
+        Imgproc.resize(frame, buffers.content, buffers.contentSize);
+
+        // OpenCV silently reallocates a destination Mat whose size/type doesn't match
+        if (buffers.resized.dataAddr() != buffers.resizedAddr) {
+            buffers.resizedAddr = buffers.resized.dataAddr();
+            allocationCount.incrementAndGet();
+        }
+
+        // Still BGR: the normalizer writes the planes in RGB order
+        buffers.resized.get(0, 0, buffers.pixels);
+        int planeSize = scale.width * scale.height;
+        if (buffers.floatInput == null) {
+            TensorPrecision.toQuantizedPlanes(buffers.pixels, buffers.inputBytes, planeSize,
+                    inputType == OnnxJavaType.INT8);
+            return;
+        }
+        NORMALIZER.normalize(buffers.pixels, buffers.floatInput, planeSize);
+        if (inputType == OnnxJavaType.FLOAT16) {
+            TensorPrecision.toFloat16(buffers.floatInput, buffers.inputBytes, 3 * planeSize);
+        }
     }
-}
\ No newline at end of file
+}
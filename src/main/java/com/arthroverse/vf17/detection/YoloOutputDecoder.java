@@ -0,0 +1,87 @@
+package com.arthroverse.vf17.detection;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+// Decodes a raw YOLOv8 output tensor laid out as [features][anchors]
+// (4 box coordinates followed by one score row per class) without copying it
+// into Java arrays first.
+public class YoloOutputDecoder {
+    private final int numFeatures;
+    private final int numAnchors;
+    private final float confThreshold;
+
+    // Per-anchor running maximum, reused between frames
+    private final float[] bestScore;
+    private final int[] bestClass;
+
+    public YoloOutputDecoder(int numFeatures, int numAnchors, float confThreshold) {
+        this.numFeatures = numFeatures;
+        this.numAnchors = numAnchors;
+        this.confThreshold = confThreshold;
+        this.bestScore = new float[numAnchors];
+        this.bestClass = new int[numAnchors];
+    }
+
+    public int getNumFeatures() {
+        return numFeatures;
+    }
+
+    public int getNumAnchors() {
+        return numAnchors;
+    }
+
+    public void decode(FloatBuffer output, int originalWidth, int originalHeight,
+                       int inputWidth, int inputHeight, List<YOLOv8Detector.Detection> out) {
+        decode(output, originalWidth, originalHeight, inputWidth, inputHeight, 0, 0, out);
+    }
+
+    // originalWidth/Height is the size of the region that was fed to the model and
+    // offsetX/Y its position in the full frame, so boxes come back in frame coordinates
+    public void decode(FloatBuffer output, int originalWidth, int originalHeight,
+                       int inputWidth, int inputHeight, int offsetX, int offsetY,
+                       List<YOLOv8Detector.Detection> out) {
+        decode(output, originalWidth, originalHeight, inputWidth, inputHeight, 0, 0, offsetX, offsetY, out);
+    }
+
+    // Letterboxed input: the region was scaled to contentWidth x contentHeight and
+    // placed at padX/padY inside the model input, the padding is taken off first
+    public void decode(FloatBuffer output, int originalWidth, int originalHeight,
+                       int contentWidth, int contentHeight, int padX, int padY,
+                       int offsetX, int offsetY, List<YOLOv8Detector.Detection> out) {
+        Arrays.fill(bestScore, 0f);
+        Arrays.fill(bestClass, 0);
+
+        // Class rows are scanned sequentially so the buffer is read in memory order;
+        // strict '>' keeps the lowest class id on ties, like the per-anchor scan did.
+        for (int f = 4; f < numFeatures; f++) {
+            int rowOffset = f * numAnchors;
+            int classId = f - 4;
+            for (int a = 0; a < numAnchors; a++) {
+                float score = output.get(rowOffset + a);
+                if (score > bestScore[a]) {
+                    bestScore[a] = score;
+                    bestClass[a] = classId;
+                }
+            }
+        }
+
+        for (int a = 0; a < numAnchors; a++) {
+            float maxConf = bestScore[a];
+            if (maxConf > confThreshold) {
+                float x_center = output.get(a);
+                float y_center = output.get(numAnchors + a);
+                float width = output.get(2 * numAnchors + a);
+                float height = output.get(3 * numAnchors + a);
+
+                float x1 = (x_center - width / 2 - padX) * originalWidth / contentWidth + offsetX;
+                float y1 = (y_center - height / 2 - padY) * originalHeight / contentHeight + offsetY;
+                float x2 = (x_center + width / 2 - padX) * originalWidth / contentWidth + offsetX;
+                float y2 = (y_center + height / 2 - padY) * originalHeight / contentHeight + offsetY;
+
+                out.add(new YOLOv8Detector.Detection(x1, y1, x2, y2, maxConf, bestClass[a]));
+            }
+        }
+    }
+}
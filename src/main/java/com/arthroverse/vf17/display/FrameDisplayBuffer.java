@@ -0,0 +1,105 @@
+package com.arthroverse.vf17.display;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Triple-buffered hand-off of display frames from a capture thread to the UI. Each
+// buffer is a direct BGRA ByteBuffer that the UI wraps once in a PixelBuffer, and an
+// OpenCV Mat over the same memory so the capture thread converts straight into it.
+// The capture thread owns the write buffer, the UI owns the display buffer, and the
+// two swap with the "ready" buffer atomically, so neither side ever blocks or allocates.
+public class FrameDisplayBuffer {
+    private static final int INDEX_MASK = 3;
+    private static final int DIRTY = 4;
+
+    private final int width;
+    private final int height;
+    private final ByteBuffer[] buffers = new ByteBuffer[3];
+    private final Mat[] mats = new Mat[3];
+    // Source timestamp of the frame in each buffer, handed over with the index
+    private final long[] captureNanos = new long[3];
+
+    // Index of the most recently published buffer, with DIRTY set until the UI takes it
+    private final AtomicInteger ready = new AtomicInteger(1);
+    // Set once the UI has taken a frame, after which the UI releases the buffer
+    private volatile boolean taken = false;
+    private boolean released = false;
+    private int writeIndex = 0;
+    private int displayIndex = 2;
+
+    public FrameDisplayBuffer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(width * height * 4);
+            mats[i] = new Mat(height, width, CvType.CV_8UC4, buffers[i]);
+        }
+    }
+
+    public boolean matches(Mat frame) {
+        return frame.cols() == width && frame.rows() == height;
+    }
+
+    // Capture thread: converts the BGR frame into the write buffer and publishes it
+    // with its capture timestamp (FrameSource.getTimestampNanos)
+    public void publish(Mat bgrFrame, long captureNanos) {
+        Imgproc.cvtColor(bgrFrame, mats[writeIndex], Imgproc.COLOR_BGR2BGRA);
+        this.captureNanos[writeIndex] = captureNanos;
+        writeIndex = ready.getAndSet(writeIndex | DIRTY) & INDEX_MASK;
+    }
+
+    // UI thread: index of the buffer holding the newest frame, or -1 if nothing new
+    // was published since the last call. The returned buffer stays untouched by the
+    // capture thread until the next successful call.
+    public int acquireLatest() {
+        if ((ready.get() & DIRTY) == 0) {
+            return -1;
+        }
+        displayIndex = ready.getAndSet(displayIndex) & INDEX_MASK;
+        taken = true;
+        return displayIndex;
+    }
+
+    public boolean wasTaken() {
+        return taken;
+    }
+
+    // Capture timestamp of the frame in a buffer returned by acquireLatest, on the
+    // source's clock, which is virtual for playback and replay sources
+    public long getCaptureNanos(int index) {
+        return captureNanos[index];
+    }
+
+    public ByteBuffer getBuffer(int index) {
+        return buffers[index];
+    }
+
+    public int getBufferCount() {
+        return buffers.length;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    // Frees the Mats once nothing publishes into this buffer any more. The pixel
+    // memory itself is the direct ByteBuffers, so a PixelBuffer the UI still shows
+    // stays valid. Safe to call more than once.
+    public synchronized void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        for (Mat mat : mats) {
+            mat.release();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.arthroverse.vf17.main;
+
+import com.arthroverse.vf17.batch.BatchOptions;
+import com.arthroverse.vf17.batch.BatchProcessor;
+import com.arthroverse.vf17.batch.ResultWriter;
+import com.arthroverse.vf17.source.FrameSources;
+import com.arthroverse.vf17.source.VideoFileFrameSource;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Headless entry point: runs detection and crossing checks over video files and
+// image folders (or synthetic:/replay: sources, see FrameSources) and writes the
+// results as CSV or JSON lines, e.g.
+//   java -cp VF17Detection-shaded.jar com.arthroverse.vf17.main.VF17Batch --workers 4 --format jsonl shift.mp4
+public class VF17Batch {
+    private static final String[] IMAGE_EXTENSIONS = {".jpg", ".jpeg", ".png", ".bmp"};
+    private static final String[] SOURCE_PREFIXES = {"video:", "synthetic:", "replay:"};
+
+    public static void main(String[] args) throws Exception {
+        BatchOptions options;
+        try {
+            options = BatchOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(BatchOptions.usage());
+            System.exit(1);
+            return;
+        }
+
+        nu.pattern.OpenCV.loadLocally();
+
+        PrintWriter out = options.getOutput() == null
+                ? new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)))
+                : new PrintWriter(Files.newBufferedWriter(Paths.get(options.getOutput()), StandardCharsets.UTF_8));
+
+        long start;
+        BatchProcessor processor = null;
+        try (ResultWriter writer = new ResultWriter(out, options.getFormat())) {
+            processor = new BatchProcessor(options.getModelPath(), options.getWorkers(), writer,
+                    options.isCrossingsOnly());
+            start = System.nanoTime();
+            for (String input : options.getInputs()) {
+                Path path = Paths.get(input);
+                if (Files.isDirectory(path)) {
+                    processor.processImages(input, listImages(path));
+                } else if (isImage(path)) {
+                    processor.processImages(input, List.of(path));
+                } else if (isSourceSpec(input)) {
+                    processor.processSource(FrameSources.fromSpec(input));
+                } else {
+                    processor.processSource(new VideoFileFrameSource(input, false, false));
+                }
+            }
+        } finally {
+            if (processor != null) {
+                processor.close();
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf(Locale.ROOT,
+                "[batch] %d frames from %d sources in %.1f s: %.1f frames/s with %d workers, %d detections, %d crossings%n",
+                processor.getFrames(), processor.getSources(), seconds, processor.getFrames() / seconds,
+                processor.getWorkers(), processor.getDetections(), processor.getCrossings());
+    }
+
+    private static List<Path> listImages(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(VF17Batch::isImage).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static boolean isSourceSpec(String input) {
+        for (String prefix : SOURCE_PREFIXES) {
+            if (input.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isImage(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        for (String extension : IMAGE_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
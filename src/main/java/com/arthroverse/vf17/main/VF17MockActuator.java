@@ -0,0 +1,58 @@
+package com.arthroverse.vf17.main;
+
+import com.arthroverse.vf17.trigger.MockActuator;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+// Mock reject actuator for testing -Dvf17.trigger.sinks without the arm, e.g.
+//   java -cp ... com.arthroverse.vf17.main.VF17MockActuator --socket /tmp/vf17-arm.sock --actuateMs 5
+// with the app started with -Dvf17.trigger.sinks=unix:/tmp/vf17-arm.sock
+public class VF17MockActuator {
+
+    public static void main(String[] args) throws Exception {
+        String socket = null;
+        int port = 0;
+        long actuateMillis = 0;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--socket":
+                    socket = args[i + 1];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--actuateMs":
+                    actuateMillis = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(1);
+            }
+        }
+        if (socket == null && port <= 0) {
+            System.err.println("Usage: VF17MockActuator (--socket PATH | --port PORT) [--actuateMs MS]");
+            System.exit(1);
+        }
+
+        ServerSocketChannel server;
+        if (socket != null) {
+            Path path = Paths.get(socket);
+            Files.deleteIfExists(path);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(UnixDomainSocketAddress.of(path));
+        } else {
+            server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        }
+        System.out.printf("[actuator] listening on %s%n", socket != null ? socket : "127.0.0.1:" + port);
+        new MockActuator(TimeUnit.MILLISECONDS.toNanos(actuateMillis)).serve(server);
+    }
+}
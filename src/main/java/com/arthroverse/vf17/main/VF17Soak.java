@@ -0,0 +1,83 @@
+package com.arthroverse.vf17.main;
+
+import com.arthroverse.vf17.detection.CameraStream;
+import com.arthroverse.vf17.detection.DetectionHandler;
+import com.arthroverse.vf17.pipeline.DetectionPipeline;
+import com.arthroverse.vf17.pipeline.PipelineStage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+// Headless soak run of the full live pipeline on whatever -Dvf17.sources names,
+// typically synthetic or looping replay sources on a machine without a camera, e.g.
+//   java -Dvf17.sources=synthetic,replay:/data/session1?loop -cp ... com.arthroverse.vf17.main.VF17Soak 240 60
+// runs for 240 minutes and prints throughput, drops, heap and resident memory every
+// 60 seconds, so throughput regressions and native (OpenCV/ORT) leaks show up as trends.
+public class VF17Soak {
+
+    public static void main(String[] args) throws Exception {
+        long minutes = args.length > 0 ? Long.parseLong(args[0]) : 60;
+        long intervalSeconds = args.length > 1 ? Long.parseLong(args[1]) : 60;
+
+        DetectionHandler handler = new DetectionHandler(message -> System.out.println("[soak] " + message));
+        handler.startCamera();
+        if (!handler.isRunning()) {
+            System.out.println("[soak] no frame source could be opened");
+            handler.shutdown();
+            System.exit(1);
+            return;
+        }
+
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MINUTES.toNanos(minutes);
+        long lastFrames = 0;
+        long lastNanos = start;
+        while (System.nanoTime() < end && handler.isRunning()) {
+            Thread.sleep(TimeUnit.SECONDS.toMillis(intervalSeconds));
+            long now = System.nanoTime();
+            long frames = 0;
+            for (CameraStream stream : handler.getStreams()) {
+                frames += stream.getFrameCount();
+            }
+            report(handler, (now - start) / 1e9, (frames - lastFrames) / ((now - lastNanos) / 1e9));
+            lastFrames = frames;
+            lastNanos = now;
+        }
+        handler.shutdown();
+    }
+
+    private static void report(DetectionHandler handler, double elapsedSeconds, double captureFps) {
+        DetectionPipeline pipeline = handler.getPipeline();
+        StringBuilder stages = new StringBuilder();
+        if (pipeline != null) {
+            for (PipelineStage stage : pipeline.getStages()) {
+                stages.append(String.format(" %s=%.1f/s %.1fms", stage.getName(),
+                        stage.getThroughput(), stage.getAverageLatencyMs()));
+            }
+        }
+        Runtime runtime = Runtime.getRuntime();
+        long heapMb = (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+        System.out.printf("[soak] t=%.0fs capture=%.1f fps submitted=%d dropped=%d%s heap=%dMB rss=%s"
+                        + " detectorAllocations=%d%n",
+                elapsedSeconds, captureFps,
+                pipeline != null ? pipeline.getSubmittedFrames() : 0,
+                pipeline != null ? pipeline.getDroppedFrames() : 0,
+                stages, heapMb, residentMemory(), handler.getDetectorAllocations());
+    }
+
+    // Resident set size from /proc, which includes OpenCV and ORT native memory
+    private static String residentMemory() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return line.substring(6).trim().replace(" kB", "kB");
+                }
+            }
+        } catch (IOException e) {
+            // Not on Linux
+        }
+        return "n/a";
+    }
+}
@@ -0,0 +1,78 @@
+package com.arthroverse.vf17.main;
+
+import com.arthroverse.vf17.detection.ExecutionProfile;
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+import com.arthroverse.vf17.worker.WorkerServer;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Inference worker process for -Dvf17.workers (see WorkerPool, which starts these):
+// hosts one YOLOv8Detector and serves detection requests on a Unix-domain socket or
+// a loopback TCP port, e.g.
+//   java -cp ... com.arthroverse.vf17.main.VF17Worker --model best.onnx --socket /tmp/vf17/worker-0.sock
+// Exits with the process that started it.
+public class VF17Worker {
+    private static final int WARMUP_RUNS = Integer.getInteger("vf17.warmupRuns", 3);
+
+    public static void main(String[] args) throws Exception {
+        String model = null;
+        String socket = null;
+        int port = 0;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--model":
+                    model = args[i + 1];
+                    break;
+                case "--socket":
+                    socket = args[i + 1];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(1);
+            }
+        }
+        if (model == null || (socket == null && port <= 0)) {
+            System.err.println("Usage: VF17Worker --model MODEL (--socket PATH | --port PORT)");
+            System.exit(1);
+        }
+        ProcessHandle.current().parent().ifPresent(parent -> parent.onExit().thenRun(() -> System.exit(0)));
+
+        nu.pattern.OpenCV.loadLocally();
+        YOLOv8Detector detector = new YOLOv8Detector(model, ExecutionProfile.load(),
+                Boolean.parseBoolean(System.getProperty("vf17.model.cache", "true")));
+        // Regions (ROI tiles) of one frame are run as a batch
+        detector.enableBatching(Math.max(1, Integer.getInteger("vf17.roi.tiles", 1)));
+        Mat blank = new Mat(574, 860, CvType.CV_8UC3, new Scalar(114, 114, 114));
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            detector.detect(blank);
+        }
+        blank.release();
+
+        ServerSocketChannel server;
+        if (socket != null) {
+            Path path = Paths.get(socket);
+            Files.deleteIfExists(path);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(UnixDomainSocketAddress.of(path));
+        } else {
+            server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        }
+        System.out.printf("[worker] pid %d serving %s on %s%n", ProcessHandle.current().pid(), model,
+                socket != null ? socket : "127.0.0.1:" + port);
+        new WorkerServer(detector).serve(server);
+    }
+}
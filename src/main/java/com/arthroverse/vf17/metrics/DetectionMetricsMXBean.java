@@ -0,0 +1,13 @@
+package com.arthroverse.vf17.metrics;
+
+import java.util.Map;
+
+// JMX view of the frame counters and gauges, registered as com.arthroverse.vf17:type=DetectionMetrics
+public interface DetectionMetricsMXBean {
+
+    // Frames by outcome: captured, inferred, skipped, gated, dropped
+    Map<String, Long> getFrames();
+
+    // Every gauge series by its Prometheus name, e.g. vf17_queue_depth{stage="infer"}
+    Map<String, Double> getGauges();
+}
@@ -0,0 +1,166 @@
+package com.arthroverse.vf17.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock-free log-linear latency histogram: microsecond values, exact below 128us and
+// 64 sub-buckets per power of two above (under 2% resolution) up to a minute.
+// Quantiles and max cover the last one to two windows, so a stall shows up and
+// then ages out; count and sum are cumulative for Prometheus rates. Recording is
+// a couple of atomic adds, cheap enough for every frame.
+public class LatencyHistogram implements StageLatencyMXBean {
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // Below this every microsecond has its own bucket
+    private static final int LINEAR = SUB_BUCKETS * 2;
+    private static final int FIRST_EXP = SUB_BITS + 1;
+    // 2^26 us is a bit over a minute
+    private static final int BUCKETS = LINEAR + (26 - FIRST_EXP) * SUB_BUCKETS;
+    private static final long DEFAULT_WINDOW_NANOS = 30_000_000_000L;
+
+    private final String name;
+    private final long windowNanos;
+    // Two alternating windows, each tagged with the window number it counts
+    private final AtomicLongArray[] counts = {new AtomicLongArray(BUCKETS), new AtomicLongArray(BUCKETS)};
+    private final AtomicLong[] maxMicros = {new AtomicLong(), new AtomicLong()};
+    private final AtomicLong[] epochs = {new AtomicLong(-1), new AtomicLong(-1)};
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    public LatencyHistogram(String name) {
+        this(name, DEFAULT_WINDOW_NANOS);
+    }
+
+    public LatencyHistogram(String name, long windowNanos) {
+        this.name = name;
+        this.windowNanos = windowNanos;
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+
+        long epoch = System.nanoTime() / windowNanos;
+        int w = (int) (epoch & 1);
+        long seen = epochs[w].get();
+        if (seen != epoch && epochs[w].compareAndSet(seen, epoch)) {
+            // First record of a new window clears what is left of the one two windows ago
+            AtomicLongArray window = counts[w];
+            for (int i = 0; i < BUCKETS; i++) {
+                window.set(i, 0);
+            }
+            maxMicros[w].set(0);
+        }
+        long micros = nanos / 1000;
+        counts[w].incrementAndGet(bucket(micros));
+        maxMicros[w].accumulateAndGet(micros, Math::max);
+    }
+
+    // Records the time since startNanos and returns now, for chaining stage timings
+    public long recordSince(long startNanos) {
+        long now = System.nanoTime();
+        record(now - startNanos);
+        return now;
+    }
+
+    static int bucket(long micros) {
+        if (micros < LINEAR) {
+            return (int) micros;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) ((micros >> (exp - SUB_BITS)) & (SUB_BUCKETS - 1));
+        return Math.min(BUCKETS - 1, LINEAR + (exp - FIRST_EXP) * SUB_BUCKETS + sub);
+    }
+
+    // Upper bound of a bucket in microseconds
+    static long bucketUpperMicros(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int exp = (bucket - LINEAR) / SUB_BUCKETS + FIRST_EXP;
+        int sub = (bucket - LINEAR) % SUB_BUCKETS;
+        long width = 1L << (exp - SUB_BITS);
+        return (SUB_BUCKETS + sub) * width + width - 1;
+    }
+
+    public Snapshot snapshot() {
+        long epoch = System.nanoTime() / windowNanos;
+        long[] merged = new long[BUCKETS];
+        long count = 0;
+        long max = 0;
+        for (int w = 0; w < 2; w++) {
+            long e = epochs[w].get();
+            if (e != epoch && e != epoch - 1) {
+                continue;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                long c = counts[w].get(i);
+                merged[i] += c;
+                count += c;
+            }
+            max = Math.max(max, maxMicros[w].get());
+        }
+        return new Snapshot(count, quantile(merged, count, 0.5, max), quantile(merged, count, 0.99, max),
+                max, totalCount.get(), totalNanos.get());
+    }
+
+    private static long quantile(long[] buckets, long count, double q, long max) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(q * count);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperMicros(i), max);
+            }
+        }
+        return max;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    @Override
+    public double getP50Millis() {
+        return snapshot().p50Micros / 1000.0;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return snapshot().p99Micros / 1000.0;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return snapshot().maxMicros / 1000.0;
+    }
+
+    public static class Snapshot {
+        public final long windowCount;
+        public final long p50Micros;
+        public final long p99Micros;
+        public final long maxMicros;
+        public final long totalCount;
+        public final long totalNanos;
+
+        Snapshot(long windowCount, long p50Micros, long p99Micros, long maxMicros, long totalCount, long totalNanos) {
+            this.windowCount = windowCount;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+            this.totalCount = totalCount;
+            this.totalNanos = totalNanos;
+        }
+    }
+}
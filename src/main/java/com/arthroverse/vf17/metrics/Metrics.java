@@ -0,0 +1,138 @@
+package com.arthroverse.vf17.metrics;
+
+import org.opencv.core.Mat;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+// Process-wide telemetry: a latency histogram per pipeline stage, frame counters by
+// outcome and gauges read on demand. Hot paths hold on to their histogram or
+// counter, so recording never touches the maps. Everything is exposed over JMX as
+// it is created, and as Prometheus text through MetricsServer.
+public final class Metrics {
+    private static final boolean JMX_ENABLED =
+            Boolean.parseBoolean(System.getProperty("vf17.metrics.jmx", "true"));
+    private static final String JMX_DOMAIN = "com.arthroverse.vf17";
+
+    private static final Map<String, LatencyHistogram> STAGES = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongAdder> FRAMES = new ConcurrentSkipListMap<>();
+    private static final Map<String, DoubleSupplier> GAUGES = new ConcurrentSkipListMap<>();
+
+    static {
+        register("type=DetectionMetrics", new DetectionMetricsMXBean() {
+            @Override
+            public Map<String, Long> getFrames() {
+                Map<String, Long> frames = new LinkedHashMap<>();
+                FRAMES.forEach((result, count) -> frames.put(result, count.sum()));
+                return frames;
+            }
+
+            @Override
+            public Map<String, Double> getGauges() {
+                Map<String, Double> gauges = new LinkedHashMap<>();
+                GAUGES.forEach((series, gauge) -> gauges.put(series, gauge.getAsDouble()));
+                return gauges;
+            }
+        });
+    }
+
+    private Metrics() {
+    }
+
+    public static LatencyHistogram stage(String name) {
+        return STAGES.computeIfAbsent(name, key -> {
+            LatencyHistogram histogram = new LatencyHistogram(key);
+            register("type=StageLatency,name=" + key, histogram);
+            return histogram;
+        });
+    }
+
+    public static LongAdder frames(String result) {
+        return FRAMES.computeIfAbsent(result, key -> new LongAdder());
+    }
+
+    // series is the full Prometheus series, e.g. vf17_queue_depth{stage="infer"}
+    public static void gauge(String series, DoubleSupplier supplier) {
+        GAUGES.put(series, supplier);
+    }
+
+    public static void removeGauges(String prefix) {
+        GAUGES.keySet().removeIf(series -> series.startsWith(prefix));
+    }
+
+    // Native memory behind a Mat; 0 once released
+    public static long matBytes(Mat mat) {
+        return mat.total() * mat.elemSize();
+    }
+
+    // Prometheus text exposition format 0.0.4
+    public static String toPrometheus() {
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("# HELP vf17_stage_latency_seconds Per-stage latency; quantiles and max over the last 30-60 s\n");
+        sb.append("# TYPE vf17_stage_latency_seconds summary\n");
+        for (LatencyHistogram histogram : STAGES.values()) {
+            LatencyHistogram.Snapshot s = histogram.snapshot();
+            String stage = "stage=\"" + histogram.getName() + "\"";
+            line(sb, "vf17_stage_latency_seconds{" + stage + ",quantile=\"0.5\"}", s.p50Micros / 1e6);
+            line(sb, "vf17_stage_latency_seconds{" + stage + ",quantile=\"0.99\"}", s.p99Micros / 1e6);
+            line(sb, "vf17_stage_latency_seconds_sum{" + stage + "}", s.totalNanos / 1e9);
+            line(sb, "vf17_stage_latency_seconds_count{" + stage + "}", s.totalCount);
+        }
+        sb.append("# HELP vf17_stage_latency_max_seconds Slowest sample over the last 30-60 s\n");
+        sb.append("# TYPE vf17_stage_latency_max_seconds gauge\n");
+        for (LatencyHistogram histogram : STAGES.values()) {
+            line(sb, "vf17_stage_latency_max_seconds{stage=\"" + histogram.getName() + "\"}",
+                    histogram.snapshot().maxMicros / 1e6);
+        }
+
+        sb.append("# HELP vf17_frames_total Frames by outcome\n");
+        sb.append("# TYPE vf17_frames_total counter\n");
+        FRAMES.forEach((result, count) ->
+                line(sb, "vf17_frames_total{result=\"" + result + "\"}", count.sum()));
+
+        String family = null;
+        for (Map.Entry<String, DoubleSupplier> gauge : GAUGES.entrySet()) {
+            String series = gauge.getKey();
+            int brace = series.indexOf('{');
+            String name = brace < 0 ? series : series.substring(0, brace);
+            if (!name.equals(family)) {
+                sb.append("# TYPE ").append(name).append(" gauge\n");
+                family = name;
+            }
+            line(sb, series, gauge.getValue().getAsDouble());
+        }
+        return sb.toString();
+    }
+
+    private static void line(StringBuilder sb, String series, double value) {
+        sb.append(series).append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            sb.append((long) value);
+        } else {
+            sb.append(String.format(Locale.ROOT, "%.6g", value));
+        }
+        sb.append('\n');
+    }
+
+    private static void register(String properties, Object bean) {
+        if (!JMX_ENABLED) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(JMX_DOMAIN + ":" + properties);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(bean, name);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
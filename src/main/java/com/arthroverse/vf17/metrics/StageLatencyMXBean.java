@@ -0,0 +1,13 @@
+package com.arthroverse.vf17.metrics;
+
+// JMX view of one stage's latency, registered as com.arthroverse.vf17:type=StageLatency,name=<stage>
+public interface StageLatencyMXBean {
+
+    long getCount();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+}
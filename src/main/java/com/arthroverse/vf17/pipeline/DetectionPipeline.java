@@ -0,0 +1,324 @@
+package com.arthroverse.vf17.pipeline;
+
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+import com.arthroverse.vf17.metrics.Metrics;
+import com.arthroverse.vf17.worker.WorkerPool;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+// Capture -> preprocess -> infer -> postprocess, each stage on its own thread and
+// connected by bounded lock-free queues. A fixed pool of jobs bounds the frames in
+// flight; when the pool is exhausted the entry policy decides whether the oldest
+// waiting frame is replaced or the capture thread waits. Several capture streams can
+// share one pipeline: frames that reach the infer stage within the batch window are
+// run as a single batch when the detector supports it.
+//
+// With a WorkerPool the three stages are replaced by one stage per worker process:
+// each frame is queued for the live worker with the least work, which runs it whole.
+// Workers finish frames in any order, so a single results stage puts each stream's
+// frames back in submit order before the listener sees them; the listener always
+// runs on one thread in either mode.
+public class DetectionPipeline {
+    // Frames lost because inference was busy, across every pipeline in the process
+    private static final LongAdder DROPPED_FRAMES = Metrics.frames("dropped");
+    private static final long BACKPRESSURE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private final QueuePolicy policy;
+    private final BoundedQueue<FrameJob> freeJobs;
+    private final List<FrameJob> allJobs = new ArrayList<>();
+    // Stages a submitted frame can be queued on: the preprocess stage, or one per worker
+    private final List<PipelineStage> entryStages;
+    private final List<PipelineStage> stages;
+    private final WorkerPool workers;
+    private final Consumer<FrameJob> resultListener;
+    private final AtomicLong submittedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final List<YOLOv8Detector.Slot> batchSlots = new ArrayList<>();
+    private final int maxRegions;
+    private final AtomicLong nextSequence = new AtomicLong();
+    // Worker mode: finished frames waiting for an earlier frame of their stream.
+    // Only touched by the results stage.
+    private final List<FrameJob> reorderPending = new ArrayList<>();
+    private volatile boolean running = false;
+
+    public DetectionPipeline(YOLOv8Detector detector, int queueCapacity, QueuePolicy policy,
+                             Consumer<FrameJob> resultListener) throws Exception {
+        this(detector, 1, 1, queueCapacity, policy, 1, 0, resultListener);
+    }
+
+    // maxRegions is the most regions (ROI tiles) a single frame may be split into
+    public DetectionPipeline(YOLOv8Detector detector, int streams, int maxRegions, int queueCapacity,
+                             QueuePolicy policy, int maxBatch, long batchWindowNanos,
+                             Consumer<FrameJob> resultListener) throws Exception {
+        this.policy = policy;
+        this.resultListener = resultListener;
+        this.maxRegions = Math.max(1, maxRegions);
+
+        this.workers = null;
+
+        detector.enableBatching(Math.min(maxBatch, streams * this.maxRegions));
+        int batch = detector.getMaxBatch();
+        int entryCapacity = Math.max(1, queueCapacity) * Math.max(1, streams);
+
+        // Enough jobs to fill the entry queue, a full batch and one in each other stage
+        int poolSize = entryCapacity + batch + 2;
+        freeJobs = new BoundedQueue<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            List<YOLOv8Detector.Slot> slots = new ArrayList<>(this.maxRegions);
+            for (int r = 0; r < this.maxRegions; r++) {
+                slots.add(detector.createSlot());
+            }
+            FrameJob job = new FrameJob(slots);
+            allJobs.add(job);
+            freeJobs.offer(job);
+        }
+
+        PipelineStage preprocessStage = new PipelineStage("preprocess", entryCapacity, job -> {
+            for (int r = 0; r < job.regionCount; r++) {
+                Rect region = job.regions == null ? null : job.regions.get(r);
+                detector.preprocess(job.frame, region, job.slots.get(r), job.inputSize);
+            }
+        });
+        PipelineStage inferStage = new PipelineStage("infer", poolSize, batch, batchWindowNanos, jobs -> {
+            batchSlots.clear();
+            for (FrameJob job : jobs) {
+                for (int r = 0; r < job.regionCount; r++) {
+                    batchSlots.add(job.slots.get(r));
+                }
+            }
+            detector.inferBatch(batchSlots);
+        });
+        PipelineStage postprocessStage = new PipelineStage("postprocess", poolSize, job -> job.detections =
+                job.regionCount == 1
+                        ? detector.postprocess(job.slots.get(0))
+                        : detector.postprocess(job.slots, job.regionCount));
+
+        preprocessStage.setNext(inferStage);
+        inferStage.setNext(postprocessStage);
+        preprocessStage.setSink(this::complete);
+        inferStage.setSink(this::complete);
+        postprocessStage.setSink(this::complete);
+        entryStages = List.of(preprocessStage);
+        stages = List.of(preprocessStage, inferStage, postprocessStage);
+    }
+
+    public DetectionPipeline(WorkerPool workers, int streams, int maxRegions, int queueCapacity,
+                             QueuePolicy policy, Consumer<FrameJob> resultListener) {
+        this.policy = policy;
+        this.resultListener = resultListener;
+        this.maxRegions = Math.max(1, maxRegions);
+        this.workers = workers;
+        int entryCapacity = Math.max(1, queueCapacity) * Math.max(1, streams);
+
+        // Enough jobs to fill the entry queue and keep every worker busy
+        int poolSize = entryCapacity + workers.size() + 1;
+        freeJobs = new BoundedQueue<>(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            FrameJob job = new FrameJob(List.of());
+            allJobs.add(job);
+            freeJobs.offer(job);
+        }
+
+        // Completes jobs itself once they are in order, so its own sink has nothing to do
+        PipelineStage resultsStage = new PipelineStage("results", poolSize, this::reorder);
+        resultsStage.setSink(job -> { });
+        List<PipelineStage> workerStages = new ArrayList<>(workers.size());
+        for (int w = 0; w < workers.size(); w++) {
+            int worker = w;
+            PipelineStage stage = new PipelineStage("worker-" + w, poolSize, job -> job.detections =
+                    workers.detect(worker, job.frame, job.regions, job.regionCount, job.inputSize));
+            stage.setNext(resultsStage);
+            // Failed frames go through the results stage too, so later ones aren't held for them
+            stage.setSink(resultsStage::offer);
+            workerStages.add(stage);
+        }
+        entryStages = workerStages;
+        List<PipelineStage> all = new ArrayList<>(workerStages);
+        all.add(resultsStage);
+        stages = all;
+    }
+
+    public void start() {
+        running = true;
+        for (int i = stages.size() - 1; i >= 0; i--) {
+            stages.get(i).start();
+        }
+    }
+
+    // Preprocess stage, or the live worker with the fewest frames queued and running
+    private PipelineStage entryStage() {
+        if (workers == null) {
+            return entryStages.get(0);
+        }
+        PipelineStage best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        for (int w = 0; w < entryStages.size(); w++) {
+            PipelineStage stage = entryStages.get(w);
+            // A worker that is down still takes frames if every worker is; they fail over
+            int load = stage.getQueueDepth() + workers.getInFlight(w) + (workers.isUp(w) ? 0 : 1 << 20);
+            if (load < bestLoad) {
+                best = stage;
+                bestLoad = load;
+            }
+        }
+        return best;
+    }
+
+    // Oldest frame of the longest queue, to make room for a new one
+    private FrameJob pollOldestEntry() {
+        PipelineStage longest = entryStages.get(0);
+        for (PipelineStage stage : entryStages) {
+            if (stage.getQueueDepth() > longest.getQueueDepth()) {
+                longest = stage;
+            }
+        }
+        return longest.pollOldest();
+    }
+
+    // Called from the capture thread. The frame is copied into a pooled job, so the
+    // caller can reuse its Mat straight away. Returns false if the frame was dropped.
+    public boolean submit(Mat frame, long captureNanos) {
+        return submit(0, frame, captureNanos, null);
+    }
+
+    // regions: parts of the frame to infer and merge (at most maxRegions), null for
+    // the whole frame. The list is only read, so callers can share one per stream.
+    public boolean submit(int streamId, Mat frame, long captureNanos, List<Rect> regions) {
+        return submit(streamId, frame, captureNanos, regions, 0);
+    }
+
+    // inputSize: model input size to run the frame at (see YOLOv8Detector.getInputSizes),
+    // 0 for the model's full size
+    public boolean submit(int streamId, Mat frame, long captureNanos, List<Rect> regions, int inputSize) {
+        return submit(streamId, frame, captureNanos, System.nanoTime(), regions, inputSize);
+    }
+
+    // realCaptureNanos: capture time on the real System.nanoTime clock, for sources
+    // whose captureNanos is virtual (see FrameSource.getRealCaptureNanos)
+    public boolean submit(int streamId, Mat frame, long captureNanos, long realCaptureNanos, List<Rect> regions,
+                          int inputSize) {
+        if (!running) {
+            return false;
+        }
+        submittedFrames.incrementAndGet();
+
+        FrameJob job = freeJobs.poll();
+        if (job == null) {
+            if (policy == QueuePolicy.DROP_OLDEST) {
+                job = pollOldestEntry();
+                if (job != null) {
+                    droppedFrames.incrementAndGet();
+                    DROPPED_FRAMES.increment();
+                }
+            } else {
+                while (running && (job = freeJobs.poll()) == null) {
+                    LockSupport.parkNanos(this, BACKPRESSURE_PARK_NANOS);
+                }
+            }
+        }
+        if (job == null) {
+            // Every job is busy inside a stage, nothing can be replaced
+            droppedFrames.incrementAndGet();
+            DROPPED_FRAMES.increment();
+            return false;
+        }
+
+        frame.copyTo(job.frame);
+        job.streamId = streamId;
+        job.regions = regions;
+        job.regionCount = regions == null ? 1 : Math.min(regions.size(), maxRegions);
+        job.inputSize = inputSize;
+        job.sequence = nextSequence.getAndIncrement();
+        job.captureNanos = captureNanos;
+        job.realCaptureNanos = realCaptureNanos;
+        job.processingNanos = 0;
+        job.detections = null;
+        job.inFlight = true;
+        entryStage().offer(job);
+        return true;
+    }
+
+    // Hands on every waiting job that no earlier job of the same stream is still
+    // ahead of. A frame replaced under DROP_OLDEST gets a new, later sequence, so it
+    // stops holding the others back.
+    private void reorder(FrameJob job) {
+        reorderPending.add(job);
+        boolean released = true;
+        while (released) {
+            released = false;
+            for (int i = 0; i < reorderPending.size(); i++) {
+                FrameJob waiting = reorderPending.get(i);
+                if (!hasEarlierInFlight(waiting)) {
+                    reorderPending.remove(i);
+                    complete(waiting);
+                    released = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean hasEarlierInFlight(FrameJob job) {
+        for (FrameJob other : allJobs) {
+            if (other != job && other.inFlight && other.streamId == job.streamId && other.sequence < job.sequence) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void complete(FrameJob job) {
+        if (job.detections != null) {
+            try {
+                resultListener.accept(job);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        job.inFlight = false;
+        freeJobs.offer(job);
+    }
+
+    public void stop() {
+        running = false;
+        for (PipelineStage stage : stages) {
+            stage.stop();
+        }
+        for (FrameJob job : allJobs) {
+            job.release();
+        }
+    }
+
+    public List<PipelineStage> getStages() {
+        return stages;
+    }
+
+    public long getSubmittedFrames() {
+        return submittedFrames.get();
+    }
+
+    // Native memory held by the pooled frames and their detector slots
+    public long getMatBytes() {
+        long bytes = 0;
+        for (FrameJob job : allJobs) {
+            bytes += job.getMatBytes();
+        }
+        return bytes;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public QueuePolicy getPolicy() {
+        return policy;
+    }
+}
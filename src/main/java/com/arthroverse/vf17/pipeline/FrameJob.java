@@ -0,0 +1,78 @@
+package com.arthroverse.vf17.pipeline;
+
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+import com.arthroverse.vf17.metrics.Metrics;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+import java.util.List;
+
+// One frame travelling through the pipeline. Jobs are pooled: the Mat and the
+// detector slots are allocated once and reused for every frame the job carries.
+// A frame inferred as several regions (ROI tiles) uses one slot per region.
+public class FrameJob {
+    final Mat frame = new Mat();
+    final List<YOLOv8Detector.Slot> slots;
+    // Regions of the frame to infer, null for the whole frame
+    List<Rect> regions;
+    int regionCount;
+    // Model input size chosen for this frame, 0 for the full size
+    int inputSize;
+    int streamId;
+    long sequence;
+    // Between submit and completion, read by the worker pipeline's results stage
+    volatile boolean inFlight;
+    long captureNanos;
+    // Real System.nanoTime at capture; captureNanos can be a playback source's virtual clock
+    long realCaptureNanos;
+    // CPU time spent on this frame across all stages; batched work is split evenly
+    long processingNanos;
+    List<YOLOv8Detector.Detection> detections;
+
+    FrameJob(List<YOLOv8Detector.Slot> slots) {
+        this.slots = slots;
+    }
+
+    public Mat getFrame() {
+        return frame;
+    }
+
+    public int getStreamId() {
+        return streamId;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getCaptureNanos() {
+        return captureNanos;
+    }
+
+    public long getRealCaptureNanos() {
+        return realCaptureNanos;
+    }
+
+    public long getProcessingNanos() {
+        return processingNanos;
+    }
+
+    public List<YOLOv8Detector.Detection> getDetections() {
+        return detections;
+    }
+
+    long getMatBytes() {
+        long bytes = Metrics.matBytes(frame);
+        for (YOLOv8Detector.Slot slot : slots) {
+            bytes += slot.getMatBytes();
+        }
+        return bytes;
+    }
+
+    void release() {
+        frame.release();
+        for (YOLOv8Detector.Slot slot : slots) {
+            slot.close();
+        }
+    }
+}
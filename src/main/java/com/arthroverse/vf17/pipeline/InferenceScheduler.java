@@ -0,0 +1,96 @@
+package com.arthroverse.vf17.pipeline;
+
+// Decides how many captured frames to skip between inferences from live signals:
+// an EWMA of the CPU time one inference costs, the capture FPS, and how soon the
+// nearest tracked object will reach the virtual line. The CPU budget caps the
+// inference rate (e.g. 0.6 = at most 60% of one core, shared by all streams);
+// within that cap objects close to the line get the highest rate and an empty
+// belt the lowest.
+public class InferenceScheduler {
+    private static final double LATENCY_ALPHA = 0.2;
+    // Objects expected at the line within this horizon get the maximum rate
+    private static final double NEAR_LINE_SECONDS = 0.5;
+
+    private final double cpuBudget;
+    private final int minSkip;
+    private final int maxSkip;
+    private final int fixedSkip;
+
+    private volatile double latencyEwmaNanos = 0;
+    private final int[] lastSkip;
+    private final String[] lastReason;
+
+    // fixedSkip > 0 disables the adaptive policy and always skips that many frames
+    public InferenceScheduler(int streams, double cpuBudget, int minSkip, int maxSkip, int fixedSkip) {
+        this.cpuBudget = cpuBudget;
+        this.minSkip = Math.max(1, minSkip);
+        this.maxSkip = Math.max(this.minSkip, maxSkip);
+        this.fixedSkip = fixedSkip;
+        this.lastSkip = new int[streams];
+        this.lastReason = new String[streams];
+    }
+
+    // Called from the postprocess thread for every completed inference
+    public void recordInference(long processingNanos) {
+        double current = latencyEwmaNanos;
+        latencyEwmaNanos = current == 0
+                ? processingNanos
+                : current + LATENCY_ALPHA * (processingNanos - current);
+    }
+
+    public double getLatencyEwmaMs() {
+        return latencyEwmaNanos / 1e6;
+    }
+
+    // Frames to skip between inferences for one stream. timeToLineSeconds is the
+    // estimated time until the nearest approaching track reaches the line, or
+    // infinity when no track is approaching.
+    public int decideSkip(int streamId, double captureFps, int activeStreams,
+                          int trackCount, double timeToLineSeconds) {
+        if (fixedSkip > 0) {
+            return fixedSkip;
+        }
+
+        // Budget: inferences per second all streams together may afford
+        int budgetSkip = minSkip;
+        double latencySeconds = latencyEwmaNanos / 1e9;
+        if (latencySeconds > 0 && captureFps > 0) {
+            double maxRatePerStream = cpuBudget / latencySeconds / Math.max(1, activeStreams);
+            budgetSkip = (int) Math.ceil(captureFps / maxRatePerStream);
+        }
+
+        int motionSkip;
+        String reason;
+        if (trackCount == 0) {
+            motionSkip = maxSkip;
+            reason = "belt empty";
+        } else if (timeToLineSeconds < NEAR_LINE_SECONDS) {
+            motionSkip = minSkip;
+            reason = "object near line";
+        } else {
+            motionSkip = Math.max(minSkip, maxSkip / 2);
+            reason = "objects far from line";
+        }
+
+        int skip = Math.max(budgetSkip, motionSkip);
+        if (skip > motionSkip) {
+            reason = "cpu budget";
+        }
+
+        logDecision(streamId, skip, reason, captureFps, trackCount, timeToLineSeconds);
+        return skip;
+    }
+
+    // Only changes are logged, so the output stays readable while tuning a line
+    private void logDecision(int streamId, int skip, String reason, double captureFps,
+                             int trackCount, double timeToLineSeconds) {
+        if (skip == lastSkip[streamId] && reason.equals(lastReason[streamId])) {
+            return;
+        }
+        lastSkip[streamId] = skip;
+        lastReason[streamId] = reason;
+        System.out.printf("[scheduler] stream %d: skip=%d (%s) latency=%.1fms captureFps=%.1f tracks=%d timeToLine=%s%n",
+                streamId, skip, reason, getLatencyEwmaMs(), captureFps, trackCount,
+                Double.isInfinite(timeToLineSeconds) ? "-" : "%.2fs".formatted(timeToLineSeconds));
+    }
+}
@@ -0,0 +1,205 @@
+package com.arthroverse.vf17.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.LockSupport;
+
+// A pipeline stage running on its own thread: it drains its input queue, runs the
+// stage work on each job and hands the job to the next stage.
+public class PipelineStage {
+
+    @FunctionalInterface
+    public interface Work {
+        void process(FrameJob job) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface BatchWork {
+        void process(List<FrameJob> jobs) throws Exception;
+    }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // Spinning this long catches a job that is already on its way without a park and
+    // unpark; after that the stage parks for the rest of the window and offer wakes it
+    private static final long BATCH_SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+
+    private final String name;
+    private final BoundedQueue<FrameJob> input;
+    private final BatchWork work;
+    private final int maxBatch;
+    private final long batchWindowNanos;
+    private final List<FrameJob> batch = new ArrayList<>();
+    private PipelineStage next;
+    private Consumer<FrameJob> sink;
+    private Thread thread;
+    private volatile boolean running = false;
+
+    // Written only by the stage thread
+    private volatile long processedCount = 0;
+    private volatile long failedCount = 0;
+    private volatile long busyNanos = 0;
+    private volatile double throughput = 0;
+    private volatile double averageBatchSize = 0;
+    private long windowStart = System.nanoTime();
+    private long windowCount = 0;
+
+    PipelineStage(String name, int capacity, Work work) {
+        this(name, capacity, 1, 0, jobs -> work.process(jobs.get(0)));
+    }
+
+    // Batching stage: after the first job arrives it waits up to batchWindowNanos for
+    // more, then processes up to maxBatch jobs in one call.
+    PipelineStage(String name, int capacity, int maxBatch, long batchWindowNanos, BatchWork work) {
+        this.name = name;
+        this.input = new BoundedQueue<>(capacity);
+        this.work = work;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.batchWindowNanos = batchWindowNanos;
+    }
+
+    void setNext(PipelineStage next) {
+        this.next = next;
+    }
+
+    void setSink(Consumer<FrameJob> sink) {
+        this.sink = sink;
+    }
+
+    boolean offer(FrameJob job) {
+        if (!input.offer(job)) {
+            return false;
+        }
+        LockSupport.unpark(thread);
+        return true;
+    }
+
+    FrameJob pollOldest() {
+        return input.poll();
+    }
+
+    void start() {
+        running = true;
+        thread = new Thread(this::runLoop, "vf17-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(2));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void runLoop() {
+        long batches = 0;
+        long batchedJobs = 0;
+        while (running) {
+            FrameJob job = input.poll();
+            if (job == null) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+
+            batch.clear();
+            batch.add(job);
+            if (maxBatch > 1) {
+                long batchStart = System.nanoTime();
+                long deadline = batchStart + batchWindowNanos;
+                while (batch.size() < maxBatch) {
+                    FrameJob more = input.poll();
+                    if (more != null) {
+                        batch.add(more);
+                        continue;
+                    }
+                    long now = System.nanoTime();
+                    if (now >= deadline) {
+                        break;
+                    }
+                    if (now - batchStart < BATCH_SPIN_NANOS) {
+                        Thread.onSpinWait();
+                    } else {
+                        LockSupport.parkNanos(this, deadline - now);
+                    }
+                }
+            }
+
+            long start = System.nanoTime();
+            boolean ok = true;
+            try {
+                work.process(batch);
+            } catch (Exception e) {
+                ok = false;
+                failedCount += batch.size();
+                e.printStackTrace();
+            }
+            long end = System.nanoTime();
+            busyNanos += end - start;
+            long perJob = (end - start) / batch.size();
+            for (FrameJob done : batch) {
+                done.processingNanos += perJob;
+            }
+            processedCount += batch.size();
+            batches++;
+            batchedJobs += batch.size();
+            averageBatchSize = (double) batchedJobs / batches;
+
+            windowCount += batch.size();
+            if (end - windowStart >= TimeUnit.SECONDS.toNanos(1)) {
+                throughput = windowCount * 1e9 / (end - windowStart);
+                windowCount = 0;
+                windowStart = end;
+            }
+
+            // Intermediate queues are sized to the job pool, so handing on shouldn't
+            // fail; if it does the job goes to the sink so it returns to the pool
+            for (FrameJob done : batch) {
+                if (ok && next != null) {
+                    if (!next.offer(done)) {
+                        failedCount++;
+                        sink.accept(done);
+                    }
+                } else {
+                    sink.accept(done);
+                }
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getProcessedCount() {
+        return processedCount;
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    // Jobs per second over the last completed one-second window
+    public double getThroughput() {
+        return throughput;
+    }
+
+    public double getAverageLatencyMs() {
+        long count = processedCount;
+        return count == 0 ? 0 : busyNanos / 1e6 / count;
+    }
+
+    public double getAverageBatchSize() {
+        return averageBatchSize;
+    }
+
+    public int getQueueDepth() {
+        return input.size();
+    }
+}
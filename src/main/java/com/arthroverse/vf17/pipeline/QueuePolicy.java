@@ -0,0 +1,8 @@
+package com.arthroverse.vf17.pipeline;
+
+public enum QueuePolicy {
+    // Replace the oldest waiting frame so the pipeline always works on fresh frames
+    DROP_OLDEST,
+    // Make the capture thread wait until a frame can be accepted
+    BACKPRESSURE
+}
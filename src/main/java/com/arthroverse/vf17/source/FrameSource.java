@@ -0,0 +1,30 @@
+package com.arthroverse.vf17.source;
+
+import org.opencv.core.Mat;
+
+// Where a stream's frames come from: a webcam, a video file, a synthetic belt or a
+// recorded session. read() blocks until the next frame is due and fills the given
+// Mat; getTimestampNanos() is the capture time of that frame on the System.nanoTime
+// clock, or a virtual clock advancing with the recording when playing back faster
+// than real time. getRealCaptureNanos() is always real System.nanoTime: when the
+// camera handed the frame over, or when a played-back frame was produced.
+public interface FrameSource extends AutoCloseable {
+
+    boolean open();
+
+    boolean isOpened();
+
+    // False at the end of the source or when the device fails
+    boolean read(Mat frame);
+
+    long getTimestampNanos();
+
+    // What real-time deadlines, like the reject trigger's, are measured from
+    long getRealCaptureNanos();
+
+    // Short label for logs and the output panel, e.g. "CAM 0"
+    String getName();
+
+    @Override
+    void close();
+}
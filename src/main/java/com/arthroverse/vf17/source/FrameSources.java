@@ -0,0 +1,65 @@
+package com.arthroverse.vf17.source;
+
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+// Builds a FrameSource from a spec string:
+//   0, camera:0                          webcam by index
+//   video:/data/shift.mp4?paced&loop     video file
+//   synthetic:860x574?fps=30&objects=4&seed=17&frames=9000&paced
+//   replay:/data/session1?paced&loop     session written by SessionRecorder
+public final class FrameSources {
+    private static final int CAMERA_WIDTH = 860;
+    private static final int CAMERA_HEIGHT = 574;
+
+    private FrameSources() {
+    }
+
+    public static FrameSource fromSpec(String spec) {
+        spec = spec.trim();
+        int colon = spec.indexOf(':');
+        String kind = colon < 0 ? "camera" : spec.substring(0, colon);
+        String rest = colon < 0 ? spec : spec.substring(colon + 1);
+        Map<String, String> options = new HashMap<>();
+        int query = rest.indexOf('?');
+        if (query >= 0) {
+            for (String option : rest.substring(query + 1).split("&")) {
+                int eq = option.indexOf('=');
+                if (eq < 0) {
+                    options.put(option, "true");
+                } else {
+                    options.put(option.substring(0, eq), option.substring(eq + 1));
+                }
+            }
+            rest = rest.substring(0, query);
+        }
+        boolean paced = Boolean.parseBoolean(options.getOrDefault("paced", "false"));
+        boolean loop = Boolean.parseBoolean(options.getOrDefault("loop", "false"));
+
+        switch (kind) {
+            case "camera":
+                return new WebcamFrameSource(Integer.parseInt(rest), CAMERA_WIDTH, CAMERA_HEIGHT);
+            case "video":
+                return new VideoFileFrameSource(rest, paced, loop);
+            case "replay":
+                return new ReplayFrameSource(Paths.get(rest), paced, loop);
+            case "synthetic":
+                int width = CAMERA_WIDTH;
+                int height = CAMERA_HEIGHT;
+                if (!rest.isEmpty()) {
+                    String[] size = rest.split("x");
+                    width = Integer.parseInt(size[0]);
+                    height = Integer.parseInt(size[1]);
+                }
+                return new SyntheticFrameSource(width, height,
+                        Double.parseDouble(options.getOrDefault("fps", "30")),
+                        Integer.parseInt(options.getOrDefault("objects", "4")),
+                        Long.parseLong(options.getOrDefault("seed", "17")),
+                        Long.parseLong(options.getOrDefault("frames", "0")),
+                        paced);
+            default:
+                throw new IllegalArgumentException("Unknown frame source: " + spec);
+        }
+    }
+}
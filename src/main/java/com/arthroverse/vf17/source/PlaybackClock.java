@@ -0,0 +1,37 @@
+package com.arthroverse.vf17.source;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Maps a recording's own frame offsets onto System.nanoTime. Paced playback waits
+// until each frame is due; unpaced playback returns at once and the timestamps form
+// a virtual clock, so trackers still see the recorded motion.
+class PlaybackClock {
+    private final boolean paced;
+    private long baseNanos;
+    // Offset added after each loop so time keeps increasing
+    private long loopOffsetNanos;
+
+    PlaybackClock(boolean paced) {
+        this.paced = paced;
+    }
+
+    void start() {
+        baseNanos = System.nanoTime();
+        loopOffsetNanos = 0;
+    }
+
+    void loop(long durationNanos) {
+        loopOffsetNanos += durationNanos;
+    }
+
+    long frameAt(long offsetNanos) {
+        long due = baseNanos + loopOffsetNanos + offsetNanos;
+        if (paced) {
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+        return due;
+    }
+}
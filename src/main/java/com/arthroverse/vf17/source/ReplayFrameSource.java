@@ -0,0 +1,109 @@
+package com.arthroverse.vf17.source;
+
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Plays back a session written by SessionRecorder. Frames and their relative capture
+// times are exactly the recorded ones, so runs are repeatable; paced playback keeps
+// the original timing, unpaced goes as fast as the consumer reads.
+public class ReplayFrameSource implements FrameSource {
+    private final Path directory;
+    private final boolean loop;
+    private final PlaybackClock clock;
+    private final List<String> files = new ArrayList<>();
+    private long[] offsets = new long[0];
+    private int position;
+    private long timestampNanos;
+    private long realCaptureNanos;
+
+    public ReplayFrameSource(Path directory, boolean paced, boolean loop) {
+        this.directory = directory;
+        this.loop = loop;
+        this.clock = new PlaybackClock(paced);
+    }
+
+    @Override
+    public boolean open() {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(directory.resolve(SessionRecorder.INDEX_FILE), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        files.clear();
+        offsets = new long[lines.size()];
+        for (String line : lines) {
+            if (line.isBlank()) {
+                continue;
+            }
+            int comma = line.lastIndexOf(',');
+            offsets[files.size()] = Long.parseLong(line.substring(comma + 1).trim());
+            files.add(line.substring(0, comma).trim());
+        }
+        if (files.isEmpty()) {
+            return false;
+        }
+        position = 0;
+        clock.start();
+        return true;
+    }
+
+    @Override
+    public boolean isOpened() {
+        return !files.isEmpty();
+    }
+
+    @Override
+    public boolean read(Mat frame) {
+        if (position == files.size()) {
+            if (!loop || files.isEmpty()) {
+                return false;
+            }
+            // The next loop starts one average frame interval after the last frame
+            long interval = files.size() > 1 ? offsets[files.size() - 1] / (files.size() - 1) : 33_333_333L;
+            clock.loop(offsets[files.size() - 1] + interval);
+            position = 0;
+        }
+        Mat image = Imgcodecs.imread(directory.resolve(files.get(position)).toString());
+        try {
+            if (image.empty()) {
+                return false;
+            }
+            image.copyTo(frame);
+        } finally {
+            image.release();
+        }
+        timestampNanos = clock.frameAt(offsets[position]);
+        realCaptureNanos = System.nanoTime();
+        position++;
+        return true;
+    }
+
+    @Override
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    @Override
+    public long getRealCaptureNanos() {
+        return realCaptureNanos;
+    }
+
+    @Override
+    public String getName() {
+        return "replay " + directory.getFileName();
+    }
+
+    @Override
+    public void close() {
+        files.clear();
+    }
+}
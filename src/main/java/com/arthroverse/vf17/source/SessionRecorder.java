@@ -0,0 +1,67 @@
+package com.arthroverse.vf17.source;
+
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Records frames with their capture times into a directory ReplayFrameSource can
+// play back: lossless PNGs plus an index file of "frame file,offset nanos" lines,
+// offsets counted from the first recorded frame.
+public class SessionRecorder implements AutoCloseable {
+    static final String INDEX_FILE = "frames.csv";
+
+    private final Path directory;
+    private final long maxFrames;
+    private final BufferedWriter index;
+    private long firstNanos = -1;
+    private long frames = 0;
+
+    public SessionRecorder(Path directory, long maxFrames) throws IOException {
+        this.directory = directory;
+        this.maxFrames = maxFrames;
+        Files.createDirectories(directory);
+        index = Files.newBufferedWriter(directory.resolve(INDEX_FILE), StandardCharsets.UTF_8);
+    }
+
+    // Returns false once maxFrames have been written
+    public boolean write(Mat frame, long timestampNanos) {
+        if (maxFrames > 0 && frames >= maxFrames) {
+            return false;
+        }
+        if (firstNanos < 0) {
+            firstNanos = timestampNanos;
+        }
+        String file = String.format("%06d.png", frames);
+        if (!Imgcodecs.imwrite(directory.resolve(file).toString(), frame)) {
+            System.out.printf("[recorder] failed to write %s%n", directory.resolve(file));
+            return false;
+        }
+        try {
+            index.write(file + "," + (timestampNanos - firstNanos));
+            index.newLine();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+        frames++;
+        return true;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    @Override
+    public void close() {
+        try {
+            index.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
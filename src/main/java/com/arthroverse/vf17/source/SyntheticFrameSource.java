@@ -0,0 +1,121 @@
+package com.arthroverse.vf17.source;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.Random;
+
+// Generates a belt without a camera: round objects of random colour and size enter
+// on the right and move left at a steady speed over a textured grey background.
+// The same seed always produces the same frames, and without pacing it runs as
+// fast as the consumer reads, which is what throughput and soak tests want.
+public class SyntheticFrameSource implements FrameSource {
+    private final int width;
+    private final int height;
+    private final double fps;
+    private final int objects;
+    private final long seed;
+    // 0 runs forever
+    private final long maxFrames;
+    private final PlaybackClock clock;
+
+    private Mat background;
+    private Random random;
+    private float[] objectX, objectY, objectRadius, objectSpeed;
+    private Scalar[] objectColor;
+    private long index;
+    private long timestampNanos;
+    private long realCaptureNanos;
+
+    public SyntheticFrameSource(int width, int height, double fps, int objects, long seed,
+                                long maxFrames, boolean paced) {
+        this.width = width;
+        this.height = height;
+        this.fps = fps;
+        this.objects = objects;
+        this.seed = seed;
+        this.maxFrames = maxFrames;
+        this.clock = new PlaybackClock(paced);
+    }
+
+    @Override
+    public boolean open() {
+        random = new Random(seed);
+        background = new Mat(height, width, CvType.CV_8UC3, new Scalar(70, 70, 70));
+        // Belt slats, so motion gating and the model have some texture to look at
+        for (int x = 0; x < width; x += 40) {
+            Imgproc.line(background, new Point(x, 0), new Point(x, height), new Scalar(60, 60, 60), 2);
+        }
+        objectX = new float[objects];
+        objectY = new float[objects];
+        objectRadius = new float[objects];
+        objectSpeed = new float[objects];
+        objectColor = new Scalar[objects];
+        for (int i = 0; i < objects; i++) {
+            respawn(i);
+            // Spread the first objects over the belt instead of queueing them at the edge
+            objectX[i] = width - (float) i * width / Math.max(1, objects);
+        }
+        index = 0;
+        clock.start();
+        return true;
+    }
+
+    private void respawn(int i) {
+        objectRadius[i] = 30 + random.nextFloat() * 40;
+        objectX[i] = width + objectRadius[i] + random.nextFloat() * width / 2f;
+        objectY[i] = objectRadius[i] + random.nextFloat() * (height - 2 * objectRadius[i]);
+        objectSpeed[i] = (float) ((120 + random.nextFloat() * 120) / fps);
+        objectColor[i] = new Scalar(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+    }
+
+    @Override
+    public boolean isOpened() {
+        return background != null;
+    }
+
+    @Override
+    public boolean read(Mat frame) {
+        if (background == null || maxFrames > 0 && index >= maxFrames) {
+            return false;
+        }
+        background.copyTo(frame);
+        for (int i = 0; i < objects; i++) {
+            objectX[i] -= objectSpeed[i];
+            if (objectX[i] < -objectRadius[i]) {
+                respawn(i);
+            }
+            Imgproc.circle(frame, new Point(objectX[i], objectY[i]), (int) objectRadius[i],
+                    objectColor[i], -1);
+        }
+        timestampNanos = clock.frameAt((long) (index++ * 1e9 / fps));
+        realCaptureNanos = System.nanoTime();
+        return true;
+    }
+
+    @Override
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    @Override
+    public long getRealCaptureNanos() {
+        return realCaptureNanos;
+    }
+
+    @Override
+    public String getName() {
+        return "synthetic " + seed;
+    }
+
+    @Override
+    public void close() {
+        if (background != null) {
+            background.release();
+            background = null;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.arthroverse.vf17.source;
+
+import org.opencv.core.Mat;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.Videoio;
+
+import java.nio.file.Paths;
+
+// Plays a video file, at its own frame rate when paced, optionally looping for soak runs
+public class VideoFileFrameSource implements FrameSource {
+    private final String path;
+    private final boolean loop;
+    private final PlaybackClock clock;
+    private VideoCapture capture;
+    private double fps;
+    private long index;
+    private long firstOffsetNanos;
+    private long lastOffsetNanos;
+    private long timestampNanos;
+    private long realCaptureNanos;
+
+    public VideoFileFrameSource(String path, boolean paced, boolean loop) {
+        this.path = path;
+        this.loop = loop;
+        this.clock = new PlaybackClock(paced);
+    }
+
+    @Override
+    public boolean open() {
+        capture = new VideoCapture(path);
+        if (!capture.isOpened()) {
+            capture = null;
+            return false;
+        }
+        fps = capture.get(Videoio.CAP_PROP_FPS);
+        index = 0;
+        clock.start();
+        return true;
+    }
+
+    @Override
+    public boolean isOpened() {
+        return capture != null && capture.isOpened();
+    }
+
+    @Override
+    public boolean read(Mat frame) {
+        if (capture == null) {
+            return false;
+        }
+        if (!capture.read(frame) || frame.empty()) {
+            if (!loop || index == 0) {
+                return false;
+            }
+            clock.loop(lastOffsetNanos - firstOffsetNanos + frameIntervalNanos());
+            capture.set(Videoio.CAP_PROP_POS_FRAMES, 0);
+            index = 0;
+            if (!capture.read(frame) || frame.empty()) {
+                return false;
+            }
+        }
+        // Some backends report the position after the frame, but consistently
+        double positionMs = capture.get(Videoio.CAP_PROP_POS_MSEC);
+        long offset = positionMs > 0 ? (long) (positionMs * 1_000_000) : index * frameIntervalNanos();
+        if (index == 0) {
+            firstOffsetNanos = offset;
+        }
+        index++;
+        lastOffsetNanos = offset;
+        timestampNanos = clock.frameAt(offset);
+        realCaptureNanos = System.nanoTime();
+        return true;
+    }
+
+    private long frameIntervalNanos() {
+        return fps > 0 ? (long) (1e9 / fps) : 33_333_333L;
+    }
+
+    @Override
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    @Override
+    public long getRealCaptureNanos() {
+        return realCaptureNanos;
+    }
+
+    @Override
+    public String getName() {
+        return Paths.get(path).getFileName().toString();
+    }
+
+    @Override
+    public void close() {
+        if (capture != null) {
+            capture.release();
+            capture = null;
+        }
+    }
+}
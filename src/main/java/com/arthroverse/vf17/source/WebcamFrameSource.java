@@ -0,0 +1,69 @@
+package com.arthroverse.vf17.source;
+
+import org.opencv.core.Mat;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.Videoio;
+
+public class WebcamFrameSource implements FrameSource {
+    private final int index;
+    private final int width;
+    private final int height;
+    private VideoCapture camera;
+    private long timestampNanos;
+
+    public WebcamFrameSource(int index, int width, int height) {
+        this.index = index;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public boolean open() {
+        camera = new VideoCapture(index);
+        if (!camera.isOpened()) {
+            camera = null;
+            return false;
+        }
+        camera.set(Videoio.CAP_PROP_FRAME_WIDTH, width);
+        camera.set(Videoio.CAP_PROP_FRAME_HEIGHT, height);
+        return true;
+    }
+
+    @Override
+    public boolean isOpened() {
+        return camera != null && camera.isOpened();
+    }
+
+    @Override
+    public boolean read(Mat frame) {
+        // Stamped when grab() has the frame from the driver, before it is decoded
+        if (camera == null || !camera.grab()) {
+            return false;
+        }
+        timestampNanos = System.nanoTime();
+        return camera.retrieve(frame) && !frame.empty();
+    }
+
+    @Override
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    @Override
+    public long getRealCaptureNanos() {
+        return timestampNanos;
+    }
+
+    @Override
+    public String getName() {
+        return "CAM " + index;
+    }
+
+    @Override
+    public void close() {
+        if (camera != null) {
+            camera.release();
+            camera = null;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.arthroverse.vf17.tracking;
+
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Lightweight multi-object tracker: detections are associated to the tracks'
+// predicted boxes by greedy IoU matching, unmatched detections start new tracks
+// and tracks that go unmatched for longer than maxAge are dropped. Prediction uses
+// a constant-velocity model so boxes can be extrapolated on frames without inference.
+// Updates come from the inference thread and predictions from the capture thread,
+// so every public method is synchronized.
+public class ObjectTracker {
+    private static final float DEFAULT_IOU_THRESHOLD = 0.2f;
+    private static final long DEFAULT_MAX_AGE_NANOS = TimeUnit.MILLISECONDS.toNanos(1000);
+    private static final float VELOCITY_GAIN = 0.5f;
+
+    private final float iouThreshold;
+    private final long maxAgeNanos;
+    private final List<Track> tracks = new ArrayList<>();
+    private int nextId = 1;
+
+    // Reusable association buffers
+    private long[] pairKeys = new long[64];
+    private boolean[] trackMatched = new boolean[16];
+    private boolean[] detectionMatched = new boolean[16];
+
+    public ObjectTracker() {
+        this(DEFAULT_IOU_THRESHOLD, DEFAULT_MAX_AGE_NANOS);
+    }
+
+    public ObjectTracker(float iouThreshold, long maxAgeNanos) {
+        this.iouThreshold = iouThreshold;
+        this.maxAgeNanos = maxAgeNanos;
+    }
+
+    // Associates a new set of detections measured at the given time. Each detection
+    // gets the id of the track it was assigned to. Returns the tracks updated or
+    // created by this call.
+    public synchronized List<Track> update(List<YOLOv8Detector.Detection> detections, long nanos) {
+        int numTracks = tracks.size();
+        int numDetections = detections.size();
+        ensureCapacity(numTracks, numDetections);
+        Arrays.fill(trackMatched, 0, numTracks, false);
+        Arrays.fill(detectionMatched, 0, numDetections, false);
+
+        // Candidate pairs packed as (IoU bits, track, detection) so one primitive sort
+        // orders them by descending overlap
+        int pairs = 0;
+        for (int t = 0; t < numTracks; t++) {
+            YOLOv8Detector.Detection predicted = tracks.get(t).predict(nanos);
+            for (int d = 0; d < numDetections; d++) {
+                float iou = iou(predicted, detections.get(d));
+                if (iou > iouThreshold) {
+                    if (pairs == pairKeys.length) {
+                        pairKeys = Arrays.copyOf(pairKeys, pairs * 2);
+                    }
+                    long iouKey = Float.floatToIntBits(1f - iou);
+                    pairKeys[pairs++] = (iouKey << 32) | ((long) t << 16) | d;
+                }
+            }
+        }
+        Arrays.sort(pairKeys, 0, pairs);
+
+        List<Track> updated = new ArrayList<>(numDetections);
+        for (int p = 0; p < pairs; p++) {
+            int t = (int) ((pairKeys[p] >>> 16) & 0xFFFF);
+            int d = (int) (pairKeys[p] & 0xFFFF);
+            if (trackMatched[t] || detectionMatched[d]) {
+                continue;
+            }
+            trackMatched[t] = true;
+            detectionMatched[d] = true;
+            Track track = tracks.get(t);
+            YOLOv8Detector.Detection det = detections.get(d);
+            track.update(det, nanos, VELOCITY_GAIN);
+            det.trackId = track.id;
+            updated.add(track);
+        }
+
+        for (int d = 0; d < numDetections; d++) {
+            if (!detectionMatched[d]) {
+                YOLOv8Detector.Detection det = detections.get(d);
+                Track track = new Track(nextId++, det, nanos);
+                det.trackId = track.id;
+                tracks.add(track);
+                updated.add(track);
+            }
+        }
+
+        tracks.removeIf(track -> nanos - track.lastNanos > maxAgeNanos);
+        return updated;
+    }
+
+    // Boxes of all live tracks extrapolated to the given time
+    public synchronized List<YOLOv8Detector.Detection> predict(long nanos) {
+        List<YOLOv8Detector.Detection> predicted = new ArrayList<>(tracks.size());
+        for (Track track : tracks) {
+            predicted.add(track.predict(nanos));
+        }
+        return predicted;
+    }
+
+    // Overrides the detector's class of a track with a crop classifier's grade
+    public synchronized void applyGrade(Track track, int classId, float confidence) {
+        track.setGrade(classId, confidence);
+    }
+
+    public synchronized List<Track> getTracks() {
+        return new ArrayList<>(tracks);
+    }
+
+    public synchronized void clear() {
+        tracks.clear();
+    }
+
+    private void ensureCapacity(int numTracks, int numDetections) {
+        if (trackMatched.length < numTracks) {
+            trackMatched = new boolean[numTracks * 2];
+        }
+        if (detectionMatched.length < numDetections) {
+            detectionMatched = new boolean[numDetections * 2];
+        }
+    }
+
+    private static float iou(YOLOv8Detector.Detection a, YOLOv8Detector.Detection b) {
+        float x1 = Math.max(a.x1, b.x1);
+        float y1 = Math.max(a.y1, b.y1);
+        float x2 = Math.min(a.x2, b.x2);
+        float y2 = Math.min(a.y2, b.y2);
+
+        float intersection = Math.max(0, x2 - x1) * Math.max(0, y2 - y1);
+        float areaA = (a.x2 - a.x1) * (a.y2 - a.y1);
+        float areaB = (b.x2 - b.x1) * (b.y2 - b.y1);
+        float union = areaA + areaB - intersection;
+
+        return union <= 0 ? 0 : intersection / union;
+    }
+}
@@ -0,0 +1,149 @@
+package com.arthroverse.vf17.tracking;
+
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+
+// One tracked object: its last estimated box (centre/size), a constant-velocity
+// estimate of the centre in pixels per second, and the line-crossing state that
+// used to be shared by every object of the same class.
+public class Track {
+    final int id;
+    int classId;
+    float confidence;
+    float cx, cy, w, h;
+    // Centre before the latest update, for crossing checks
+    float prevCx, prevCy;
+    float vx, vy;
+    long lastNanos;
+    int hits;
+
+    // Whether the track was last measured past the crossing line, null until first seen
+    Boolean passed;
+
+    // Set once a crop classifier has graded the object; from then on the detector's
+    // class no longer overrides the grade
+    boolean graded;
+
+    Track(int id, YOLOv8Detector.Detection det, long nanos) {
+        this.id = id;
+        this.classId = det.classId;
+        this.confidence = det.confidence;
+        this.cx = (det.x1 + det.x2) / 2;
+        this.cy = (det.y1 + det.y2) / 2;
+        this.w = det.x2 - det.x1;
+        this.h = det.y2 - det.y1;
+        this.lastNanos = nanos;
+        this.hits = 1;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getClassId() {
+        return classId;
+    }
+
+    public float getConfidence() {
+        return confidence;
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public Boolean getPassed() {
+        return passed;
+    }
+
+    public void setPassed(Boolean passed) {
+        this.passed = passed;
+    }
+
+    public boolean isGraded() {
+        return graded;
+    }
+
+    void setGrade(int classId, float confidence) {
+        this.classId = classId;
+        this.confidence = confidence;
+        this.graded = true;
+    }
+
+    // Centre of the last measured box
+    public float getCenterX() {
+        return cx;
+    }
+
+    public float getCenterY() {
+        return cy;
+    }
+
+    public boolean hasPreviousCenter() {
+        return hits > 1;
+    }
+
+    public float getPreviousCenterX() {
+        return prevCx;
+    }
+
+    public float getPreviousCenterY() {
+        return prevCy;
+    }
+
+    public float getWidth() {
+        return w;
+    }
+
+    public float getHeight() {
+        return h;
+    }
+
+    public float getVelocityX() {
+        return vx;
+    }
+
+    public float getVelocityY() {
+        return vy;
+    }
+
+    // Box extrapolated to the given time with the current velocity estimate
+    public YOLOv8Detector.Detection predict(long nanos) {
+        float dt = (nanos - lastNanos) / 1e9f;
+        float px = cx + vx * dt;
+        float py = cy + vy * dt;
+        YOLOv8Detector.Detection det = new YOLOv8Detector.Detection(
+                px - w / 2, py - h / 2, px + w / 2, py + h / 2, confidence, classId);
+        det.trackId = id;
+        return det;
+    }
+
+    void update(YOLOv8Detector.Detection det, long nanos, float velocityGain) {
+        float ncx = (det.x1 + det.x2) / 2;
+        float ncy = (det.y1 + det.y2) / 2;
+        float dt = (nanos - lastNanos) / 1e9f;
+        if (dt > 0) {
+            // Alpha-beta style smoothing of the measured velocity
+            float mvx = (ncx - cx) / dt;
+            float mvy = (ncy - cy) / dt;
+            if (hits == 1) {
+                vx = mvx;
+                vy = mvy;
+            } else {
+                vx += velocityGain * (mvx - vx);
+                vy += velocityGain * (mvy - vy);
+            }
+        }
+        prevCx = cx;
+        prevCy = cy;
+        cx = ncx;
+        cy = ncy;
+        w = det.x2 - det.x1;
+        h = det.y2 - det.y1;
+        if (!graded) {
+            classId = det.classId;
+            confidence = det.confidence;
+        }
+        lastNanos = nanos;
+        hits++;
+    }
+}
@@ -0,0 +1,127 @@
+package com.arthroverse.vf17.trigger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+// Drives the arm through a device file:
+//   serial:PATH  writes "R,<sequence>,<track>,<class>\n" per trigger, e.g. to /dev/ttyUSB0
+//   gpio:PATH    raises a sysfs GPIO value file (writes "1") and drops it again
+//                vf17.trigger.pulseMs later; a trigger during the pulse extends it
+// A regular file works as a stand-in for either when there is no hardware.
+public class DeviceTriggerSink implements TriggerSink {
+    private static final long PULSE_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("vf17.trigger.pulseMs", 50));
+    private static final byte[] HIGH = "1\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LOW = "0\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final String name;
+    private final boolean gpio;
+    private final FileChannel device;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(64);
+    private long releaseNanos = 0;
+    private boolean high = false;
+
+    private DeviceTriggerSink(String name, String path, boolean gpio) throws IOException {
+        this.name = name;
+        this.gpio = gpio;
+        // Serial lines are appended; a GPIO value file is rewritten in place
+        device = gpio
+                ? FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE)
+                : FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+        if (gpio) {
+            write(LOW);
+        }
+    }
+
+    public static DeviceTriggerSink serial(String path) throws IOException {
+        return new DeviceTriggerSink("serial", path, false);
+    }
+
+    public static DeviceTriggerSink gpio(String path) throws IOException {
+        return new DeviceTriggerSink("gpio", path, true);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void fire(TriggerEvent event) throws IOException {
+        if (gpio) {
+            if (!high) {
+                write(HIGH);
+                high = true;
+            }
+            releaseNanos = System.nanoTime() + PULSE_NANOS;
+            return;
+        }
+        out.clear();
+        out.put((byte) 'R').put((byte) ',');
+        putDecimal(event.sequence);
+        out.put((byte) ',');
+        putDecimal(event.trackId);
+        out.put((byte) ',');
+        putDecimal(event.classId);
+        out.put((byte) '\n');
+        out.flip();
+        while (out.hasRemaining()) {
+            device.write(out);
+        }
+    }
+
+    @Override
+    public void tick(long nanos) throws IOException {
+        if (high && nanos >= releaseNanos) {
+            write(LOW);
+            high = false;
+        }
+    }
+
+    private void write(byte[] value) throws IOException {
+        out.clear();
+        out.put(value);
+        out.flip();
+        long offset = 0;
+        while (out.hasRemaining()) {
+            offset += device.write(out, offset);
+        }
+    }
+
+    // No String.valueOf, so a trigger allocates nothing
+    private void putDecimal(long value) {
+        if (value < 0) {
+            out.put((byte) '-');
+            value = -value;
+        }
+        int start = out.position();
+        do {
+            out.put((byte) ('0' + value % 10));
+            value /= 10;
+        } while (value > 0);
+        for (int i = start, j = out.position() - 1; i < j; i++, j--) {
+            byte b = out.get(i);
+            out.put(i, out.get(j));
+            out.put(j, b);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (high) {
+                write(LOW);
+                high = false;
+            }
+            device.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
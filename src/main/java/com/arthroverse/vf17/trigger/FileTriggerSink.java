@@ -0,0 +1,63 @@
+package com.arthroverse.vf17.trigger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+// Appends one CSV row per trigger (file:PATH) as an audit trail of what the arm was
+// told and how late. Rows are flushed when the queue runs dry, so list this sink
+// after the actuator ones.
+public class FileTriggerSink implements TriggerSink {
+    private static final String HEADER =
+            "sequence,stream,track,class,confidence,geometry,queue_us,capture_to_trigger_us,late\n";
+
+    private final BufferedWriter writer;
+    private boolean dirty = false;
+
+    public FileTriggerSink(String path) throws IOException {
+        Path file = Paths.get(path);
+        boolean fresh = !Files.exists(file) || Files.size(file) == 0;
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (fresh) {
+            writer.write(HEADER);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "file";
+    }
+
+    @Override
+    public void fire(TriggerEvent event) throws IOException {
+        long now = System.nanoTime();
+        writer.write(String.format(Locale.ROOT, "%d,%d,%d,%s,%.3f,%s,%d,%d,%b%n",
+                event.sequence, event.streamId, event.trackId, event.className, event.confidence,
+                event.geometry, (event.dispatchNanos - event.publishNanos) / 1000,
+                (now - event.captureNanos) / 1000, event.isLate(now)));
+        dirty = true;
+    }
+
+    @Override
+    public void tick(long nanos) throws IOException {
+        if (dirty) {
+            writer.flush();
+            dirty = false;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
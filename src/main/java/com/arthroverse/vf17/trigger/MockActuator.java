@@ -0,0 +1,90 @@
+package com.arthroverse.vf17.trigger;
+
+import com.arthroverse.vf17.metrics.LatencyHistogram;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.locks.LockSupport;
+
+// Stand-in for the sorting arm's controller, for testing the trigger channel
+// without hardware: accepts SocketTriggerSink connections one at a time, "moves the
+// arm" for actuateNanos per trigger and prints how long after frame capture each
+// trigger arrived and was acted on, plus a summary when the channel disconnects.
+public class MockActuator {
+    private final long actuateNanos;
+    private final LatencyHistogram arrival = new LatencyHistogram("actuator_arrival");
+    private final LatencyHistogram actuated = new LatencyHistogram("actuator_actuated");
+    private final ByteBuffer in = ByteBuffer.allocateDirect(TriggerMessage.BYTES);
+    private long triggers = 0;
+    private long late = 0;
+
+    public MockActuator(long actuateNanos) {
+        this.actuateNanos = actuateNanos;
+    }
+
+    public void serve(ServerSocketChannel server) throws IOException {
+        while (server.isOpen()) {
+            try (SocketChannel channel = server.accept()) {
+                System.out.printf("[actuator] trigger channel connected%n");
+                serveConnection(channel);
+            } catch (EOFException e) {
+                // Channel closed the connection
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            printSummary();
+        }
+    }
+
+    private void serveConnection(SocketChannel channel) throws IOException {
+        while (true) {
+            in.clear();
+            while (in.hasRemaining()) {
+                if (channel.read(in) < 0) {
+                    throw new EOFException();
+                }
+            }
+            long received = System.nanoTime();
+            in.flip();
+            // Layout as in TriggerMessage
+            long sequence = in.getLong();
+            int stream = in.getInt();
+            int track = in.getInt();
+            int classId = in.getInt();
+            float confidence = in.getFloat();
+            long captureNanos = in.getLong();
+            long sentNanos = in.getLong();
+            long deadlineNanos = in.getLong();
+
+            if (actuateNanos > 0) {
+                LockSupport.parkNanos(actuateNanos);
+            }
+            long done = System.nanoTime();
+            arrival.record(received - captureNanos);
+            actuated.record(done - captureNanos);
+            triggers++;
+            boolean missed = done > deadlineNanos;
+            if (missed) {
+                late++;
+            }
+            System.out.printf("[actuator] #%d reject stream %d track %d (class %d, %.2f): %.2f ms after capture, "
+                            + "%.3f ms in transit, done at %.2f ms%s%n",
+                    sequence, stream, track, classId, confidence, (received - captureNanos) / 1e6,
+                    (received - sentNanos) / 1e6, (done - captureNanos) / 1e6, missed ? " LATE" : "");
+        }
+    }
+
+    private void printSummary() {
+        if (triggers == 0) {
+            return;
+        }
+        LatencyHistogram.Snapshot a = arrival.snapshot();
+        LatencyHistogram.Snapshot d = actuated.snapshot();
+        System.out.printf("[actuator] %d triggers, %d late; capture to arrival p50 %.2f ms p99 %.2f ms max %.2f ms, "
+                        + "to actuation p99 %.2f ms%n",
+                triggers, late, a.p50Micros / 1e3, a.p99Micros / 1e3, a.maxMicros / 1e3, d.p99Micros / 1e3);
+    }
+}
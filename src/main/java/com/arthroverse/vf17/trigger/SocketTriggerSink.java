@@ -0,0 +1,107 @@
+package com.arthroverse.vf17.trigger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+// Sends each trigger as one TriggerMessage over a Unix-domain socket (unix:PATH) or
+// TCP with Nagle off (tcp:HOST:PORT) to the actuator controller. Connects lazily and
+// reconnects at most once a second, so a missing controller fails triggers instead
+// of holding up start-up.
+public class SocketTriggerSink implements TriggerSink {
+    private static final long RECONNECT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String name;
+    private final SocketAddress address;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(TriggerMessage.BYTES);
+    private SocketChannel channel;
+    private long nextConnectNanos = 0;
+
+    public SocketTriggerSink(String name, SocketAddress address) {
+        this.name = name;
+        this.address = address;
+    }
+
+    public static SocketTriggerSink unix(String path) {
+        return new SocketTriggerSink("unix", UnixDomainSocketAddress.of(Paths.get(path)));
+    }
+
+    public static SocketTriggerSink tcp(String hostAndPort) {
+        int colon = hostAndPort.lastIndexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Expected HOST:PORT, got " + hostAndPort);
+        }
+        return new SocketTriggerSink("tcp", new InetSocketAddress(hostAndPort.substring(0, colon),
+                Integer.parseInt(hostAndPort.substring(colon + 1))));
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void fire(TriggerEvent event) throws IOException {
+        SocketChannel connected = connect();
+        out.clear();
+        TriggerMessage.encode(event, System.nanoTime(), out);
+        out.flip();
+        try {
+            while (out.hasRemaining()) {
+                connected.write(out);
+            }
+        } catch (IOException e) {
+            disconnect();
+            throw e;
+        }
+    }
+
+    private SocketChannel connect() throws IOException {
+        if (channel != null) {
+            return channel;
+        }
+        long now = System.nanoTime();
+        if (now < nextConnectNanos) {
+            throw new IOException("Not connected to " + address);
+        }
+        nextConnectNanos = now + RECONNECT_NANOS;
+        SocketChannel opened = address instanceof UnixDomainSocketAddress
+                ? SocketChannel.open(StandardProtocolFamily.UNIX)
+                : SocketChannel.open();
+        try {
+            if (!(address instanceof UnixDomainSocketAddress)) {
+                opened.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
+            opened.connect(address);
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+        System.out.printf("[trigger] connected to %s%n", address);
+        channel = opened;
+        return channel;
+    }
+
+    private void disconnect() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            channel = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        disconnect();
+    }
+}
@@ -0,0 +1,340 @@
+package com.arthroverse.vf17.trigger;
+
+import com.arthroverse.vf17.metrics.LatencyHistogram;
+import com.arthroverse.vf17.metrics.Metrics;
+import com.arthroverse.vf17.pipeline.BoundedQueue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Gets reject triggers for crossings to the sorting arm with as little as possible
+// in between. The pipeline's result thread fills a pooled TriggerEvent and puts it
+// on a lock-free ring; a dedicated dispatcher thread spins for a moment after each
+// trigger, then parks until the next one, and fires the sinks in the configured
+// order. Nothing on that path allocates or takes a lock. Every delivery records
+// capture-to-trigger latency per sink (stage "trigger_<sink>") and counts the
+// ones that land past the deadline, vf17.trigger.deadlineMs after frame capture.
+//
+//   -Dvf17.trigger.sinks=unix:/run/vf17/arm.sock,gpio:/sys/class/gpio/gpio17/value,file:triggers.csv
+//   -Dvf17.trigger.classes=rotten   (classes whose name contains any of these trigger)
+// Sinks: unix:PATH, tcp:HOST:PORT, serial:PATH, gpio:PATH, file:PATH. Without any
+// the channel is off.
+public class TriggerChannel implements AutoCloseable {
+    private static final String SINKS = System.getProperty("vf17.trigger.sinks", "");
+    private static final String CLASSES = System.getProperty("vf17.trigger.classes", "rotten");
+    private static final long DEADLINE_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("vf17.trigger.deadlineMs", 150));
+    private static final int CAPACITY = Integer.getInteger("vf17.trigger.capacity", 64);
+    // How long the dispatcher busy-waits for the next trigger before parking; 0
+    // parks right away and costs an unpark (tens of microseconds) per trigger
+    private static final long SPIN_NANOS =
+            TimeUnit.MICROSECONDS.toNanos(Long.getLong("vf17.trigger.spinMicros", 200));
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final TriggerSink[] sinks;
+    private final String[] sinkNames;
+    private final String[] classNames;
+    private final boolean[] triggering;
+    private final long deadlineNanos;
+    private final long spinNanos;
+
+    // Events cycle free -> pending -> free; both rings hold all of them, so once an
+    // event is taken from free it always fits on pending
+    private final BoundedQueue<TriggerEvent> free;
+    private final BoundedQueue<TriggerEvent> pending;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    private final LatencyHistogram queueLatency = Metrics.stage("trigger_queue");
+    private final LatencyHistogram[] latency;
+    private final LongAdder[] onTime;
+    private final LongAdder[] late;
+    private final LongAdder[] failed;
+    private final LongAdder dropped = new LongAdder();
+
+    // Dispatcher thread only, for the once-a-second console report
+    private final long[] lateSinceReport;
+    private final long[] worstLateNanos;
+    private final long[] failedSinceReport;
+    private final Exception[] lastError;
+    private long nextReportNanos = 0;
+
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+    private volatile boolean parked = false;
+
+    public TriggerChannel(List<TriggerSink> sinks, String[] classNames, boolean[] triggering,
+                          long deadlineNanos, int capacity, long spinNanos) {
+        this.sinks = sinks.toArray(new TriggerSink[0]);
+        this.classNames = classNames;
+        this.triggering = triggering;
+        this.deadlineNanos = deadlineNanos;
+        this.spinNanos = spinNanos;
+
+        int n = this.sinks.length;
+        sinkNames = new String[n];
+        latency = new LatencyHistogram[n];
+        onTime = new LongAdder[n];
+        late = new LongAdder[n];
+        failed = new LongAdder[n];
+        lateSinceReport = new long[n];
+        worstLateNanos = new long[n];
+        failedSinceReport = new long[n];
+        lastError = new Exception[n];
+        for (int i = 0; i < n; i++) {
+            String name = this.sinks[i].getName();
+            for (int j = 0; j < i; j++) {
+                if (sinkNames[j].equals(name)) {
+                    name = name + i;
+                    break;
+                }
+            }
+            sinkNames[i] = name;
+            latency[i] = Metrics.stage("trigger_" + name);
+            onTime[i] = new LongAdder();
+            late[i] = new LongAdder();
+            failed[i] = new LongAdder();
+        }
+
+        free = new BoundedQueue<>(capacity);
+        pending = new BoundedQueue<>(capacity);
+        for (int i = 0; i < free.capacity(); i++) {
+            free.offer(new TriggerEvent());
+        }
+
+        dispatcher = new Thread(this::dispatch, "vf17-trigger");
+        dispatcher.setDaemon(true);
+        dispatcher.setPriority(Thread.MAX_PRIORITY);
+        dispatcher.start();
+    }
+
+    // Null when no sinks are configured
+    public static TriggerChannel load(String[] classNames) throws IOException {
+        if (SINKS.isBlank()) {
+            return null;
+        }
+        List<TriggerSink> sinks = new ArrayList<>();
+        try {
+            for (String spec : SINKS.split(",")) {
+                sinks.add(createSink(spec.trim()));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (TriggerSink sink : sinks) {
+                sink.close();
+            }
+            throw e;
+        }
+
+        String[] patterns = CLASSES.split(",");
+        boolean[] triggering = new boolean[classNames.length];
+        List<String> matched = new ArrayList<>();
+        for (int c = 0; c < classNames.length; c++) {
+            for (String pattern : patterns) {
+                if (!pattern.isBlank() && classNames[c].contains(pattern.trim())) {
+                    triggering[c] = true;
+                    matched.add(classNames[c]);
+                    break;
+                }
+            }
+        }
+        System.out.printf("[trigger] %s, deadline %d ms after capture, for %s%n", SINKS,
+                TimeUnit.NANOSECONDS.toMillis(DEADLINE_NANOS), matched);
+        return new TriggerChannel(sinks, classNames, triggering, DEADLINE_NANOS, CAPACITY, SPIN_NANOS);
+    }
+
+    private static TriggerSink createSink(String spec) throws IOException {
+        int colon = spec.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Trigger sink " + spec + " needs a TYPE:TARGET form");
+        }
+        String target = spec.substring(colon + 1);
+        switch (spec.substring(0, colon)) {
+            case "unix":
+                return SocketTriggerSink.unix(target);
+            case "tcp":
+                return SocketTriggerSink.tcp(target);
+            case "serial":
+                return DeviceTriggerSink.serial(target);
+            case "gpio":
+                return DeviceTriggerSink.gpio(target);
+            case "file":
+                return new FileTriggerSink(target);
+            default:
+                throw new IllegalArgumentException("Unknown trigger sink " + spec);
+        }
+    }
+
+    public boolean triggers(int classId) {
+        return classId >= 0 && classId < triggering.length && triggering[classId];
+    }
+
+    // Queues a trigger for a crossing if its class is one that triggers. Returns
+    // false otherwise, or when the ring is full and the trigger had to be dropped.
+    // captureNanos must be real System.nanoTime, latency and deadline count from it.
+    public boolean publish(int streamId, int trackId, int classId, float confidence, String geometry,
+                           long captureNanos) {
+        if (!triggers(classId)) {
+            return false;
+        }
+        TriggerEvent event = free.poll();
+        if (event == null) {
+            dropped.increment();
+            return false;
+        }
+        event.sequence = nextSequence.getAndIncrement();
+        event.streamId = streamId;
+        event.trackId = trackId;
+        event.classId = classId;
+        event.className = classNames[classId];
+        event.confidence = confidence;
+        event.geometry = geometry;
+        event.captureNanos = captureNanos;
+        event.deadlineNanos = captureNanos + deadlineNanos;
+        event.publishNanos = System.nanoTime();
+        pending.offer(event);
+        // Pairs with the dispatcher setting parked before its last look at the ring
+        if (parked) {
+            LockSupport.unpark(dispatcher);
+        }
+        return true;
+    }
+
+    private void dispatch() {
+        long idleSince = System.nanoTime();
+        while (running) {
+            TriggerEvent event = pending.poll();
+            if (event != null) {
+                deliver(event);
+                free.offer(event);
+                idleSince = System.nanoTime();
+                continue;
+            }
+            long now = System.nanoTime();
+            tick(now);
+            if (now - idleSince < spinNanos) {
+                Thread.onSpinWait();
+                continue;
+            }
+            parked = true;
+            if (pending.size() == 0) {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+            parked = false;
+        }
+        // Rejects already decided on still go out when the channel stops
+        TriggerEvent event;
+        while ((event = pending.poll()) != null) {
+            deliver(event);
+            free.offer(event);
+        }
+        tick(System.nanoTime());
+    }
+
+    private void deliver(TriggerEvent event) {
+        event.dispatchNanos = System.nanoTime();
+        queueLatency.record(event.dispatchNanos - event.publishNanos);
+        for (int i = 0; i < sinks.length; i++) {
+            try {
+                sinks[i].fire(event);
+            } catch (Exception e) {
+                // One broken sink must not hold back the others
+                failed[i].increment();
+                failedSinceReport[i]++;
+                lastError[i] = e;
+                continue;
+            }
+            long fired = System.nanoTime();
+            latency[i].record(fired - event.captureNanos);
+            if (event.isLate(fired)) {
+                late[i].increment();
+                lateSinceReport[i]++;
+                worstLateNanos[i] = Math.max(worstLateNanos[i], fired - event.captureNanos);
+            } else {
+                onTime[i].increment();
+            }
+        }
+    }
+
+    private void tick(long now) {
+        for (int i = 0; i < sinks.length; i++) {
+            try {
+                sinks[i].tick(now);
+            } catch (Exception e) {
+                failedSinceReport[i]++;
+                lastError[i] = e;
+            }
+        }
+        if (now >= nextReportNanos) {
+            report();
+            nextReportNanos = now + REPORT_INTERVAL_NANOS;
+        }
+    }
+
+    // Deadline misses and failures are summarised once a second instead of per
+    // trigger, so a burst doesn't flood the console from the dispatcher thread
+    private void report() {
+        for (int i = 0; i < sinks.length; i++) {
+            if (lateSinceReport[i] > 0) {
+                System.out.printf("[trigger] %s: %d triggers past the %d ms deadline, worst %.1f ms after capture%n",
+                        sinkNames[i], lateSinceReport[i], TimeUnit.NANOSECONDS.toMillis(deadlineNanos),
+                        worstLateNanos[i] / 1e6);
+                lateSinceReport[i] = 0;
+                worstLateNanos[i] = 0;
+            }
+            if (failedSinceReport[i] > 0) {
+                System.out.printf("[trigger] %s: %d failures, last: %s%n", sinkNames[i], failedSinceReport[i],
+                        lastError[i]);
+                failedSinceReport[i] = 0;
+            }
+        }
+    }
+
+    public int getSinkCount() {
+        return sinks.length;
+    }
+
+    public String getSinkName(int sink) {
+        return sinkNames[sink];
+    }
+
+    public long getOnTime(int sink) {
+        return onTime[sink].sum();
+    }
+
+    public long getLate(int sink) {
+        return late[sink].sum();
+    }
+
+    public long getFailed(int sink) {
+        return failed[sink].sum();
+    }
+
+    // Triggers lost because the ring was full
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        try {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        report();
+        for (TriggerSink sink : sinks) {
+            sink.close();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.arthroverse.vf17.trigger;
+
+// One actuator trigger. Instances are pooled by TriggerChannel and refilled for
+// every crossing, so sinks must not keep a reference after fire returns.
+public final class TriggerEvent {
+    long sequence;
+    int streamId;
+    int trackId;
+    int classId;
+    String className;
+    float confidence;
+    String geometry;
+    long captureNanos;
+    long publishNanos;
+    long dispatchNanos;
+    long deadlineNanos;
+
+    TriggerEvent() {
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getStreamId() {
+        return streamId;
+    }
+
+    public int getTrackId() {
+        return trackId;
+    }
+
+    public int getClassId() {
+        return classId;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public float getConfidence() {
+        return confidence;
+    }
+
+    // Line or zone the track crossed
+    public String getGeometry() {
+        return geometry;
+    }
+
+    // Capture time of the frame the crossing was seen in, on the real System.nanoTime
+    // clock (FrameJob.getRealCaptureNanos, not a playback source's virtual time)
+    public long getCaptureNanos() {
+        return captureNanos;
+    }
+
+    // When the crossing was handed to the channel
+    public long getPublishNanos() {
+        return publishNanos;
+    }
+
+    // When the dispatcher took it off the queue
+    public long getDispatchNanos() {
+        return dispatchNanos;
+    }
+
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    public boolean isLate(long nanos) {
+        return nanos > deadlineNanos;
+    }
+}
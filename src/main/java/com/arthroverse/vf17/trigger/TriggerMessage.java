@@ -0,0 +1,26 @@
+package com.arthroverse.vf17.trigger;
+
+import java.nio.ByteBuffer;
+
+// Fixed-size big-endian trigger record for the socket sink and MockActuator:
+// [long sequence][int stream][int track][int class][float confidence]
+// [long captureNanos][long sentNanos][long deadlineNanos]
+// Times are System.nanoTime, which on Linux is CLOCK_MONOTONIC and so comparable
+// between processes on the same host.
+final class TriggerMessage {
+    static final int BYTES = 48;
+
+    private TriggerMessage() {
+    }
+
+    static void encode(TriggerEvent event, long sentNanos, ByteBuffer out) {
+        out.putLong(event.sequence);
+        out.putInt(event.streamId);
+        out.putInt(event.trackId);
+        out.putInt(event.classId);
+        out.putFloat(event.confidence);
+        out.putLong(event.captureNanos);
+        out.putLong(sentNanos);
+        out.putLong(event.deadlineNanos);
+    }
+}
@@ -0,0 +1,24 @@
+package com.arthroverse.vf17.trigger;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Output a trigger is delivered to. All calls come from the channel's dispatcher
+// thread, one event at a time, in the order the sinks were configured.
+public interface TriggerSink extends Closeable {
+
+    // Short name for metrics and logs, e.g. "unix" or "gpio"
+    String getName();
+
+    // Returns once the trigger has left the process; the time it returns is what
+    // the capture-to-trigger latency is measured against
+    void fire(TriggerEvent event) throws IOException;
+
+    // Called on every pass of the dispatcher loop that finds the queue empty (at
+    // least every millisecond), for pulse release and flushing
+    default void tick(long nanos) throws IOException {
+    }
+
+    @Override
+    void close();
+}
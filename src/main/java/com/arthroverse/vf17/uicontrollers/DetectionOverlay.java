@@ -0,0 +1,122 @@
+package com.arthroverse.vf17.uicontrollers;
+
+import com.arthroverse.vf17.crossing.CrossingGeometry;
+import com.arthroverse.vf17.detection.DetectionHandler;
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+import java.util.List;
+
+// Retained overlay drawn over the camera view on the FX thread: detection boxes with
+// their labels, the crossing lines and zones and the FPS counter. Label strings are cached per
+// class, status and confidence percent, and the font is monospaced, so label sizes
+// come from one measured character width instead of per-frame text metrics.
+public class DetectionOverlay {
+    private static final Color PASSED_COLOR = Color.rgb(255, 0, 0);
+    private static final Color NOT_PASSED_COLOR = Color.rgb(0, 255, 0);
+    private static final Color LINE_COLOR = Color.rgb(0, 0, 255);
+    private static final Color FPS_COLOR = Color.rgb(0, 255, 0);
+    private static final String[] STATUS = {"NOT PASSED", "PASSED"};
+
+    private final Canvas canvas;
+    private final Font font = Font.font("JetBrains Mono Regular", 12);
+    private final double charWidth;
+    private final double textHeight;
+
+    // [classId][passed][confidence percent]
+    private final String[][][] labels;
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private String fpsText = "FPS: 0.0";
+    private long fpsTenths = 0;
+
+    public DetectionOverlay(Canvas canvas) {
+        this.canvas = canvas;
+        Text probe = new Text("M");
+        probe.setFont(font);
+        charWidth = probe.getLayoutBounds().getWidth();
+        textHeight = probe.getLayoutBounds().getHeight();
+        labels = new String[DetectionHandler.getClassCount()][2][101];
+    }
+
+    // Matches the canvas to the area the ImageView shows the frame in and redraws
+    public void render(List<YOLOv8Detector.Detection> detections, DetectionHandler handler,
+                       double fps, int frameWidth, int frameHeight,
+                       double viewWidth, double viewHeight) {
+        if (canvas.getWidth() != viewWidth || canvas.getHeight() != viewHeight) {
+            canvas.setWidth(viewWidth);
+            canvas.setHeight(viewHeight);
+        }
+        double scale = Math.min(viewWidth / frameWidth, viewHeight / frameHeight);
+
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, viewWidth, viewHeight);
+        gc.setFont(font);
+        gc.setTextBaseline(VPos.BOTTOM);
+
+        gc.setLineWidth(2);
+        for (YOLOv8Detector.Detection det : detections) {
+            boolean passed = handler.hasPassed(det);
+            Color color = passed ? PASSED_COLOR : NOT_PASSED_COLOR;
+            double x = det.x1 * scale;
+            double y = det.y1 * scale;
+
+            gc.setStroke(color);
+            gc.strokeRect(x, y, (det.x2 - det.x1) * scale, (det.y2 - det.y1) * scale);
+
+            String label = label(det.classId, passed, det.confidence);
+            gc.setFill(color);
+            gc.fillRect(x, y - textHeight, label.length() * charWidth, textHeight);
+            gc.setFill(Color.BLACK);
+            gc.fillText(label, x, y);
+        }
+
+        gc.setStroke(LINE_COLOR);
+        gc.setLineWidth(3);
+        for (CrossingGeometry geometry : handler.getCrossingEngine().getGeometries()) {
+            int n = geometry.getPointCount();
+            if (xs.length < n) {
+                xs = new double[n];
+                ys = new double[n];
+            }
+            for (int i = 0; i < n; i++) {
+                xs[i] = geometry.getX(i) * scale;
+                ys[i] = geometry.getY(i) * scale;
+            }
+            if (geometry.isClosed()) {
+                gc.strokePolygon(xs, ys, n);
+            } else {
+                gc.strokePolyline(xs, ys, n);
+            }
+        }
+
+        long tenths = Math.round(fps * 10);
+        if (tenths != fpsTenths) {
+            fpsTenths = tenths;
+            fpsText = "FPS: " + tenths / 10 + "." + tenths % 10;
+        }
+        gc.setFill(FPS_COLOR);
+        gc.fillText(fpsText, 10, 10 + textHeight);
+    }
+
+    public void clear() {
+        canvas.getGraphicsContext2D().clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+    }
+
+    private String label(int classId, boolean passed, float confidence) {
+        int percent = Math.max(0, Math.min(100, Math.round(confidence * 100)));
+        String[] cache = labels[classId][passed ? 1 : 0];
+        String label = cache[percent];
+        if (label == null) {
+            label = String.format("%s: %.2f [%s]", DetectionHandler.getClassName(classId),
+                    percent / 100.0, STATUS[passed ? 1 : 0]);
+            cache[percent] = label;
+        }
+        return label;
+    }
+}
@@ -1,23 +1,27 @@
 package com.arthroverse.vf17.uicontrollers;
 
 import com.arthroverse.vf17.detection.DetectionHandler;
+import com.arthroverse.vf17.display.FrameDisplayBuffer;
 
-import io.github.palexdev.materialfx.controls.MFXScrollPane;
 import javafx.animation.AnimationTimer;
-import javafx.application.Platform;
-import javafx.embed.swing.SwingFXUtils;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
+import javafx.scene.canvas.Canvas;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
+import javafx.scene.control.ListView;
 import javafx.scene.image.ImageView;
-import javafx.scene.layout.VBox;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.stage.Stage;
 
 
-import java.awt.image.BufferedImage;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
 
 public class HomepageUIController implements Initializable {
@@ -26,54 +30,81 @@ public class HomepageUIController implements Initializable {
     private ImageView mainCamView;
 
     @FXML
-    private VBox outputLogContainer;
+    private ListView<InferenceEventLog.Event> outputLogList;
 
     @FXML
-    private MFXScrollPane inferOutputPane;
+    private Label loadingStatusLabel;
+
+    @FXML
+    private Canvas overlayCanvas;
+
+    // Boxes, labels, virtual line and FPS are drawn here instead of into the frame
+    private static final boolean OVERLAY_ENABLED =
+            Boolean.parseBoolean(System.getProperty("vf17.overlay.enabled", "true"));
+
+    private DetectionOverlay overlay;
+    private boolean overlayShown = false;
 
     private DetectionHandler detectionHandler;
 
-    private AnimationTimer frameUpdater;
+    private boolean isShutdown = false;
 
-    private static VBox outputLogContainerStatic;
+    private AnimationTimer frameUpdater;
 
-    private static MFXScrollPane inferOutputPaneStatic;
+    // One PixelBuffer/WritableImage pair per display buffer, built when the handler
+    // publishes a new FrameDisplayBuffer (first frame or a frame size change)
+    private FrameDisplayBuffer currentDisplayBuffer;
+    private List<PixelBuffer<ByteBuffer>> pixelBuffers;
+    private WritableImage[] displayImages;
 
-    private static int MAX_RECORD = 10;
+    private static volatile InferenceEventLog eventLog;
 
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        try {
-            outputLogContainerStatic = outputLogContainer;
-            inferOutputPaneStatic = inferOutputPane;
-            DetectionHandler Handler = new DetectionHandler();
-            detectionHandler = Handler;
-            setupFrameUpdater();
-
-            // Configure ImageView for smooth display
-            mainCamView.setPreserveRatio(true);
-            mainCamView.setSmooth(true);
+        eventLog = new InferenceEventLog(outputLogList);
+        setupFrameUpdater();
 
-            detectionHandler.startCamera();
-            frameUpdater.start();
+        // Configure ImageView for smooth display
+        mainCamView.setPreserveRatio(true);
+        mainCamView.setSmooth(true);
 
-            BufferedImage bufferedImage = detectionHandler.getLatestFrame();
+        if (OVERLAY_ENABLED) {
+            overlay = new DetectionOverlay(overlayCanvas);
+        } else {
+            overlayCanvas.setVisible(false);
+        }
 
-            if (bufferedImage != null) {
-                // Convert BufferedImage to JavaFX Image
-                Image fxImage = SwingFXUtils.toFXImage(bufferedImage, null);
-                mainCamView.setImage(fxImage);
+        // OpenCV natives, the ORT session and warm-up inferences load in the background
+        // so the window shows up straight away
+        Task<DetectionHandler> loader = new Task<>() {
+            @Override
+            protected DetectionHandler call() throws Exception {
+                return new DetectionHandler(this::updateMessage);
+            }
+        };
+        loadingStatusLabel.textProperty().bind(loader.messageProperty());
+        loader.setOnSucceeded(event -> {
+            loadingStatusLabel.textProperty().unbind();
+            DetectionHandler handler = loader.getValue();
+            if (isShutdown) {
+                handler.shutdown();
+                return;
             }
+            detectionHandler = handler;
+            loadingStatusLabel.setVisible(false);
+            loadingStatusLabel.setManaged(false);
+            detectionHandler.startCamera();
+            frameUpdater.start();
+        });
+        loader.setOnFailed(event -> {
+            loadingStatusLabel.textProperty().unbind();
+            loadingStatusLabel.setText("Failed to load detector: " + loader.getException().getMessage());
+            loader.getException().printStackTrace();
+        });
 
-            frameUpdater = new AnimationTimer() {
-                @Override
-                public void handle(long now) {
-                    updateFrame();
-                }
-            };
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        Thread loaderThread = new Thread(loader, "vf17-detector-loader");
+        loaderThread.setDaemon(true);
+        loaderThread.start();
     }
 
     private void setupFrameUpdater() {
@@ -86,19 +117,73 @@ public class HomepageUIController implements Initializable {
     }
 
     private void updateFrame() {
-        BufferedImage bufferedImage = detectionHandler.getLatestFrame();
+        if (detectionHandler == null) {
+            return;
+        }
+        // Boxes and the FPS counter of a stream that stopped shouldn't stay on screen
+        if (overlay != null && overlayShown && !detectionHandler.isCapturing()) {
+            overlay.clear();
+            overlayShown = false;
+        }
+        FrameDisplayBuffer displayBuffer = detectionHandler.getDisplayBuffer();
+        if (displayBuffer == null) {
+            return;
+        }
+        if (displayBuffer != currentDisplayBuffer) {
+            // The capture thread only replaces the buffer when the frame size changes
+            // and never publishes into the old one again
+            FrameDisplayBuffer previous = currentDisplayBuffer;
+            bindDisplayBuffer(displayBuffer);
+            if (previous != null) {
+                previous.release();
+            }
+            // New frame size: the old boxes were scaled for the previous one
+            if (overlay != null) {
+                overlay.clear();
+            }
+        }
 
-        if (bufferedImage != null) {
-            // Convert BufferedImage to JavaFX Image
-            Image fxImage = SwingFXUtils.toFXImage(bufferedImage, null);
-            mainCamView.setImage(fxImage);
+        // Only touch the image when the capture thread published a new frame
+        int index = displayBuffer.acquireLatest();
+        if (index < 0) {
+            return;
+        }
+        pixelBuffers.get(index).updateBuffer(buffer -> null);
+        mainCamView.setImage(displayImages[index]);
+
+        if (overlay != null && detectionHandler.isCapturing()) {
+            overlayShown = true;
+            overlay.render(detectionHandler.getOverlayDetections(displayBuffer.getCaptureNanos(index)),
+                    detectionHandler, detectionHandler.getCurrentFps(),
+                    displayBuffer.getWidth(), displayBuffer.getHeight(),
+                    mainCamView.getBoundsInLocal().getWidth(), mainCamView.getBoundsInLocal().getHeight());
         }
     }
 
+    private void bindDisplayBuffer(FrameDisplayBuffer displayBuffer) {
+        int count = displayBuffer.getBufferCount();
+        pixelBuffers = new ArrayList<>(count);
+        displayImages = new WritableImage[count];
+        for (int i = 0; i < count; i++) {
+            PixelBuffer<ByteBuffer> pixelBuffer = new PixelBuffer<>(displayBuffer.getWidth(),
+                    displayBuffer.getHeight(), displayBuffer.getBuffer(i), PixelFormat.getByteBgraPreInstance());
+            pixelBuffers.add(pixelBuffer);
+            displayImages[i] = new WritableImage(pixelBuffer);
+        }
+        currentDisplayBuffer = displayBuffer;
+    }
+
     public void shutdown() {
+        isShutdown = true;
         if (frameUpdater != null) {
             frameUpdater.stop();
         }
+        if (overlay != null) {
+            overlay.clear();
+        }
+        if (eventLog != null) {
+            eventLog.stop();
+        }
         if (detectionHandler != null) {
             detectionHandler.shutdown();
         }
@@ -110,20 +195,11 @@ public class HomepageUIController implements Initializable {
         });
     }
 
+    // Safe to call from the detection threads; the log drains once per pulse
     public static void frontendUpdateOutput(String inferOutput, boolean isRotten){
-        Platform.runLater(() -> {
-            Label label = new Label(inferOutput);
-            if(isRotten){
-                label.setStyle("-fx-font-size: 16px; -fx-text-fill: red; -fx-font-family: 'JetBrains Mono Regular';");
-            }else{
-                label.setStyle("-fx-font-size: 16px; -fx-text-fill: green; -fx-font-family: 'JetBrains Mono Regular';");
-            }
-            label.setWrapText(true);
-            outputLogContainerStatic.getChildren().add(label);
-            inferOutputPaneStatic.setVvalue(1.0);
-            if(outputLogContainerStatic.getChildren().size() > MAX_RECORD){
-                outputLogContainerStatic.getChildren().remove(0, outputLogContainerStatic.getChildren().size() - 1 - 10);
-            }
-        });
+        InferenceEventLog log = eventLog;
+        if (log != null) {
+            log.publish(inferOutput, isRotten);
+        }
     }
 }
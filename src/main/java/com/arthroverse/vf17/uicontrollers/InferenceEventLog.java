@@ -0,0 +1,149 @@
+package com.arthroverse.vf17.uicontrollers;
+
+import com.arthroverse.vf17.pipeline.BoundedQueue;
+import javafx.animation.AnimationTimer;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Output log fed from the detection threads. Events go into a lock-free ring buffer
+// and are drained once per pulse into a ListView, so the FX thread sees one list
+// change per frame no matter how many crossings happen. The ListView only creates
+// cells for the visible rows and the list is capped at a fixed number of entries.
+public class InferenceEventLog {
+    private static final int MAX_RECORDS = Integer.getInteger("vf17.log.maxRecords", 200);
+    private static final int PENDING_CAPACITY = Integer.getInteger("vf17.log.pendingCapacity", 1024);
+
+    public static class Event {
+        private final String text;
+        private final boolean rotten;
+        // Not a crossing but a note that events were lost on the way to the view
+        private final boolean notice;
+
+        public Event(String text, boolean rotten) {
+            this(text, rotten, false);
+        }
+
+        private Event(String text, boolean rotten, boolean notice) {
+            this.text = text;
+            this.rotten = rotten;
+            this.notice = notice;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public boolean isRotten() {
+            return rotten;
+        }
+
+        public boolean isNotice() {
+            return notice;
+        }
+    }
+
+    private final BoundedQueue<Event> pending = new BoundedQueue<>(PENDING_CAPACITY);
+    private final AtomicLong droppedEvents = new AtomicLong();
+    // Dropped events already reported in the view, FX thread only
+    private long reportedDrops = 0;
+    private final ObservableList<Event> items = FXCollections.observableArrayList();
+    private final List<Event> drained = new ArrayList<>();
+    private final ListView<Event> view;
+    private final AnimationTimer drainer;
+
+    public InferenceEventLog(ListView<Event> view) {
+        this.view = view;
+        view.setItems(items);
+        view.setFocusTraversable(false);
+        view.setCellFactory(list -> new EventCell());
+
+        drainer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                drain();
+            }
+        };
+        drainer.start();
+    }
+
+    // Called from any thread. When the UI falls behind the oldest pending event is dropped
+    public void publish(String text, boolean rotten) {
+        Event event = new Event(text, rotten);
+        while (!pending.offer(event)) {
+            if (pending.poll() != null) {
+                droppedEvents.incrementAndGet();
+            }
+        }
+    }
+
+    private void drain() {
+        Event event;
+        while ((event = pending.poll()) != null) {
+            drained.add(event);
+        }
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        // Only the newest MAX_RECORDS can survive the trim, skip the rest up front
+        long dropped = droppedEvents.get();
+        long missed = dropped - reportedDrops;
+        int from = Math.max(0, drained.size() - MAX_RECORDS);
+        Event notice = null;
+        if (missed > 0 || from > 0) {
+            // Events that never reach the view are reported in one row, which leaves
+            // room for one event less
+            from = Math.max(0, drained.size() - (MAX_RECORDS - 1));
+            missed += from;
+            notice = new Event("(%d events dropped)".formatted(missed), false, true);
+            reportedDrops = dropped;
+        }
+        if (notice != null) {
+            drained.add(from, notice);
+        }
+        int overflow = items.size() + drained.size() - from - MAX_RECORDS;
+        if (overflow > 0) {
+            items.remove(0, overflow);
+        }
+        items.addAll(drained.subList(from, drained.size()));
+        drained.clear();
+        view.scrollTo(items.size() - 1);
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    public void stop() {
+        drainer.stop();
+    }
+
+    private static class EventCell extends ListCell<Event> {
+        EventCell() {
+            getStyleClass().add("event_log_cell");
+            setWrapText(true);
+        }
+
+        @Override
+        protected void updateItem(Event event, boolean empty) {
+            super.updateItem(event, empty);
+            getStyleClass().removeAll("event_rotten", "event_fresh", "event_notice");
+            if (empty || event == null) {
+                setText(null);
+                return;
+            }
+            setText(event.getText());
+            if (event.isNotice()) {
+                getStyleClass().add("event_notice");
+            } else {
+                getStyleClass().add(event.isRotten() ? "event_rotten" : "event_fresh");
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.arthroverse.vf17.worker;
+
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.net.StandardProtocolFamily;
+import java.util.ArrayList;
+import java.util.List;
+
+// The pool's connection to one worker process. Frames are copied into a file
+// mapping both processes share when one could be set up, so only a small header
+// crosses the socket; otherwise they are sent inline. One request at a time.
+class WorkerClient implements Closeable {
+    private static final int SHARED_MEMORY_STEP = 1 << 20;
+
+    // The worker answered with an error for this frame; the connection is still usable
+    static class RemoteError extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        RemoteError(String message) {
+            super(message);
+        }
+    }
+
+    private final SocketChannel channel;
+    private final Selector selector;
+    private final Path sharedMemoryPath;
+    private FileChannel sharedMemoryFile;
+    private MappedByteBuffer sharedMemory;
+    // Header over the mapping for the current frame size, so copyTo is a single memcpy
+    private Mat sharedFrame;
+    private ByteBuffer out = ByteBuffer.allocate(4096);
+    private ByteBuffer in = ByteBuffer.allocate(4096);
+    private byte[] inlineFrame = new byte[0];
+    private final long pid;
+    private final int[] inputSizes;
+    private long nextSeq = 0;
+
+    // sharedMemoryPath null sends frames inline
+    WorkerClient(SocketAddress address, Path sharedMemoryPath, long timeoutNanos) throws IOException {
+        channel = address instanceof UnixDomainSocketAddress
+                ? SocketChannel.open(StandardProtocolFamily.UNIX)
+                : SocketChannel.open();
+        try {
+            channel.connect(address);
+            channel.configureBlocking(false);
+            selector = Selector.open();
+            channel.register(selector, SelectionKey.OP_READ);
+
+            if (sharedMemoryPath != null) {
+                sharedMemoryFile = FileChannel.open(sharedMemoryPath, StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            }
+            this.sharedMemoryPath = sharedMemoryPath;
+
+            byte[] path = sharedMemoryPath == null ? new byte[0]
+                    : sharedMemoryPath.toString().getBytes(StandardCharsets.UTF_8);
+            WorkerProtocol.begin(out, WorkerProtocol.HELLO);
+            out = WorkerProtocol.ensureCapacity(out, 64 + path.length);
+            out.putInt(WorkerProtocol.VERSION);
+            out.putInt(path.length);
+            out.put(path);
+            long deadline = System.nanoTime() + timeoutNanos;
+            WorkerProtocol.writeFully(channel, selector, WorkerProtocol.finish(out), deadline);
+
+            in = WorkerProtocol.read(channel, selector, in, deadline);
+            if (in.getInt(Integer.BYTES) != WorkerProtocol.HELLO || in.getInt() != WorkerProtocol.VERSION) {
+                throw new IOException("Worker speaks a different protocol version");
+            }
+            pid = in.getLong();
+            inputSizes = new int[in.getInt()];
+            for (int i = 0; i < inputSizes.length; i++) {
+                inputSizes[i] = in.getInt();
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    long getPid() {
+        return pid;
+    }
+
+    int[] getInputSizes() {
+        return inputSizes.clone();
+    }
+
+    boolean usesSharedMemory() {
+        return sharedMemoryFile != null;
+    }
+
+    // frame must be continuous 8-bit BGR. Regions as in DetectionPipeline.submit;
+    // boxes come back in frame coordinates.
+    synchronized List<YOLOv8Detector.Detection> detect(Mat frame, List<Rect> regions, int regionCount,
+                                                       int inputSize, long timeoutNanos) throws IOException {
+        if (frame.type() != CvType.CV_8UC3 || !frame.isContinuous()) {
+            throw new IllegalArgumentException("Frames must be continuous CV_8UC3");
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        int frameBytes = (int) (frame.total() * frame.elemSize());
+        boolean inline = sharedMemoryFile == null;
+        if (!inline) {
+            mapFrame(frame, frameBytes);
+            frame.copyTo(sharedFrame);
+        }
+
+        long seq = nextSeq++;
+        int regionsSent = regions == null ? 0 : regionCount;
+        out = WorkerProtocol.ensureCapacity(WorkerProtocol.begin(out, WorkerProtocol.DETECT),
+                64 + 16 * regionsSent + (inline ? frameBytes : 0));
+        out.putLong(seq);
+        out.putInt(frame.cols());
+        out.putInt(frame.rows());
+        out.putInt(inputSize);
+        out.putInt(regionsSent);
+        for (int r = 0; r < regionsSent; r++) {
+            Rect region = regions.get(r);
+            out.putInt(region.x);
+            out.putInt(region.y);
+            out.putInt(region.width);
+            out.putInt(region.height);
+        }
+        out.putInt(frameBytes);
+        out.put((byte) (inline ? 1 : 0));
+        if (inline) {
+            if (inlineFrame.length != frameBytes) {
+                inlineFrame = new byte[frameBytes];
+            }
+            frame.get(0, 0, inlineFrame);
+            out.put(inlineFrame);
+        }
+        WorkerProtocol.writeFully(channel, selector, WorkerProtocol.finish(out), deadline);
+
+        in = WorkerProtocol.read(channel, selector, in, deadline);
+        int type = in.getInt(Integer.BYTES);
+        long answered = in.getLong();
+        if (answered != seq) {
+            throw new IOException("Out of sequence answer " + answered + ", expected " + seq);
+        }
+        if (type == WorkerProtocol.ERROR) {
+            byte[] message = new byte[in.getInt()];
+            in.get(message);
+            throw new RemoteError(new String(message, StandardCharsets.UTF_8));
+        }
+        if (type != WorkerProtocol.RESULT) {
+            throw new IOException("Unexpected message type " + type);
+        }
+        in.getLong();
+        int count = in.getInt();
+        List<YOLOv8Detector.Detection> detections = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float x1 = in.getFloat();
+            float y1 = in.getFloat();
+            float x2 = in.getFloat();
+            float y2 = in.getFloat();
+            float confidence = in.getFloat();
+            detections.add(new YOLOv8Detector.Detection(x1, y1, x2, y2, confidence, in.getInt()));
+        }
+        return detections;
+    }
+
+    // The mapping only grows; the worker remaps when a frame is larger than its view
+    private void mapFrame(Mat frame, int frameBytes) throws IOException {
+        if (sharedMemory == null || sharedMemory.capacity() < frameBytes) {
+            long size = ((long) frameBytes + SHARED_MEMORY_STEP - 1) / SHARED_MEMORY_STEP * SHARED_MEMORY_STEP;
+            sharedMemory = sharedMemoryFile.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            releaseSharedFrame();
+        }
+        if (sharedFrame == null || sharedFrame.rows() != frame.rows() || sharedFrame.cols() != frame.cols()) {
+            releaseSharedFrame();
+            sharedFrame = new Mat(frame.rows(), frame.cols(), CvType.CV_8UC3, sharedMemory);
+        }
+    }
+
+    private void releaseSharedFrame() {
+        if (sharedFrame != null) {
+            sharedFrame.release();
+            sharedFrame = null;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        releaseSharedFrame();
+        try {
+            if (selector != null) {
+                selector.close();
+            }
+            channel.close();
+            if (sharedMemoryFile != null) {
+                sharedMemoryFile.close();
+                Files.deleteIfExists(sharedMemoryPath);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
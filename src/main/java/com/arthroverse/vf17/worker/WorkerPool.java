@@ -0,0 +1,313 @@
+package com.arthroverse.vf17.worker;
+
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+import com.arthroverse.vf17.main.VF17Worker;
+import com.arthroverse.vf17.metrics.LatencyHistogram;
+import com.arthroverse.vf17.metrics.Metrics;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+// Runs the detector in N VF17Worker child processes, so a stalled session.run or a
+// native crash costs one worker instead of the operator station. Workers are reached
+// over Unix-domain sockets (-Dvf17.workers.transport=tcp for loopback TCP) with
+// frames in shared memory. A worker that fails or doesn't answer within
+// vf17.workers.timeoutMs is killed and restarted with backoff while its frames move
+// on to the other workers.
+public class WorkerPool implements AutoCloseable {
+    private static final LatencyHistogram REMOTE_LATENCY = Metrics.stage("remote_detect");
+    private static final LongAdder FAILED_OVER_FRAMES = Metrics.frames("failed_over");
+
+    private static final boolean TCP = "tcp".equals(System.getProperty("vf17.workers.transport", "unix"));
+    private static final boolean SHARED_MEMORY =
+            Boolean.parseBoolean(System.getProperty("vf17.workers.sharedMemory", "true"));
+    private static final long TIMEOUT_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("vf17.workers.timeoutMs", 2000));
+    // Covers JVM start, model load and warm-up
+    private static final long START_TIMEOUT_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("vf17.workers.startTimeoutMs", 60000));
+    private static final long MIN_RESTART_DELAY_MS = 1000;
+    private static final long MAX_RESTART_DELAY_MS = 30000;
+    private static final Path SHARED_MEMORY_DIR = Paths.get("/dev/shm");
+
+    private final String modelPath;
+    private final Path runDirectory;
+    private final Worker[] workers;
+    private final ScheduledExecutorService restarter;
+    private volatile boolean closed = false;
+
+    private class Worker {
+        final int index;
+        volatile Process process;
+        volatile WorkerClient client;
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile int restarts = 0;
+        long restartDelayMs = MIN_RESTART_DELAY_MS;
+
+        Worker(int index) {
+            this.index = index;
+        }
+    }
+
+    public WorkerPool(String modelPath, int count) throws IOException {
+        this.modelPath = modelPath;
+        this.runDirectory = Files.createTempDirectory("vf17-workers");
+        this.workers = new Worker[count];
+        this.restarter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "vf17-worker-restart");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Started together so the JVM starts and model loads overlap
+        SocketAddress[] addresses = new SocketAddress[count];
+        for (int i = 0; i < count; i++) {
+            workers[i] = new Worker(i);
+            addresses[i] = address(i);
+            workers[i].process = spawn(workers[i], addresses[i]);
+        }
+        int up = 0;
+        for (Worker worker : workers) {
+            try {
+                worker.client = connect(worker, addresses[worker.index]);
+                up++;
+            } catch (IOException e) {
+                System.out.printf("[workers] worker %d didn't start: %s%n", worker.index, e.getMessage());
+                scheduleRestart(worker);
+            }
+        }
+        if (up == 0) {
+            close();
+            throw new IOException("None of the " + count + " inference workers started");
+        }
+        System.out.printf("[workers] %d/%d workers up over %s%s%n", up, count, TCP ? "tcp" : "unix sockets",
+                SHARED_MEMORY && Files.isDirectory(SHARED_MEMORY_DIR) ? " with shared-memory frames" : "");
+    }
+
+    private SocketAddress address(int index) throws IOException {
+        if (!TCP) {
+            return UnixDomainSocketAddress.of(runDirectory.resolve("worker-" + index + ".sock"));
+        }
+        try (ServerSocket probe = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), probe.getLocalPort());
+        }
+    }
+
+    private Process spawn(Worker worker, SocketAddress address) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            command.add("--add-modules=jdk.incubator.vector");
+        }
+        // Workers split the cores between them unless the ORT thread count is pinned
+        if (System.getProperty("vf17.ort.intraOpThreads") == null) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            command.add("-Dvf17.ort.intraOpThreads=" + Math.max(1, cores / workers.length));
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("vf17.") && !name.startsWith("vf17.workers")) {
+                command.add("-D" + name + "=" + System.getProperty(name));
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(VF17Worker.class.getName());
+        command.add("--model");
+        command.add(modelPath);
+        if (address instanceof UnixDomainSocketAddress) {
+            command.add("--socket");
+            command.add(((UnixDomainSocketAddress) address).getPath().toString());
+        } else {
+            command.add("--port");
+            command.add(String.valueOf(((InetSocketAddress) address).getPort()));
+        }
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    private WorkerClient connect(Worker worker, SocketAddress address) throws IOException {
+        Path sharedMemory = null;
+        if (SHARED_MEMORY && Files.isDirectory(SHARED_MEMORY_DIR)) {
+            sharedMemory = SHARED_MEMORY_DIR.resolve(runDirectory.getFileName() + "-worker-" + worker.index);
+        }
+        long deadline = System.nanoTime() + START_TIMEOUT_NANOS;
+        while (true) {
+            if (!worker.process.isAlive()) {
+                throw new IOException("exited with code " + worker.process.exitValue());
+            }
+            try {
+                WorkerClient client = new WorkerClient(address, sharedMemory, TIMEOUT_NANOS);
+                System.out.printf("[workers] worker %d is pid %d%n", worker.index, client.getPid());
+                return client;
+            } catch (IOException e) {
+                if (System.nanoTime() > deadline) {
+                    throw new IOException("no answer after " + TimeUnit.NANOSECONDS.toSeconds(START_TIMEOUT_NANOS) + " s", e);
+                }
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for worker " + worker.index);
+                }
+            }
+        }
+    }
+
+    // Runs the frame on the preferred worker, or on the next live one if that worker
+    // is down or fails. Throws if no worker could run it.
+    public List<YOLOv8Detector.Detection> detect(int preferred, Mat frame, List<Rect> regions, int regionCount,
+                                                 int inputSize) throws IOException {
+        for (int attempt = 0; attempt < workers.length; attempt++) {
+            Worker worker = workers[(preferred + attempt) % workers.length];
+            WorkerClient client = worker.client;
+            if (client == null) {
+                continue;
+            }
+            worker.inFlight.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                List<YOLOv8Detector.Detection> detections =
+                        client.detect(frame, regions, regionCount, inputSize, TIMEOUT_NANOS);
+                REMOTE_LATENCY.recordSince(start);
+                if (attempt > 0) {
+                    FAILED_OVER_FRAMES.increment();
+                }
+                return detections;
+            } catch (WorkerClient.RemoteError e) {
+                // The frame itself failed, another worker won't do better
+                throw e;
+            } catch (IOException e) {
+                fail(worker, client, e);
+            } finally {
+                worker.inFlight.decrementAndGet();
+            }
+        }
+        throw new IOException("No inference worker available");
+    }
+
+    private void fail(Worker worker, WorkerClient client, Exception cause) {
+        synchronized (worker) {
+            if (worker.client != client) {
+                return;
+            }
+            worker.client = null;
+        }
+        System.out.printf("[workers] worker %d failed (%s), restarting%n", worker.index, cause);
+        client.close();
+        worker.process.destroyForcibly();
+        scheduleRestart(worker);
+    }
+
+    private void scheduleRestart(Worker worker) {
+        if (closed) {
+            return;
+        }
+        long delay = worker.restartDelayMs;
+        worker.restartDelayMs = Math.min(MAX_RESTART_DELAY_MS, delay * 2);
+        restarter.schedule(() -> restart(worker), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void restart(Worker worker) {
+        if (closed) {
+            return;
+        }
+        try {
+            worker.process.destroyForcibly().waitFor(5, TimeUnit.SECONDS);
+            SocketAddress address = address(worker.index);
+            worker.process = spawn(worker, address);
+            WorkerClient client = connect(worker, address);
+            worker.restarts++;
+            worker.restartDelayMs = MIN_RESTART_DELAY_MS;
+            synchronized (worker) {
+                worker.client = client;
+            }
+            if (closed) {
+                client.close();
+                worker.process.destroy();
+            }
+        } catch (Exception e) {
+            System.out.printf("[workers] worker %d restart failed: %s%n", worker.index, e.getMessage());
+            scheduleRestart(worker);
+        }
+    }
+
+    public int size() {
+        return workers.length;
+    }
+
+    public boolean isUp(int index) {
+        return workers[index].client != null;
+    }
+
+    // Frames being run by the worker right now
+    public int getInFlight(int index) {
+        return workers[index].inFlight.get();
+    }
+
+    public int getRestarts(int index) {
+        return workers[index].restarts;
+    }
+
+    // Input sizes of the model the workers serve
+    public int[] getInputSizes() {
+        for (Worker worker : workers) {
+            WorkerClient client = worker.client;
+            if (client != null) {
+                return client.getInputSizes();
+            }
+        }
+        return new int[]{640};
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        restarter.shutdownNow();
+        for (Worker worker : workers) {
+            if (worker == null) {
+                continue;
+            }
+            WorkerClient client = worker.client;
+            worker.client = null;
+            if (client != null) {
+                client.close();
+            }
+            if (worker.process != null) {
+                worker.process.destroy();
+            }
+        }
+        for (Worker worker : workers) {
+            if (worker != null && worker.process != null) {
+                try {
+                    if (!worker.process.waitFor(2, TimeUnit.SECONDS)) {
+                        worker.process.destroyForcibly();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        try (Stream<Path> files = Files.walk(runDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.arthroverse.vf17.worker;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+// Binary protocol between WorkerPool and the VF17Worker processes. Every message is
+// int length (of type + body), int type, then the body, big-endian:
+//
+//   HELLO   pool->worker  int version, int pathLength, byte[] shared-memory path (empty: inline frames)
+//   HELLO   worker->pool  int version, long pid, int sizeCount, int[] input sizes
+//   DETECT  pool->worker  long seq, int cols, int rows, int inputSize, int regionCount,
+//                         int x, y, width, height per region, int frameBytes, byte inline,
+//                         frame bytes (BGR, continuous) if inline
+//   RESULT  worker->pool  long seq, long workerNanos, int count,
+//                         float x1, y1, x2, y2, confidence, int classId per detection
+//   ERROR   worker->pool  long seq, int messageLength, byte[] message
+//
+// Without inline bytes the frame is in the memory-mapped file named in the handshake,
+// starting at offset 0; there is at most one request in flight per connection.
+final class WorkerProtocol {
+    static final int VERSION = 1;
+    static final int HELLO = 1;
+    static final int DETECT = 2;
+    static final int RESULT = 3;
+    static final int ERROR = 4;
+
+    static final int HEADER_BYTES = 2 * Integer.BYTES;
+    static final int DETECTION_BYTES = 5 * Float.BYTES + Integer.BYTES;
+    static final int MAX_MESSAGE_BYTES = 256 << 20;
+
+    private WorkerProtocol() {
+    }
+
+    // Leaves room for the header; finish() fills it in once the body is written
+    static ByteBuffer begin(ByteBuffer buffer, int type) {
+        buffer.clear();
+        buffer.putInt(0);
+        buffer.putInt(type);
+        return buffer;
+    }
+
+    static ByteBuffer finish(ByteBuffer buffer) {
+        buffer.putInt(0, buffer.position() - Integer.BYTES);
+        buffer.flip();
+        return buffer;
+    }
+
+    static ByteBuffer ensureCapacity(ByteBuffer buffer, int bytes) {
+        if (buffer.capacity() >= bytes) {
+            return buffer;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(bytes, buffer.capacity() * 2));
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    // Reads one message into buffer (grown if needed) and returns the buffer
+    // positioned at the body; the type is buffer.getInt(Integer.BYTES).
+    // selector == null means a blocking channel without a deadline.
+    static ByteBuffer read(SocketChannel channel, Selector selector, ByteBuffer buffer, long deadline)
+            throws IOException {
+        buffer.clear().limit(HEADER_BYTES);
+        readFully(channel, selector, buffer, deadline);
+        int length = buffer.getInt(0);
+        if (length < Integer.BYTES || length > MAX_MESSAGE_BYTES) {
+            throw new IOException("Bad message length " + length);
+        }
+        int type = buffer.getInt(Integer.BYTES);
+        buffer = ensureCapacity(buffer, Integer.BYTES + length);
+        buffer.clear();
+        buffer.putInt(length);
+        buffer.putInt(type);
+        buffer.limit(Integer.BYTES + length);
+        readFully(channel, selector, buffer, deadline);
+        buffer.position(HEADER_BYTES);
+        return buffer;
+    }
+
+    static void readFully(SocketChannel channel, Selector selector, ByteBuffer buffer, long deadline)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer);
+            if (n < 0) {
+                throw new EOFException("Connection closed");
+            }
+            if (n == 0 && selector != null) {
+                await(channel, selector, SelectionKey.OP_READ, deadline);
+            }
+        }
+    }
+
+    static void writeFully(SocketChannel channel, Selector selector, ByteBuffer buffer, long deadline)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.write(buffer) == 0 && selector != null) {
+                await(channel, selector, SelectionKey.OP_WRITE, deadline);
+            }
+        }
+    }
+
+    private static void await(SocketChannel channel, Selector selector, int ops, long deadline)
+            throws IOException {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw new SocketTimeoutException("Worker did not answer in time");
+        }
+        channel.keyFor(selector).interestOps(ops);
+        selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+        selector.selectedKeys().clear();
+    }
+}
@@ -0,0 +1,190 @@
+package com.arthroverse.vf17.worker;
+
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Worker side of the protocol: serves one pool connection at a time with one
+// detector, running a frame's regions as one batch like the in-process pipeline.
+public class WorkerServer {
+    private final YOLOv8Detector detector;
+    private final List<YOLOv8Detector.Slot> slots = new ArrayList<>();
+    private final List<Rect> regions = new ArrayList<>();
+    private ByteBuffer in = ByteBuffer.allocate(4096);
+    private ByteBuffer out = ByteBuffer.allocate(4096);
+
+    // Per connection
+    private FileChannel sharedMemoryFile;
+    private MappedByteBuffer sharedMemory;
+    private Mat frame;
+    private byte[] pixels;
+
+    public WorkerServer(YOLOv8Detector detector) {
+        this.detector = detector;
+    }
+
+    public void serve(ServerSocketChannel server) throws IOException {
+        while (server.isOpen()) {
+            try (SocketChannel channel = server.accept()) {
+                serveConnection(channel);
+            } catch (EOFException e) {
+                // Pool closed the connection
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                closeConnection();
+            }
+        }
+    }
+
+    private void serveConnection(SocketChannel channel) throws IOException {
+        in = WorkerProtocol.read(channel, null, in, 0);
+        if (in.getInt(Integer.BYTES) != WorkerProtocol.HELLO) {
+            throw new IOException("Expected HELLO");
+        }
+        int version = in.getInt();
+        byte[] path = new byte[in.getInt()];
+        in.get(path);
+        if (path.length > 0) {
+            sharedMemoryFile = FileChannel.open(Paths.get(new String(path, StandardCharsets.UTF_8)),
+                    StandardOpenOption.READ);
+        }
+        int[] sizes = detector.getInputSizes();
+        WorkerProtocol.begin(out, WorkerProtocol.HELLO);
+        out.putInt(WorkerProtocol.VERSION);
+        out.putLong(ProcessHandle.current().pid());
+        out.putInt(sizes.length);
+        for (int size : sizes) {
+            out.putInt(size);
+        }
+        WorkerProtocol.writeFully(channel, null, WorkerProtocol.finish(out), 0);
+        if (version != WorkerProtocol.VERSION) {
+            throw new IOException("Pool speaks protocol version " + version);
+        }
+
+        while (true) {
+            in = WorkerProtocol.read(channel, null, in, 0);
+            int type = in.getInt(Integer.BYTES);
+            if (type != WorkerProtocol.DETECT) {
+                throw new IOException("Unexpected message type " + type);
+            }
+            long seq = in.getLong();
+            long start = System.nanoTime();
+            List<YOLOv8Detector.Detection> detections;
+            try {
+                detections = detect(in);
+            } catch (Exception e) {
+                // A bad frame or a failed run is reported, the connection stays up
+                byte[] message = String.valueOf(e).getBytes(StandardCharsets.UTF_8);
+                out = WorkerProtocol.ensureCapacity(WorkerProtocol.begin(out, WorkerProtocol.ERROR),
+                        32 + message.length);
+                out.putLong(seq);
+                out.putInt(message.length);
+                out.put(message);
+                WorkerProtocol.writeFully(channel, null, WorkerProtocol.finish(out), 0);
+                continue;
+            }
+            out = WorkerProtocol.ensureCapacity(WorkerProtocol.begin(out, WorkerProtocol.RESULT),
+                    32 + detections.size() * WorkerProtocol.DETECTION_BYTES);
+            out.putLong(seq);
+            out.putLong(System.nanoTime() - start);
+            out.putInt(detections.size());
+            for (YOLOv8Detector.Detection d : detections) {
+                out.putFloat(d.x1);
+                out.putFloat(d.y1);
+                out.putFloat(d.x2);
+                out.putFloat(d.y2);
+                out.putFloat(d.confidence);
+                out.putInt(d.classId);
+            }
+            WorkerProtocol.writeFully(channel, null, WorkerProtocol.finish(out), 0);
+        }
+    }
+
+    private List<YOLOv8Detector.Detection> detect(ByteBuffer request) throws Exception {
+        int cols = request.getInt();
+        int rows = request.getInt();
+        int inputSize = request.getInt();
+        int regionCount = request.getInt();
+        regions.clear();
+        for (int r = 0; r < regionCount; r++) {
+            regions.add(new Rect(request.getInt(), request.getInt(), request.getInt(), request.getInt()));
+        }
+        int frameBytes = request.getInt();
+        boolean inline = request.get() != 0;
+        if (frameBytes != rows * cols * 3) {
+            throw new IllegalArgumentException("Frame of " + frameBytes + " bytes is not " + cols + "x" + rows + " BGR");
+        }
+
+        if (inline) {
+            if (frame == null || frame.rows() != rows || frame.cols() != cols) {
+                releaseFrame();
+                frame = new Mat(rows, cols, CvType.CV_8UC3);
+                pixels = new byte[frameBytes];
+            }
+            request.get(pixels);
+            frame.put(0, 0, pixels);
+        } else {
+            if (sharedMemoryFile == null) {
+                throw new IllegalStateException("No shared memory was set up");
+            }
+            if (sharedMemory == null || sharedMemory.capacity() < frameBytes) {
+                sharedMemory = sharedMemoryFile.map(FileChannel.MapMode.READ_ONLY, 0, sharedMemoryFile.size());
+                releaseFrame();
+            }
+            // Zero-copy view of the pool's frame; preprocessing only reads it
+            if (frame == null || frame.rows() != rows || frame.cols() != cols) {
+                releaseFrame();
+                frame = new Mat(rows, cols, CvType.CV_8UC3, sharedMemory);
+            }
+        }
+
+        int count = Math.max(1, regionCount);
+        while (slots.size() < count) {
+            slots.add(detector.createSlot());
+        }
+        for (int r = 0; r < count; r++) {
+            detector.preprocess(frame, regionCount == 0 ? null : regions.get(r), slots.get(r), inputSize);
+        }
+        if (count == 1) {
+            detector.infer(slots.get(0));
+            return detector.postprocess(slots.get(0));
+        }
+        detector.inferBatch(slots.subList(0, count));
+        return detector.postprocess(slots, count);
+    }
+
+    private void releaseFrame() {
+        if (frame != null) {
+            frame.release();
+            frame = null;
+        }
+    }
+
+    private void closeConnection() {
+        releaseFrame();
+        sharedMemory = null;
+        if (sharedMemoryFile != null) {
+            try {
+                sharedMemoryFile.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            sharedMemoryFile = null;
+        }
+    }
+}
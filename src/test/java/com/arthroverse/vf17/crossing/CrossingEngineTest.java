@@ -0,0 +1,149 @@
+package com.arthroverse.vf17.crossing;
+
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+import com.arthroverse.vf17.tracking.ObjectTracker;
+import com.arthroverse.vf17.tracking.Track;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CrossingEngineTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // Vertical line at x = 430; POSITIVE is its right-hand side walking down it,
+    // i.e. objects moving left over it
+    private static CrossingLine line(CrossingGeometry.Direction direction) {
+        return new CrossingLine("exit", direction, 430, 0, 430, 574);
+    }
+
+    @Test
+    void countsOnlyTheConfiguredDirection() {
+        float[] leftwards = {470, 450, 410, 390};
+        float[] rightwards = {390, 410, 450, 470};
+        assertEquals(1, count(CrossingGeometry.Direction.POSITIVE, leftwards));
+        assertEquals(0, count(CrossingGeometry.Direction.POSITIVE, rightwards));
+        assertEquals(0, count(CrossingGeometry.Direction.NEGATIVE, leftwards));
+        assertEquals(1, count(CrossingGeometry.Direction.NEGATIVE, rightwards));
+        assertEquals(1, count(CrossingGeometry.Direction.ANY, leftwards));
+        assertEquals(1, count(CrossingGeometry.Direction.ANY, rightwards));
+    }
+
+    @Test
+    void ignoresMovesPastTheEndOfASegment() {
+        CrossingEngine engine = new CrossingEngine(
+                List.of(new CrossingLine("short", CrossingGeometry.Direction.ANY, 430, 0, 430, 100)), 1000);
+        // Crosses x = 430 at y = 300, below the segment
+        ObjectTracker tracker = new ObjectTracker(0.2f, 10_000 * MS);
+        List<CrossingEvent> events = new ArrayList<>();
+        move(engine, tracker, 0, 450, 300, 0, events);
+        move(engine, tracker, 0, 410, 300, 100 * MS, events);
+        assertEquals(0, events.size());
+    }
+
+    @Test
+    void countsATrackOncePerCooldown() {
+        CrossingEngine engine = new CrossingEngine(List.of(line(CrossingGeometry.Direction.ANY)), 1000);
+        ObjectTracker tracker = new ObjectTracker(0.2f, 10_000 * MS);
+        List<CrossingEvent> events = new ArrayList<>();
+        // Jitters across the line every 100 ms
+        long t = 0;
+        for (int i = 0; i < 10; i++, t += 100 * MS) {
+            move(engine, tracker, 0, i % 2 == 0 ? 450 : 410, 300, t, events);
+        }
+        assertEquals(1, events.size());
+        assertEquals(100 * MS, events.get(0).getNanos());
+        assertSame(engine.getGeometries().get(0), events.get(0).getGeometry());
+
+        // Once the cooldown is over the same track counts again
+        for (int i = 0; i < 4; i++, t += 100 * MS) {
+            move(engine, tracker, 0, i % 2 == 0 ? 450 : 410, 300, t, events);
+        }
+        assertEquals(2, events.size());
+        assertEquals(events.get(0).getTrack().getId(), events.get(1).getTrack().getId());
+    }
+
+    @Test
+    void coolsDownPerTrackAndPerStream() {
+        CrossingEngine engine = new CrossingEngine(List.of(line(CrossingGeometry.Direction.ANY)), 1000);
+        List<CrossingEvent> events = new ArrayList<>();
+        // Two items far apart on one stream, and one on another stream whose tracker
+        // hands out the same track id as the first
+        ObjectTracker first = new ObjectTracker(0.2f, 10_000 * MS);
+        ObjectTracker second = new ObjectTracker(0.2f, 10_000 * MS);
+        for (int step = 0; step < 2; step++) {
+            float x = step == 0 ? 450 : 410;
+            long t = step * 100 * MS;
+            List<YOLOv8Detector.Detection> detections = new ArrayList<>(List.of(box(x, 150), box(x, 450)));
+            engine.evaluate(0, first.update(detections, t), t, events);
+            engine.evaluate(1, second.update(new ArrayList<>(List.of(box(x, 150))), t), t, events);
+        }
+        assertEquals(3, events.size());
+        assertEquals(3, engine.getCooldowns().size());
+    }
+
+    @Test
+    void resetLetsARestartedClockCountAgain() {
+        CrossingEngine engine = new CrossingEngine(List.of(line(CrossingGeometry.Direction.ANY)), 1000);
+        List<CrossingEvent> events = new ArrayList<>();
+        // A batch file: track 1 crosses 100 ms in
+        ObjectTracker tracker = new ObjectTracker(0.2f, 10_000 * MS);
+        move(engine, tracker, 0, 450, 300, 0, events);
+        move(engine, tracker, 0, 410, 300, 100 * MS, events);
+        assertEquals(1, events.size());
+
+        // The next file starts at 0 again with a fresh tracker, so track 1 is back
+        // and crosses at the same timestamps
+        engine.reset();
+        assertEquals(0, engine.getCooldowns().size());
+        tracker = new ObjectTracker(0.2f, 10_000 * MS);
+        move(engine, tracker, 0, 450, 300, 0, events);
+        move(engine, tracker, 0, 410, 300, 100 * MS, events);
+        assertEquals(2, events.size());
+        assertEquals(events.get(0).getTrack().getId(), events.get(1).getTrack().getId());
+    }
+
+    @Test
+    void zonesCountEnteringOrLeaving() {
+        float[] square = {100, 100, 300, 100, 300, 300, 100, 300};
+        CrossingEngine enter = new CrossingEngine(
+                List.of(new CrossingZone("reject", CrossingGeometry.Direction.ENTER, square)), 1000);
+        CrossingEngine exit = new CrossingEngine(
+                List.of(new CrossingZone("reject", CrossingGeometry.Direction.EXIT, square)), 1000);
+        float[] through = {20, 60, 100, 140, 180, 220, 260, 300, 340, 380};
+        assertEquals(1, countAtY(enter, through, 200));
+        assertEquals(1, countAtY(exit, through, 200));
+        // Passing above the zone never touches it
+        assertEquals(0, countAtY(enter, through, 50));
+    }
+
+    private static int count(CrossingGeometry.Direction direction, float[] xs) {
+        return countAtY(new CrossingEngine(List.of(line(direction)), 1000), xs, 300);
+    }
+
+    private static int countAtY(CrossingEngine engine, float[] xs, float y) {
+        ObjectTracker tracker = new ObjectTracker(0.2f, 10_000 * MS);
+        List<CrossingEvent> events = new ArrayList<>();
+        for (int i = 0; i < xs.length; i++) {
+            move(engine, tracker, 0, xs[i], y, i * 100 * MS, events);
+        }
+        return events.size();
+    }
+
+    // Measures one item at (x, y) and evaluates the tracks that were updated
+    private static void move(CrossingEngine engine, ObjectTracker tracker, int streamId, float x, float y,
+                             long nanos, List<CrossingEvent> events) {
+        List<Track> tracks = tracker.update(new ArrayList<>(List.of(box(x, y))), nanos);
+        assertEquals(1, tracks.size());
+        engine.evaluate(streamId, tracks, nanos, events);
+    }
+
+    // Boxes much bigger than a step so a jittering item stays one track
+    private static YOLOv8Detector.Detection box(float cx, float cy) {
+        return new YOLOv8Detector.Detection(cx - 100, cy - 100, cx + 100, cy + 100, 0.9f, 0);
+    }
+}
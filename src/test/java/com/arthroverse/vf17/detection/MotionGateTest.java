@@ -0,0 +1,84 @@
+package com.arthroverse.vf17.detection;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MotionGateTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void staticFramesAreGatedAndAMovedBlockPasses() {
+        MotionGate gate = new MotionGate(null, 25, 0.01, 1000);
+        Mat frame = belt(100);
+        try {
+            // Nothing to compare the first frame with, so it counts as motion
+            assertTrue(gate.detectMotion(frame));
+            assertFalse(gate.detectMotion(frame));
+            assertFalse(gate.detectMotion(frame.clone()));
+
+            Mat moved = belt(180);
+            assertTrue(gate.detectMotion(moved));
+            assertFalse(gate.detectMotion(moved));
+            moved.release();
+        } finally {
+            frame.release();
+            gate.release();
+        }
+    }
+
+    @Test
+    void changesOutsideTheRoiAreIgnored() {
+        MotionGate gate = new MotionGate(new Rect(0, 0, 80, 240), 25, 0.01, 1000);
+        Mat frame = belt(200);
+        Mat moved = belt(240);
+        try {
+            gate.detectMotion(frame);
+            assertFalse(gate.detectMotion(moved));
+        } finally {
+            frame.release();
+            moved.release();
+            gate.release();
+        }
+    }
+
+    @Test
+    void refreshForcesAPassWithoutMotion() {
+        MotionGate gate = new MotionGate(null, 25, 0.01, 1000);
+        assertTrue(gate.allowInference(true, 1000 * MS));
+        assertFalse(gate.allowInference(false, 1500 * MS));
+        assertFalse(gate.allowInference(false, 1999 * MS));
+        assertTrue(gate.allowInference(false, 2000 * MS));
+        // The refresh restarts from the last inference, motion-driven or not
+        assertTrue(gate.allowInference(true, 2500 * MS));
+        assertFalse(gate.allowInference(false, 3400 * MS));
+
+        assertEquals(3, gate.getPassedCount());
+        assertEquals(3, gate.getGatedCount());
+        assertEquals(0.5, gate.getGatedRatio(), 1e-9);
+        gate.release();
+    }
+
+    // Grey belt with one bright item whose left edge is at x
+    private static Mat belt(int x) {
+        Mat frame = new Mat(240, 320, CvType.CV_8UC3, new Scalar(60, 60, 60));
+        Imgproc.rectangle(frame, new Point(x, 80), new Point(x + 60, 160), new Scalar(40, 200, 230), -1);
+        return frame;
+    }
+}
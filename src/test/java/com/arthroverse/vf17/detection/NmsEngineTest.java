@@ -0,0 +1,131 @@
+package com.arthroverse.vf17.detection;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+// NmsEngine has to keep exactly the boxes the old list-based applyNMS kept, in the
+// same order, including which of several equal-score boxes survives.
+class NmsEngineTest {
+    private static final float IOU_THRESHOLD = 0.45f;
+
+    @Test
+    void matchesLegacyOnRandomClusters() {
+        Random random = new Random(17);
+        NmsEngine engine = new NmsEngine(IOU_THRESHOLD);
+        // One engine for every round, so buffer reuse across calls is covered too
+        for (int round = 0; round < 200; round++) {
+            int count = 1 + random.nextInt(round < 190 ? 400 : 8400);
+            List<YOLOv8Detector.Detection> candidates = clusters(random, count, 1 + random.nextInt(20), false);
+            assertSameBoxes(legacyNMS(candidates, IOU_THRESHOLD), engine.apply(candidates), "round " + round);
+        }
+    }
+
+    @Test
+    void matchesLegacyOnTiedScores() {
+        Random random = new Random(23);
+        NmsEngine engine = new NmsEngine(IOU_THRESHOLD);
+        for (int round = 0; round < 200; round++) {
+            List<YOLOv8Detector.Detection> candidates =
+                    clusters(random, 1 + random.nextInt(300), 1 + random.nextInt(5), true);
+            assertSameBoxes(legacyNMS(candidates, IOU_THRESHOLD), engine.apply(candidates), "round " + round);
+        }
+    }
+
+    @Test
+    void keepsTheFirstOfIdenticalBoxes() {
+        List<YOLOv8Detector.Detection> candidates = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            candidates.add(new YOLOv8Detector.Detection(10, 10, 50, 50, 0.5f, 0));
+        }
+        candidates.add(new YOLOv8Detector.Detection(10, 10, 50, 50, 0.5f, 1));
+        List<YOLOv8Detector.Detection> kept = new NmsEngine(IOU_THRESHOLD).apply(candidates);
+        assertSameBoxes(legacyNMS(candidates, IOU_THRESHOLD), kept, "identical boxes");
+        assertEquals(2, kept.size());
+        assertSame(candidates.get(0), kept.get(0));
+    }
+
+    @Test
+    void matchesLegacyAcrossThresholds() {
+        Random random = new Random(31);
+        for (float threshold : new float[]{0f, 0.1f, 0.3f, 0.7f, 0.95f}) {
+            NmsEngine engine = new NmsEngine(threshold);
+            for (int round = 0; round < 50; round++) {
+                List<YOLOv8Detector.Detection> candidates =
+                        clusters(random, 1 + random.nextInt(200), 1 + random.nextInt(5), round % 2 == 0);
+                assertSameBoxes(legacyNMS(candidates, threshold), engine.apply(candidates),
+                        "threshold " + threshold + " round " + round);
+            }
+        }
+    }
+
+    @Test
+    void handlesNoCandidates() {
+        assertEquals(0, new NmsEngine(IOU_THRESHOLD).apply(new ArrayList<>()).size());
+    }
+
+    // Overlapping boxes around a few objects, like a low confidence threshold gives.
+    // With tied set, scores only take a handful of values so many boxes share one.
+    private static List<YOLOv8Detector.Detection> clusters(Random random, int count, int classes, boolean tied) {
+        List<YOLOv8Detector.Detection> candidates = new ArrayList<>(count);
+        int objects = Math.max(1, count / 30);
+        for (int i = 0; i < count; i++) {
+            int object = random.nextInt(objects);
+            float cx = 40 + (object * 97) % 780 + random.nextFloat() * 30;
+            float cy = 40 + (object * 61) % 500 + random.nextFloat() * 30;
+            float w = 20 + random.nextFloat() * 80;
+            float h = 20 + random.nextFloat() * 80;
+            float score = tied ? 0.25f + random.nextInt(4) * 0.25f : 0.25f + random.nextFloat() * 0.75f;
+            candidates.add(new YOLOv8Detector.Detection(cx - w / 2, cy - h / 2, cx + w / 2, cy + h / 2,
+                    score, random.nextInt(classes)));
+        }
+        return candidates;
+    }
+
+    private static void assertSameBoxes(List<YOLOv8Detector.Detection> expected,
+                                        List<YOLOv8Detector.Detection> actual, String what) {
+        assertEquals(expected.size(), actual.size(), what + ": kept count");
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i), what + ": box " + i);
+        }
+    }
+
+    // The list-based YOLOv8Detector.applyNMS from before NmsEngine, unchanged apart
+    // from copying its input and taking the threshold as a parameter
+    private static List<YOLOv8Detector.Detection> legacyNMS(List<YOLOv8Detector.Detection> candidates,
+                                                           float iouThreshold) {
+        List<YOLOv8Detector.Detection> detections = new ArrayList<>(candidates);
+        detections.sort((a, b) -> Float.compare(b.confidence, a.confidence));
+        List<YOLOv8Detector.Detection> result = new ArrayList<>();
+
+        while (!detections.isEmpty()) {
+            YOLOv8Detector.Detection best = detections.remove(0);
+            result.add(best);
+
+            detections.removeIf(det ->
+                    det.classId == best.classId &&
+                            calculateIoU(best, det) > iouThreshold);
+        }
+
+        return result;
+    }
+
+    private static float calculateIoU(YOLOv8Detector.Detection a, YOLOv8Detector.Detection b) {
+        float x1 = Math.max(a.x1, b.x1);
+        float y1 = Math.max(a.y1, b.y1);
+        float x2 = Math.min(a.x2, b.x2);
+        float y2 = Math.min(a.y2, b.y2);
+
+        float intersection = Math.max(0, x2 - x1) * Math.max(0, y2 - y1);
+        float areaA = (a.x2 - a.x1) * (a.y2 - a.y1);
+        float areaB = (b.x2 - b.x1) * (b.y2 - b.y1);
+        float union = areaA + areaB - intersection;
+
+        return intersection / union;
+    }
+}
@@ -0,0 +1,84 @@
+package com.arthroverse.vf17.detection;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Both kernels have to give exactly the floats the old cvtColor + strided loop gave,
+// for any frame size and however the pixels are split into parallel blocks.
+class PixelNormalizerTest {
+    // {height, width}: square model sizes, sizes that aren't a multiple of any vector
+    // width, and a frame big enough to be split into several blocks
+    private static final int[][] SIZES = {{320, 320}, {640, 640}, {77, 101}, {1, 3}, {257, 331}};
+    private static final int[] PARALLELISM = {1, 3, 4};
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void scalarMatchesLegacy() {
+        assertMatchesLegacy(new ScalarPixelNormalizer());
+    }
+
+    @Test
+    void vectorMatchesLegacy() {
+        assumeTrue(VectorPixelNormalizer.isSupported(), "vectors narrower than 256 bits");
+        assertMatchesLegacy(new VectorPixelNormalizer());
+    }
+
+    private static void assertMatchesLegacy(PixelNormalizer normalizer) {
+        Random random = new Random(20);
+        for (int[] size : SIZES) {
+            int height = size[0];
+            int width = size[1];
+            byte[] bgr = new byte[3 * height * width];
+            random.nextBytes(bgr);
+            float[] expected = legacyPreprocess(bgr, height, width);
+
+            for (int parallelism : PARALLELISM) {
+                ByteBuffer out = ByteBuffer.allocateDirect(bgr.length * Float.BYTES).order(ByteOrder.nativeOrder());
+                normalizer.normalize(bgr, out, height * width, parallelism);
+                float[] actual = new float[bgr.length];
+                out.asFloatBuffer().get(actual);
+                assertArrayEquals(expected, actual, normalizer.getName() + " " + width + "x" + height
+                        + " parallelism " + parallelism);
+            }
+        }
+    }
+
+    // YOLOv8Detector.preprocessMat before the normalizers: cvtColor to RGB, then one
+    // strided pass per channel
+    private static float[] legacyPreprocess(byte[] bgr, int height, int width) {
+        Mat bgrMat = new Mat(height, width, CvType.CV_8UC3);
+        Mat rgbMat = new Mat();
+        bgrMat.put(0, 0, bgr);
+        Imgproc.cvtColor(bgrMat, rgbMat, Imgproc.COLOR_BGR2RGB);
+        byte[] pixels = new byte[bgr.length];
+        rgbMat.get(0, 0, pixels);
+        bgrMat.release();
+        rgbMat.release();
+
+        float[] input = new float[bgr.length];
+        int idx = 0;
+        for (int c = 0; c < 3; c++) {
+            for (int h = 0; h < height; h++) {
+                for (int w = 0; w < width; w++) {
+                    int pixelIndex = (h * width + w) * 3 + c;
+                    input[idx++] = (pixels[pixelIndex] & 0xFF) / 255.0f;
+                }
+            }
+        }
+        return input;
+    }
+}
@@ -0,0 +1,97 @@
+package com.arthroverse.vf17.detection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+// Writes minimal ONNX models for the detector tests: a single Reshape from the
+// 1x3xSxS input to a 1x12xA YOLO-style output (8 classes), so the "detections" are
+// just the normalized pixels. A dynamic model has symbolic spatial and output dims,
+// like a dynamic-shape export, so its output shape is only known once it has run.
+final class TestModels {
+    static final int FLOAT = 1;
+    static final int UINT8 = 2;
+
+    private TestModels() {
+    }
+
+    // size is ignored for a dynamic model, which runs at the detector's configured sizes
+    static Path reshape(Path dir, String name, int elementType, int size, boolean dynamic,
+                        Map<String, String> metadata) throws IOException {
+        int anchors = 3 * size * size / 12;
+        ByteArrayOutputStream shapeData = new ByteArrayOutputStream();
+        ByteBuffer longs = ByteBuffer.allocate(3 * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        longs.putLong(1).putLong(12).putLong(dynamic ? -1 : anchors);
+        shapeData.write(longs.array());
+        byte[] shapeTensor = concat(varintField(1, 3), varintField(2, 7), stringField(8, "shape"),
+                bytesField(9, shapeData.toByteArray()));
+
+        byte[] node = concat(stringField(1, "images"), stringField(1, "shape"), stringField(2, "output0"),
+                stringField(3, "reshape"), stringField(4, "Reshape"));
+        byte[] input = valueInfo("images", elementType,
+                dynamic ? new Object[]{1, 3, "height", "width"} : new Object[]{1, 3, size, size});
+        byte[] output = valueInfo("output0", elementType,
+                dynamic ? new Object[]{1, "features", "anchors"} : new Object[]{1, 12, anchors});
+        byte[] graph = concat(bytesField(1, node), stringField(2, "g"), bytesField(5, shapeTensor),
+                bytesField(11, input), bytesField(12, output));
+
+        ByteArrayOutputStream model = new ByteArrayOutputStream();
+        model.write(varintField(1, 8));
+        model.write(stringField(2, "vf17-test"));
+        model.write(bytesField(7, graph));
+        model.write(bytesField(8, concat(stringField(1, ""), varintField(2, 17))));
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            model.write(bytesField(14, concat(stringField(1, entry.getKey()), stringField(2, entry.getValue()))));
+        }
+        Path path = dir.resolve(name + ".onnx");
+        Files.write(path, model.toByteArray());
+        return path;
+    }
+
+    private static byte[] valueInfo(String name, int elementType, Object[] dims) {
+        ByteArrayOutputStream shape = new ByteArrayOutputStream();
+        for (Object dim : dims) {
+            byte[] value = dim instanceof Integer
+                    ? varintField(1, (Integer) dim)
+                    : stringField(2, (String) dim);
+            shape.writeBytes(bytesField(1, value));
+        }
+        byte[] tensorType = concat(varintField(1, elementType), bytesField(2, shape.toByteArray()));
+        return concat(stringField(1, name), bytesField(2, bytesField(1, tensorType)));
+    }
+
+    private static byte[] varintField(int field, long value) {
+        return concat(varint((long) field << 3), varint(value));
+    }
+
+    private static byte[] stringField(int field, String value) {
+        return bytesField(field, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] bytesField(int field, byte[] value) {
+        return concat(varint(((long) field << 3) | 2), varint(value.length), value);
+    }
+
+    private static byte[] varint(long value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,76 @@
+package com.arthroverse.vf17.detection;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// Once every buffer for a frame size exists, detect() must not allocate any more
+// tensors, buffers or decoders: the allocation counter stays flat.
+class YOLOv8DetectorAllocationTest {
+    private static final int WARM_UP = 3;
+    private static final int RUNS = 50;
+
+    @TempDir
+    static Path models;
+
+    @BeforeAll
+    static void loadOpenCv() {
+        nu.pattern.OpenCV.loadLocally();
+    }
+
+    @Test
+    void staticOutputDoesNotAllocatePerFrame() throws Exception {
+        assertSteadyState(TestModels.reshape(models, "fp32", TestModels.FLOAT, 32, false, Map.of()));
+    }
+
+    @Test
+    void dynamicOutputIsPinnedAfterTheFirstFrame() throws Exception {
+        assertSteadyState(TestModels.reshape(models, "fp32dyn", TestModels.FLOAT, 32, true, Map.of()));
+    }
+
+    @Test
+    void dynamicQuantizedOutputIsPinnedAfterTheFirstFrame() throws Exception {
+        assertSteadyState(TestModels.reshape(models, "u8dyn", TestModels.UINT8, 32, true,
+                Map.of("output_scale", Double.toString(1 / 255.0), "output_zero_point", "0")));
+    }
+
+    private static void assertSteadyState(Path model) throws Exception {
+        Mat frame = new Mat(48, 64, CvType.CV_8UC3);
+        Core.randu(frame, 0, 255);
+        YOLOv8Detector detector = new YOLOv8Detector(model.toString(), ExecutionProfile.load());
+        try {
+            List<YOLOv8Detector.Detection> first = detector.detect(frame);
+            for (int i = 1; i < WARM_UP; i++) {
+                detector.detect(frame);
+            }
+            long allocations = detector.getAllocationCount();
+            List<YOLOv8Detector.Detection> last = null;
+            for (int i = 0; i < RUNS; i++) {
+                last = detector.detect(frame);
+            }
+            assertEquals(allocations, detector.getAllocationCount(), model.getFileName() + " allocations");
+
+            // The copied-out first result and the pinned ones decode the same
+            assertFalse(first.isEmpty());
+            assertEquals(first.size(), last.size());
+            for (int i = 0; i < first.size(); i++) {
+                assertEquals(first.get(i).x1, last.get(i).x1);
+                assertEquals(first.get(i).confidence, last.get(i).confidence);
+                assertEquals(first.get(i).classId, last.get(i).classId);
+            }
+        } finally {
+            detector.close();
+            frame.release();
+        }
+    }
+}
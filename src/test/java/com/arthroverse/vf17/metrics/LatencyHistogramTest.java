@@ -0,0 +1,125 @@
+package com.arthroverse.vf17.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+    // A window no test outlives, so nothing ages out mid-test
+    private static final long LONG_WINDOW = Long.MAX_VALUE / 4;
+    // 2^26 us, where the last bucket starts collecting everything above
+    private static final long RANGE_MICROS = 1L << 26;
+
+    @Test
+    void bucketsAreExactBelow128us() {
+        for (long micros = 0; micros < 128; micros++) {
+            int bucket = LatencyHistogram.bucket(micros);
+            assertEquals(micros, bucket);
+            assertEquals(micros, LatencyHistogram.bucketUpperMicros(bucket));
+        }
+        assertEquals(128, LatencyHistogram.bucket(128));
+    }
+
+    @Test
+    void bucketBoundsCoverEveryValueWithinTwoPercent() {
+        int previous = -1;
+        for (long micros = 0; micros < RANGE_MICROS; micros = micros < 4096 ? micros + 1 : micros + micros / 997) {
+            assertBucketHolds(micros);
+            int bucket = LatencyHistogram.bucket(micros);
+            assertTrue(bucket >= previous, micros + "us goes to an earlier bucket");
+            previous = bucket;
+        }
+        for (int exp = 7; exp < 26; exp++) {
+            long power = 1L << exp;
+            assertBucketHolds(power - 1);
+            assertBucketHolds(power);
+            assertBucketHolds(power + 1);
+            // A power of two starts a new bucket
+            assertEquals(LatencyHistogram.bucket(power - 1) + 1, LatencyHistogram.bucket(power));
+        }
+    }
+
+    @Test
+    void valuesPastTheRangeLandInTheLastBucket() {
+        int last = LatencyHistogram.bucket(RANGE_MICROS - 1);
+        assertEquals(last, LatencyHistogram.bucket(RANGE_MICROS));
+        assertEquals(last, LatencyHistogram.bucket(10 * RANGE_MICROS));
+    }
+
+    @Test
+    void quantilesAreWithinOneBucketOfTheExactValue() {
+        Random random = new Random(19);
+        LatencyHistogram histogram = new LatencyHistogram("test", LONG_WINDOW);
+        int samples = 100_000;
+        long[] micros = new long[samples];
+        long totalNanos = 0;
+        for (int i = 0; i < samples; i++) {
+            // Log-normal around 8 ms with a long tail, like inference latency
+            long nanos = (long) (8_000_000 * Math.exp(0.6 * random.nextGaussian()));
+            micros[i] = nanos / 1000;
+            totalNanos += nanos;
+            histogram.record(nanos);
+        }
+        Arrays.sort(micros);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(samples, snapshot.windowCount);
+        assertEquals(samples, snapshot.totalCount);
+        assertEquals(totalNanos, snapshot.totalNanos);
+        assertEquals(micros[samples - 1], snapshot.maxMicros);
+        assertQuantile(micros[(int) Math.ceil(0.5 * samples) - 1], snapshot.p50Micros);
+        assertQuantile(micros[(int) Math.ceil(0.99 * samples) - 1], snapshot.p99Micros);
+    }
+
+    @Test
+    void quantilesNeverExceedTheMax() {
+        LatencyHistogram histogram = new LatencyHistogram("test", LONG_WINDOW);
+        histogram.record(1_000_001_000L);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1_000_001, snapshot.maxMicros);
+        assertEquals(1_000_001, snapshot.p50Micros);
+        assertEquals(1_000_001, snapshot.p99Micros);
+    }
+
+    @Test
+    void ignoresNegativeDurations() {
+        LatencyHistogram histogram = new LatencyHistogram("test", LONG_WINDOW);
+        histogram.record(-5);
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.snapshot().windowCount);
+    }
+
+    @Test
+    void oldWindowsAgeOutButTotalsStay() throws InterruptedException {
+        long window = 50_000_000L;
+        LatencyHistogram histogram = new LatencyHistogram("test", window);
+        histogram.record(5_000_000);
+        assertEquals(1, histogram.snapshot().windowCount);
+
+        // Two full windows later neither of the windows a snapshot reads holds it
+        Thread.sleep(3 * window / 1_000_000);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.windowCount);
+        assertEquals(0, snapshot.maxMicros);
+        assertEquals(1, snapshot.totalCount);
+        assertEquals(5_000_000, snapshot.totalNanos);
+    }
+
+    private static void assertBucketHolds(long micros) {
+        int bucket = LatencyHistogram.bucket(micros);
+        long upper = LatencyHistogram.bucketUpperMicros(bucket);
+        long lower = bucket == 0 ? 0 : LatencyHistogram.bucketUpperMicros(bucket - 1) + 1;
+        assertTrue(lower <= micros && micros <= upper, micros + "us outside [" + lower + ", " + upper + "]");
+        assertTrue(upper - lower <= lower / 64, "bucket " + bucket + " is wider than 1/64");
+    }
+
+    // Reported as the upper bound of the exact value's bucket
+    private static void assertQuantile(long exact, long reported) {
+        assertTrue(reported >= exact && reported <= exact + exact / 64,
+                "reported " + reported + "us for exact " + exact + "us");
+    }
+}
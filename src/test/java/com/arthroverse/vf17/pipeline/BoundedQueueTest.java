@@ -0,0 +1,110 @@
+package com.arthroverse.vf17.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedQueueTest {
+
+    @Test
+    void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(2, new BoundedQueue<Integer>(1).capacity());
+        assertEquals(4, new BoundedQueue<Integer>(3).capacity());
+        assertEquals(4, new BoundedQueue<Integer>(4).capacity());
+        assertEquals(1024, new BoundedQueue<Integer>(1000).capacity());
+    }
+
+    @Test
+    void rejectsWhenFullAndReturnsNullWhenEmpty() {
+        BoundedQueue<Integer> queue = new BoundedQueue<>(4);
+        assertNull(queue.poll());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertEquals(4, queue.size());
+
+        assertEquals(0, queue.poll());
+        assertTrue(queue.offer(4));
+        assertFalse(queue.offer(5));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, queue.poll());
+        }
+        assertNull(queue.poll());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void staysFifoAcrossManyWraparounds() {
+        BoundedQueue<Integer> queue = new BoundedQueue<>(8);
+        int next = 0;
+        int expected = 0;
+        // Uneven fill and drain counts so head and tail land on every cell
+        for (int round = 0; round < 1000; round++) {
+            for (int i = 0; i < 1 + round % 7 && queue.offer(next); i++) {
+                next++;
+            }
+            for (int i = 0; i < 1 + round % 5; i++) {
+                Integer item = queue.poll();
+                if (item == null) {
+                    break;
+                }
+                assertEquals(expected++, item);
+            }
+            assertEquals(next - expected, queue.size());
+        }
+    }
+
+    @Test
+    void deliversEveryItemOnceAcrossThreads() throws InterruptedException {
+        int producers = 4;
+        int consumers = 4;
+        int perProducer = 20_000;
+        BoundedQueue<Integer> queue = new BoundedQueue<>(64);
+        AtomicIntegerArray seen = new AtomicIntegerArray(producers * perProducer);
+        // Waits yield rather than spin so the test also finishes on a single core
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!queue.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        int perConsumer = producers * perProducer / consumers;
+        for (int c = 0; c < consumers; c++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perConsumer; i++) {
+                    Integer item;
+                    while ((item = queue.poll()) == null) {
+                        Thread.yield();
+                    }
+                    seen.incrementAndGet(item);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(30_000);
+            assertFalse(thread.isAlive());
+        }
+
+        for (int i = 0; i < seen.length(); i++) {
+            assertEquals(1, seen.get(i), "item " + i);
+        }
+        assertNull(queue.poll());
+    }
+}
@@ -0,0 +1,62 @@
+package com.arthroverse.vf17.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InferenceSchedulerTest {
+    private static final double FAR = Double.POSITIVE_INFINITY;
+    private static final long MS = 1_000_000L;
+
+    @Test
+    void rateFollowsHowSoonObjectsReachTheLine() {
+        InferenceScheduler scheduler = new InferenceScheduler(1, 0.6, 1, 8, 0);
+        scheduler.recordInference(MS);
+        assertEquals(8, scheduler.decideSkip(0, 30, 1, 0, FAR), "belt empty");
+        assertEquals(4, scheduler.decideSkip(0, 30, 1, 2, 3.0), "objects far from the line");
+        assertEquals(4, scheduler.decideSkip(0, 30, 1, 2, FAR), "objects moving away");
+        assertEquals(1, scheduler.decideSkip(0, 30, 1, 2, 0.2), "object near the line");
+    }
+
+    @Test
+    void cpuBudgetCapsTheRateAcrossStreams() {
+        InferenceScheduler scheduler = new InferenceScheduler(2, 0.6, 1, 8, 0);
+        // 20 ms per inference at 60% of a core is 30 inferences a second in total
+        scheduler.recordInference(20 * MS);
+        assertEquals(1, scheduler.decideSkip(0, 30, 1, 2, 0.2));
+        assertEquals(2, scheduler.decideSkip(0, 30, 2, 2, 0.2));
+        assertEquals(4, scheduler.decideSkip(1, 60, 2, 2, 0.2));
+        // The budget wins over the motion policy but never lowers it
+        assertEquals(8, scheduler.decideSkip(0, 30, 2, 0, FAR));
+    }
+
+    @Test
+    void latencyIsAnExponentialAverage() {
+        InferenceScheduler scheduler = new InferenceScheduler(1, 0.6, 1, 8, 0);
+        assertEquals(0, scheduler.getLatencyEwmaMs());
+        // Without a measurement the budget doesn't limit anything yet
+        assertEquals(1, scheduler.decideSkip(0, 30, 1, 1, 0.1));
+
+        scheduler.recordInference(10 * MS);
+        assertEquals(10, scheduler.getLatencyEwmaMs(), 1e-9);
+        scheduler.recordInference(60 * MS);
+        assertEquals(20, scheduler.getLatencyEwmaMs(), 1e-9);
+        // 20 ms average: 30 per second at 60% of a core, so 60 fps needs skip 2
+        assertEquals(2, scheduler.decideSkip(0, 60, 1, 1, 0.1));
+    }
+
+    @Test
+    void fixedSkipOverridesEverything() {
+        InferenceScheduler scheduler = new InferenceScheduler(1, 0.6, 1, 8, 3);
+        scheduler.recordInference(500 * MS);
+        assertEquals(3, scheduler.decideSkip(0, 30, 4, 0, FAR));
+        assertEquals(3, scheduler.decideSkip(0, 30, 4, 5, 0.1));
+    }
+
+    @Test
+    void skipBoundsAreSanitised() {
+        InferenceScheduler scheduler = new InferenceScheduler(1, 0.6, 0, -5, 0);
+        assertEquals(1, scheduler.decideSkip(0, 30, 1, 0, FAR));
+        assertEquals(1, scheduler.decideSkip(0, 30, 1, 1, 0.1));
+    }
+}
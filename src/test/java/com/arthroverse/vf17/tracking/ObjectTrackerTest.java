@@ -0,0 +1,123 @@
+package com.arthroverse.vf17.tracking;
+
+import com.arthroverse.vf17.detection.YOLOv8Detector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObjectTrackerTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void keepsIdsOfObjectsMovingAlongTheBelt() {
+        ObjectTracker tracker = new ObjectTracker(0.2f, 1000 * MS);
+        int first = 0;
+        int second = 0;
+        // Two items 200 px apart, both moving 10 px per 33 ms frame
+        for (int frame = 0; frame < 30; frame++) {
+            float dx = frame * 10;
+            List<YOLOv8Detector.Detection> detections = list(box(100 + dx, 100, 0), box(300 + dx, 100, 1));
+            List<Track> updated = tracker.update(detections, frame * 33 * MS);
+            assertEquals(2, updated.size());
+            if (frame == 0) {
+                first = detections.get(0).trackId;
+                second = detections.get(1).trackId;
+                assertNotEquals(first, second);
+            }
+            assertEquals(first, detections.get(0).trackId, "frame " + frame);
+            assertEquals(second, detections.get(1).trackId, "frame " + frame);
+        }
+        assertEquals(2, tracker.getTracks().size());
+    }
+
+    @Test
+    void matchesByOverlapNotByListOrder() {
+        ObjectTracker tracker = new ObjectTracker(0.2f, 1000 * MS);
+        List<YOLOv8Detector.Detection> detections = list(box(100, 100, 0), box(400, 100, 0));
+        tracker.update(detections, 0);
+        int left = detections.get(0).trackId;
+        int right = detections.get(1).trackId;
+
+        List<YOLOv8Detector.Detection> swapped = list(box(405, 100, 0), box(105, 100, 0));
+        tracker.update(swapped, 33 * MS);
+        assertEquals(right, swapped.get(0).trackId);
+        assertEquals(left, swapped.get(1).trackId);
+    }
+
+    @Test
+    void startsANewTrackForAnUnmatchedDetection() {
+        ObjectTracker tracker = new ObjectTracker(0.2f, 1000 * MS);
+        List<YOLOv8Detector.Detection> detections = list(box(100, 100, 0));
+        tracker.update(detections, 0);
+        int id = detections.get(0).trackId;
+
+        // Too far away to overlap the old track's prediction
+        List<YOLOv8Detector.Detection> jumped = list(box(500, 300, 0));
+        List<Track> updated = tracker.update(jumped, 33 * MS);
+        assertEquals(1, updated.size());
+        assertTrue(jumped.get(0).trackId > id);
+        assertEquals(2, tracker.getTracks().size());
+    }
+
+    @Test
+    void dropsTracksUnmatchedForLongerThanMaxAge() {
+        ObjectTracker tracker = new ObjectTracker(0.2f, 500 * MS);
+        List<YOLOv8Detector.Detection> detections = list(box(100, 100, 0), box(400, 100, 0));
+        tracker.update(detections, 0);
+        int kept = detections.get(1).trackId;
+
+        for (long t = 100; t <= 500; t += 100) {
+            tracker.update(list(box(400, 100, 0)), t * MS);
+        }
+        // Exactly maxAge since the first was last seen: still kept
+        assertEquals(2, tracker.getTracks().size());
+
+        tracker.update(list(box(400, 100, 0)), 501 * MS);
+        List<Track> tracks = tracker.getTracks();
+        assertEquals(1, tracks.size());
+        assertEquals(kept, tracks.get(0).getId());
+
+        tracker.update(new ArrayList<>(), 1002 * MS);
+        assertEquals(0, tracker.getTracks().size());
+    }
+
+    @Test
+    void predictsWithTheEstimatedVelocity() {
+        ObjectTracker tracker = new ObjectTracker(0.2f, 1000 * MS);
+        // 100 px/s to the right
+        tracker.update(list(box(100, 100, 0)), 0);
+        tracker.update(list(box(110, 100, 0)), 100 * MS);
+
+        List<YOLOv8Detector.Detection> predicted = tracker.predict(200 * MS);
+        assertEquals(1, predicted.size());
+        YOLOv8Detector.Detection box = predicted.get(0);
+        assertEquals(120, (box.x1 + box.x2) / 2, 1e-3);
+        assertEquals(100, (box.y1 + box.y2) / 2, 1e-3);
+        assertEquals(40, box.x2 - box.x1, 1e-3);
+        assertEquals(tracker.getTracks().get(0).getId(), box.trackId);
+    }
+
+    @Test
+    void clearDropsEveryTrack() {
+        ObjectTracker tracker = new ObjectTracker();
+        tracker.update(list(box(100, 100, 0), box(300, 100, 0)), 0);
+        tracker.clear();
+        assertEquals(0, tracker.getTracks().size());
+        assertEquals(0, tracker.predict(0).size());
+    }
+
+    // 40x40 box centred on (cx, cy)
+    private static YOLOv8Detector.Detection box(float cx, float cy, int classId) {
+        return new YOLOv8Detector.Detection(cx - 20, cy - 20, cx + 20, cy + 20, 0.9f, classId);
+    }
+
+    private static List<YOLOv8Detector.Detection> list(YOLOv8Detector.Detection... detections) {
+        return new ArrayList<>(List.of(detections));
+    }
+}
@@ -0,0 +1,168 @@
+package com.arthroverse.vf17.trigger;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TriggerChannelTest {
+    private static final String[] CLASSES = {"fresh_apple", "rotten_apple"};
+    private static final boolean[] TRIGGERING = {false, true};
+    // Generous, so a slow test machine doesn't make the on-time triggers late
+    private static final long DEADLINE = TimeUnit.SECONDS.toNanos(2);
+    private static final long SPIN = TimeUnit.MICROSECONDS.toNanos(200);
+
+    @Test
+    void countsTriggersAgainstTheCaptureDeadline() throws InterruptedException {
+        RecordingSink sink = new RecordingSink("arm");
+        TriggerChannel channel = new TriggerChannel(List.of(sink), CLASSES, TRIGGERING, DEADLINE, 8, SPIN);
+        try {
+            long now = System.nanoTime();
+            assertTrue(channel.publish(0, 1, 1, 0.9f, "exit", now));
+            // Captured long enough ago that the deadline has already passed
+            assertTrue(channel.publish(0, 2, 1, 0.8f, "exit", now - TimeUnit.SECONDS.toNanos(10)));
+            assertTrue(channel.publish(0, 3, 1, 0.7f, "exit", now - DEADLINE / 2));
+            awaitCount(() -> channel.getOnTime(0) + channel.getLate(0), 3);
+
+            assertEquals(2, channel.getOnTime(0));
+            assertEquals(1, channel.getLate(0));
+            assertEquals(0, channel.getFailed(0));
+
+            List<long[]> fired = sink.fired();
+            assertEquals(3, fired.size());
+            for (int i = 0; i < 3; i++) {
+                long[] event = fired.get(i);
+                assertEquals(i, event[0], "sequence");
+                assertEquals(event[1] + DEADLINE, event[2], "deadline is capture + deadlineNanos");
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test
+    void onlyTriggeringClassesAreQueued() {
+        RecordingSink sink = new RecordingSink("arm");
+        TriggerChannel channel = new TriggerChannel(List.of(sink), CLASSES, TRIGGERING, DEADLINE, 8, SPIN);
+        try {
+            assertFalse(channel.publish(0, 1, 0, 0.9f, "exit", System.nanoTime()));
+            assertFalse(channel.publish(0, 1, -1, 0.9f, "exit", System.nanoTime()));
+            assertFalse(channel.publish(0, 1, 7, 0.9f, "exit", System.nanoTime()));
+        } finally {
+            channel.close();
+        }
+        assertEquals(0, sink.fired().size());
+        assertEquals(0, channel.getDropped());
+    }
+
+    @Test
+    void aFailingSinkDoesNotHoldBackTheOthers() throws InterruptedException {
+        RecordingSink broken = new RecordingSink("arm") {
+            @Override
+            public void fire(TriggerEvent event) throws IOException {
+                throw new IOException("arm unplugged");
+            }
+        };
+        RecordingSink log = new RecordingSink("arm");
+        TriggerChannel channel = new TriggerChannel(List.of(broken, log), CLASSES, TRIGGERING, DEADLINE, 8, SPIN);
+        try {
+            // Equal names are told apart for the metrics
+            assertEquals("arm", channel.getSinkName(0));
+            assertEquals("arm1", channel.getSinkName(1));
+
+            channel.publish(0, 1, 1, 0.9f, "exit", System.nanoTime());
+            channel.publish(0, 2, 1, 0.9f, "exit", System.nanoTime() - TimeUnit.SECONDS.toNanos(10));
+            awaitCount(() -> channel.getOnTime(1) + channel.getLate(1), 2);
+
+            // A failed delivery is neither on time nor late
+            assertEquals(2, channel.getFailed(0));
+            assertEquals(0, channel.getOnTime(0) + channel.getLate(0));
+            assertEquals(1, channel.getOnTime(1));
+            assertEquals(1, channel.getLate(1));
+            assertEquals(0, channel.getFailed(1));
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test
+    void dropsWhenTheRingIsFullAndDrainsOnClose() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch firing = new CountDownLatch(1);
+        RecordingSink stuck = new RecordingSink("arm") {
+            @Override
+            public void fire(TriggerEvent event) throws IOException {
+                firing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.fire(event);
+            }
+        };
+        // Two pooled events: one held by the stuck sink, one waiting on the ring
+        TriggerChannel channel = new TriggerChannel(List.of(stuck), CLASSES, TRIGGERING, DEADLINE, 2, SPIN);
+        assertTrue(channel.publish(0, 1, 1, 0.9f, "exit", System.nanoTime()));
+        assertTrue(firing.await(5, TimeUnit.SECONDS));
+        assertTrue(channel.publish(0, 2, 1, 0.9f, "exit", System.nanoTime()));
+        assertFalse(channel.publish(0, 3, 1, 0.9f, "exit", System.nanoTime()));
+        assertEquals(1, channel.getDropped());
+        assertEquals(1, channel.getQueueDepth());
+
+        release.countDown();
+        channel.close();
+        // The queued trigger still went out
+        assertEquals(2, stuck.fired().size());
+        assertEquals(0, channel.getQueueDepth());
+    }
+
+    private static void awaitCount(LongSupplier count, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count.getAsLong() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, count.getAsLong());
+    }
+
+    // Keeps {sequence, captureNanos, deadlineNanos} of every fired event; the event
+    // itself goes back to the pool
+    private static class RecordingSink implements TriggerSink {
+        private final String name;
+        private final List<long[]> fired = new ArrayList<>();
+
+        RecordingSink(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void fire(TriggerEvent event) throws IOException {
+            synchronized (fired) {
+                fired.add(new long[]{event.getSequence(), event.getCaptureNanos(), event.getDeadlineNanos()});
+            }
+        }
+
+        List<long[]> fired() {
+            synchronized (fired) {
+                return new ArrayList<>(fired);
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
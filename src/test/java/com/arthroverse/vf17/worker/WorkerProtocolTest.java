@@ -0,0 +1,186 @@
+package com.arthroverse.vf17.worker;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WorkerProtocolTest {
+    private SocketChannel pool;
+    private SocketChannel worker;
+
+    @BeforeEach
+    void connect() throws IOException {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            pool = SocketChannel.open(server.getLocalAddress());
+            worker = server.accept();
+        }
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        pool.close();
+        worker.close();
+    }
+
+    @Test
+    void roundTripsAResult() throws IOException {
+        ByteBuffer out = WorkerProtocol.begin(ByteBuffer.allocate(256), WorkerProtocol.RESULT);
+        out.putLong(42).putLong(1_500_000).putInt(2);
+        for (int i = 0; i < 2; i++) {
+            out.putFloat(10 * i).putFloat(20).putFloat(30 + i).putFloat(40).putFloat(0.75f).putInt(i + 3);
+        }
+        WorkerProtocol.writeFully(worker, null, WorkerProtocol.finish(out), 0);
+
+        ByteBuffer in = WorkerProtocol.read(pool, null, ByteBuffer.allocate(256), 0);
+        assertEquals(WorkerProtocol.RESULT, in.getInt(Integer.BYTES));
+        assertEquals(WorkerProtocol.HEADER_BYTES, in.position());
+        assertEquals(WorkerProtocol.HEADER_BYTES + 2 * Long.BYTES + Integer.BYTES
+                + 2 * WorkerProtocol.DETECTION_BYTES, in.limit());
+        assertEquals(42, in.getLong());
+        assertEquals(1_500_000, in.getLong());
+        assertEquals(2, in.getInt());
+        for (int i = 0; i < 2; i++) {
+            assertEquals(10 * i, in.getFloat());
+            assertEquals(20, in.getFloat());
+            assertEquals(30 + i, in.getFloat());
+            assertEquals(40, in.getFloat());
+            assertEquals(0.75f, in.getFloat());
+            assertEquals(i + 3, in.getInt());
+        }
+        assertEquals(0, in.remaining());
+    }
+
+    @Test
+    void growsTheReadBufferAndKeepsUsingIt() throws Exception {
+        byte[] frame = new byte[100_000];
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = (byte) (i * 31);
+        }
+        // From another thread, the frame may not fit in the socket buffers
+        Thread writer = new Thread(() -> {
+            try {
+                send(WorkerProtocol.DETECT, frame);
+                send(WorkerProtocol.ERROR, new byte[]{1, 2, 3});
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        writer.start();
+
+        ByteBuffer small = ByteBuffer.allocate(64);
+        ByteBuffer in = WorkerProtocol.read(pool, null, small, 0);
+        assertNotSame(small, in);
+        assertEquals(WorkerProtocol.DETECT, in.getInt(Integer.BYTES));
+        byte[] body = new byte[in.remaining()];
+        in.get(body);
+        assertEquals(frame.length, body.length);
+        for (int i = 0; i < frame.length; i++) {
+            assertEquals(frame[i], body[i], "byte " + i);
+        }
+
+        // A smaller message afterwards fits in the grown buffer
+        ByteBuffer next = WorkerProtocol.read(pool, null, in, 0);
+        assertSame(in, next);
+        assertEquals(WorkerProtocol.ERROR, next.getInt(Integer.BYTES));
+        assertEquals(3, next.remaining());
+        assertEquals(3, next.get(next.limit() - 1));
+        writer.join();
+    }
+
+    @Test
+    void ensureCapacityKeepsWhatWasWritten() {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putInt(7).putInt(8).putLong(9);
+        assertSame(buffer, WorkerProtocol.ensureCapacity(buffer, 16));
+
+        ByteBuffer larger = WorkerProtocol.ensureCapacity(buffer, 20);
+        // At least doubled, so a run of slightly bigger messages doesn't copy every time
+        assertEquals(32, larger.capacity());
+        assertEquals(16, larger.position());
+        assertEquals(7, larger.getInt(0));
+        assertEquals(8, larger.getInt(4));
+        assertEquals(9, larger.getLong(8));
+
+        assertEquals(1000, WorkerProtocol.ensureCapacity(larger, 1000).capacity());
+    }
+
+    @Test
+    void readsAMessageThatArrivesInPieces() throws Exception {
+        pool.configureBlocking(false);
+        try (Selector selector = Selector.open()) {
+            pool.register(selector, SelectionKey.OP_READ);
+            ByteBuffer out = WorkerProtocol.begin(ByteBuffer.allocate(64), WorkerProtocol.HELLO);
+            out.putInt(WorkerProtocol.VERSION).putLong(1234).putInt(1).putInt(640);
+            WorkerProtocol.finish(out);
+            Thread writer = new Thread(() -> {
+                try {
+                    // Split inside the header and again inside the body
+                    for (int end : new int[]{3, 13, out.limit()}) {
+                        ByteBuffer piece = out.duplicate();
+                        piece.limit(end);
+                        worker.write(piece);
+                        out.position(end);
+                        Thread.sleep(20);
+                    }
+                } catch (IOException | InterruptedException e) {
+                    e.printStackTrace();
+                }
+            });
+            writer.start();
+            ByteBuffer in = WorkerProtocol.read(pool, selector, ByteBuffer.allocate(64),
+                    System.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+            writer.join();
+            assertEquals(WorkerProtocol.HELLO, in.getInt(Integer.BYTES));
+            assertEquals(WorkerProtocol.VERSION, in.getInt());
+            assertEquals(1234, in.getLong());
+            assertEquals(1, in.getInt());
+            assertEquals(640, in.getInt());
+        }
+    }
+
+    @Test
+    void timesOutWhenTheWorkerIsSilent() throws IOException {
+        pool.configureBlocking(false);
+        try (Selector selector = Selector.open()) {
+            pool.register(selector, SelectionKey.OP_READ);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+            assertThrows(SocketTimeoutException.class,
+                    () -> WorkerProtocol.read(pool, selector, ByteBuffer.allocate(64), deadline));
+        }
+    }
+
+    @Test
+    void rejectsBadLengthsAndClosedConnections() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(WorkerProtocol.HEADER_BYTES);
+        header.putInt(WorkerProtocol.MAX_MESSAGE_BYTES + 1).putInt(WorkerProtocol.RESULT).flip();
+        WorkerProtocol.writeFully(worker, null, header, 0);
+        assertThrows(IOException.class, () -> WorkerProtocol.read(pool, null, ByteBuffer.allocate(64), 0));
+
+        worker.close();
+        assertThrows(EOFException.class, () -> WorkerProtocol.read(pool, null, ByteBuffer.allocate(64), 0));
+    }
+
+    private void send(int type, byte[] body) throws IOException {
+        ByteBuffer out = WorkerProtocol.begin(ByteBuffer.allocate(WorkerProtocol.HEADER_BYTES + body.length), type);
+        out.put(body);
+        WorkerProtocol.writeFully(worker, null, WorkerProtocol.finish(out), 0);
+    }
+}